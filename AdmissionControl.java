@@ -0,0 +1,321 @@
+package restaurant;
+
+import java.time.Clock;
+import java.util.Arrays;
+
+/**
+ * Decides whether a walk-in party should be added to the waitlist, so that on
+ * a busy night the host doesn't take names for waits that most guests will
+ * not sit out. Parties with reservations are always admitted.
+ * <p>
+ * Each party is assumed to be seated at the smallest size of table that fits
+ * it, and the tables of each size are treated as their own line. For each
+ * size the controller keeps the number of waiting parties that will need it
+ * and a moving average of the time between turns (a table of that size being
+ * vacated) while parties were waiting for one. A walk-in's quoted wait is the
+ * number of parties ahead of it for its size of table, plus one, times that
+ * average. All of this is updated as the restaurant changes, so a decision
+ * takes constant time.
+ * <p>
+ * A walk-in is:
+ * <ul>
+ * <li>ADMIT - added straight away, if the quote is within the quote limit;
+ * <li>QUOTE - told the quote and added only if they agree to wait, if it is
+ * longer than that but within the reject limit;
+ * <li>THROTTLE - asked to come back later, if the quote is within the reject
+ * limit but walk-ins for that size of table have recently been added faster
+ * than those tables turn (tracked with a token bucket refilled at the turn
+ * rate), so that the line would only keep growing;
+ * <li>REJECT - turned away, if the quote is past the reject limit or no table
+ * can seat the party.
+ * </ul>
+ * The controller only advises; adding to the waitlist is still done with
+ * Waitlist.add (or CommandLog), and every walk-in added uses up a token
+ * whatever the decision was.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class AdmissionControl implements RestaurantListener
+{
+    /** Weight given to each new interval in the moving averages. */
+    public static final double ALPHA = 0.2;
+    
+    /** Time a table is assumed to take to turn until some turns have been seen. */
+    private static final long DEFAULT_TURN_TIME = 60 * 60_000L;
+    
+    /**
+     * Possible decisions for a party.
+     */
+    public enum Kind
+    {
+        /** Add the party to the waitlist. */
+        ADMIT,
+        /** Add the party if they accept the quoted wait. */
+        QUOTE,
+        /** Ask the party to come back later. */
+        THROTTLE,
+        /** Turn the party away. */
+        REJECT
+    }
+    
+    /**
+     * Decision for one party, with the wait they were quoted.
+     */
+    public static final class Decision
+    {
+        private final Kind kind;
+        private final long quotedWait;
+        private final long retryAfter;
+        
+        private Decision(Kind kind, long quotedWait, long retryAfter)
+        {
+            this.kind = kind;
+            this.quotedWait = quotedWait;
+            this.retryAfter = retryAfter;
+        }
+        
+        /**
+         * Returns what should be done with the party.
+         * 
+         * @return ADMIT, QUOTE, THROTTLE or REJECT
+         */
+        public Kind getKind()
+        {
+            return kind;
+        }
+        
+        /**
+         * Returns the expected wait for the party if they join the waitlist now.
+         * 
+         * @return time in milliseconds, or -1 if no table can seat the party
+         */
+        public long getQuotedWait()
+        {
+            return quotedWait;
+        }
+        
+        /**
+         * Returns how long a throttled party should wait before asking again.
+         * 
+         * @return time in milliseconds, or 0 if the decision is not THROTTLE
+         */
+        public long getRetryAfter()
+        {
+            return retryAfter;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return kind + " (quoted wait " + quotedWait + " ms"
+                    + ((kind == Kind.THROTTLE) ? ", retry after " + retryAfter + " ms)" : ")");
+        }
+    }
+    
+    private final Clock clock;
+    private final long quoteLimit;
+    private final long rejectLimit;
+    
+    // All indexed like capacities, so the arrays stay small however large
+    // the tables are
+    private final int[] capacities;        // distinct table capacities, in increasing order
+    private final int[] tables;            // number of tables with each capacity
+    private final int[] waiting;           // waiting parties who need each capacity
+    private final int[] reserved;          // those of them with reservations
+    private final double[] averageTurn;    // milliseconds between turns while parties wait
+    private final long[] intervalStart;    // last turn, or when parties began waiting; -1 if none
+    private final double[] tokens;         // walk-ins that can be admitted before throttling
+    private final long[] tokensUpdated;
+    
+    /**
+     * Creates a controller with a quote limit of 30 minutes and a reject limit
+     * of 2 hours, using the system clock, and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose waitlist is being protected
+     */
+    public AdmissionControl(Restaurant restaurant)
+    {
+        this(restaurant, Clock.systemUTC(), 30 * 60_000L, 120 * 60_000L);
+    }
+    
+    /**
+     * Creates a controller and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose waitlist is being protected
+     * @param clock clock used to time turns
+     * @param quoteLimit longest quoted wait, in milliseconds, for which a
+     * walk-in is admitted without being asked
+     * @param rejectLimit longest quoted wait, in milliseconds, for which a
+     * walk-in is admitted at all
+     * @throws IllegalArgumentException if a limit is negative or the quote
+     * limit is greater than the reject limit
+     */
+    public AdmissionControl(Restaurant restaurant, Clock clock, long quoteLimit, long rejectLimit)
+    {
+        if (quoteLimit < 0 || quoteLimit > rejectLimit) throw new IllegalArgumentException(
+                "Limits cannot be negative, and the quote limit cannot be greater than "
+                + "the reject limit.");
+        
+        this.clock = clock;
+        this.quoteLimit = quoteLimit;
+        this.rejectLimit = rejectLimit;
+        
+        capacities = restaurant.getCapacities();
+        int n = capacities.length;
+        tables = new int[n];
+        for (Table t : restaurant.getAllTables()) tables[capacityIndex(t.getCapacity())]++;
+        
+        waiting = new int[n];
+        reserved = new int[n];
+        averageTurn = new double[n];
+        intervalStart = new long[n];
+        tokens = new double[n];
+        tokensUpdated = new long[n];
+        long now = clock.millis();
+        for (int c = 0; c < n; c++)
+        {
+            averageTurn[c] = (double) DEFAULT_TURN_TIME / tables[c];
+            intervalStart[c] = -1;
+            tokens[c] = tables[c];
+            tokensUpdated[c] = now;
+        }
+        for (Customer c : restaurant.getWaitlist().toArray()) customerAdded(c);
+        
+        restaurant.addListener(this);
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        int c = capacityFor(customer.getSize());
+        if (c < 0) return;
+        long now = clock.millis();
+        if (waiting[c]++ == 0) intervalStart[c] = now;
+        if (customer.hasReservation()) reserved[c]++;
+        else
+        {
+            // Let the bucket go into debt, down to one full bucket
+            tokens[c] = Math.max(availableTokens(c, now) - 1, -tables[c]);
+            tokensUpdated[c] = now;
+        }
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        int c = capacityFor(customer.getSize());
+        if (c < 0) return;
+        if (customer.hasReservation()) reserved[c]--;
+        if (--waiting[c] == 0) intervalStart[c] = -1;
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        if (oldOccupant == null || table.getOccupant() != null) return;
+        
+        // A turn; only the time when parties were waiting for it counts
+        int c = capacityIndex(table.getCapacity());
+        long now = clock.millis();
+        if (intervalStart[c] >= 0)
+        {
+            averageTurn[c] += ALPHA * ((now - intervalStart[c]) - averageTurn[c]);
+            intervalStart[c] = now;
+        }
+    }
+    
+    /**
+     * Decides what to do with a party that cannot be seated straight away.
+     * This does not change the controller; adding the party to the waitlist
+     * does.
+     * 
+     * @param customer Customer who has arrived
+     * @return decision and quoted wait for the party
+     */
+    public Decision decide(Customer customer)
+    {
+        int c = capacityFor(customer.getSize());
+        if (c < 0) return new Decision(Kind.REJECT, -1, 0);
+        
+        // Reservations only wait behind other reservations
+        if (customer.hasReservation())
+            return new Decision(Kind.ADMIT, Math.round((reserved[c] + 1) * averageTurn[c]), 0);
+        
+        long quote = Math.round((waiting[c] + 1) * averageTurn[c]);
+        if (quote <= quoteLimit) return new Decision(Kind.ADMIT, quote, 0);
+        if (quote > rejectLimit) return new Decision(Kind.REJECT, quote, 0);
+        
+        double available = availableTokens(c, clock.millis());
+        if (available < 1)
+            return new Decision(Kind.THROTTLE, quote, Math.round((1 - available) * averageTurn[c]));
+        return new Decision(Kind.QUOTE, quote, 0);
+    }
+    
+    /**
+     * Returns the expected wait for a walk-in party of the given size that
+     * joins the waitlist now, behind every party already waiting for the same
+     * size of table.
+     * 
+     * @param partySize number of people in the party
+     * @return time in milliseconds, or -1 if no table can seat the party
+     */
+    public long quote(int partySize)
+    {
+        int c = capacityFor(partySize);
+        return (c < 0) ? -1 : Math.round((waiting[c] + 1) * averageTurn[c]);
+    }
+    
+    /**
+     * Returns how often tables that would seat a party of the given size have
+     * recently been turning while parties waited for them.
+     * 
+     * @param partySize number of people in the party
+     * @return turns per minute, or 0 if no table can seat the party
+     */
+    public double getTurnRate(int partySize)
+    {
+        int c = capacityFor(partySize);
+        return (c < 0) ? 0 : 60_000 / averageTurn[c];
+    }
+    
+    /**
+     * Returns the number of waiting parties who need the same size of table
+     * as a party of the given size.
+     * 
+     * @param partySize number of people in the party
+     * @return queue depth for that size of table
+     */
+    public int queueDepth(int partySize)
+    {
+        int c = capacityFor(partySize);
+        return (c < 0) ? 0 : waiting[c];
+    }
+    
+    /**
+     * Returns the index of the smallest table capacity that seats the given
+     * party size, or -1 if there is none.
+     */
+    private int capacityFor(int partySize)
+    {
+        int c = Restaurant.fitIndex(capacities, partySize);
+        return (partySize < 1 || c == capacities.length) ? -1 : c;
+    }
+    
+    /**
+     * Returns the index of the given table capacity.
+     */
+    private int capacityIndex(int capacity)
+    {
+        return Arrays.binarySearch(capacities, capacity);
+    }
+    
+    /**
+     * Returns the tokens in a bucket at the given time, refilled at one per
+     * average turn and capped at the number of tables of that capacity.
+     */
+    private double availableTokens(int c, long now)
+    {
+        return Math.min(tables[c], tokens[c] + (now - tokensUpdated[c]) / averageTurn[c]);
+    }
+}
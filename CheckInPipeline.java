@@ -0,0 +1,390 @@
+package restaurant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seats or waitlists incoming check-ins from any number of threads (kiosks, 
+ * online check-in, etc.) without those threads touching the Restaurant 
+ * directly. Check-ins flow through three stages:
+ * <ol>
+ * <li>validation, which turns each CheckIn into a Customer and rejects any that
+ * break the Customer constructor's rules;
+ * <li>batching, which groups Customers into batches of up to batchSize, 
+ * flushing a partial batch once it is maxBatchDelayMillis old;
+ * <li>seating, which takes one batch at a time and, for each Customer, seats 
+ * them at an available table chosen by a SectionRotation, or adds them to the 
+ * waitlist.
+ * </ol>
+ * Each stage has a buffer of at most bufferCapacity items and only asks the 
+ * previous stage for more once it has room, so a burst of check-ins that 
+ * arrives faster than parties can be seated fills the buffers and then pushes 
+ * back on the callers of submit (which blocks) or offer (which fails) instead 
+ * of growing without bound. Each stage runs on its own thread, so a stage 
+ * that is waiting for room downstream never holds up the stages after it.
+ * <p>
+ * The seating stage is the only thread that modifies the restaurant while the 
+ * pipeline is running, so Restaurant, Table and Waitlist need no locking. Any 
+ * other code that modifies the restaurant must not run until the pipeline has 
+ * been closed.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class CheckInPipeline implements AutoCloseable
+{
+    /**
+     * Unvalidated check-in request.
+     */
+    public static final class CheckIn
+    {
+        final String name;
+        final int size;
+        final boolean reservation;
+        
+        /**
+         * Creates a check-in request. The values are not checked until the 
+         * request reaches the validation stage.
+         * 
+         * @param partyName name of customer, or other ID unique to this customer
+         * @param partySize number of people in the group
+         * @param hasReservation true if the customer has a reservation, false otherwise
+         */
+        public CheckIn(String partyName, int partySize, boolean hasReservation)
+        {
+            name = partyName;
+            size = partySize;
+            reservation = hasReservation;
+        }
+    }
+    
+    /**
+     * Receives the outcome of each check-in. Methods are called from the 
+     * pipeline's own threads and should return quickly.
+     */
+    public interface Listener
+    {
+        /**
+         * Called after a customer has been seated at a table.
+         * 
+         * @param customer Customer who was seated
+         * @param table Table they were seated at
+         */
+        default void seated(Customer customer, Table table) {}
+        
+        /**
+         * Called after a customer has been added to the waitlist.
+         * 
+         * @param customer Customer who was added
+         */
+        default void waitlisted(Customer customer) {}
+        
+        /**
+         * Called when a check-in fails validation.
+         * 
+         * @param checkIn the rejected request
+         * @param reason explanation of why it was rejected
+         */
+        default void rejected(CheckIn checkIn, String reason) {}
+    }
+    
+    private final Restaurant restaurant;
+    private final Listener listener;
+    private final SectionRotation rotation;
+    private final ExecutorService validating, batching, seating;
+    private final ScheduledExecutorService flushTimer;
+    
+    private final SubmissionPublisher<CheckIn> intake;
+    private final CompletableFuture<Void> done;
+    
+    /**
+     * Creates a pipeline that seats customers at the given restaurant.
+     * 
+     * @param restaurant Restaurant to seat customers in
+     * @param bufferCapacity maximum number of items buffered by each stage
+     * @param batchSize maximum number of customers seated in one batch
+     * @param maxBatchDelayMillis maximum time a partial batch waits before 
+     * being seated, in milliseconds
+     * @param listener receives the outcome of each check-in, or null
+     * @throws IllegalArgumentException if restaurant is null or any number is 
+     * less than 1
+     */
+    public CheckInPipeline(Restaurant restaurant, int bufferCapacity, int batchSize, 
+            long maxBatchDelayMillis, Listener listener)
+    {
+        if (restaurant == null) throw new IllegalArgumentException("Pipeline must"
+                + " have a restaurant.");
+        if (bufferCapacity < 1 || batchSize < 1 || maxBatchDelayMillis < 1) 
+            throw new IllegalArgumentException("Buffer capacity, batch size and "
+                    + "batch delay must all be at least 1.");
+        
+        this.restaurant = restaurant;
+        this.listener = (listener != null) ? listener : new Listener() {};
+        rotation = new SectionRotation(restaurant);
+        
+        // A publisher's executor runs its subscriber, so each stage's thread
+        // is the one given to the publisher before it
+        validating = Executors.newSingleThreadExecutor(CheckInPipeline::daemonThread);
+        batching = Executors.newSingleThreadExecutor(CheckInPipeline::daemonThread);
+        seating = Executors.newSingleThreadExecutor(CheckInPipeline::daemonThread);
+        flushTimer = Executors.newSingleThreadScheduledExecutor(CheckInPipeline::daemonThread);
+        done = new CompletableFuture<>();
+        
+        intake = new SubmissionPublisher<>(validating, bufferCapacity);
+        Validator validator = new Validator(batching, bufferCapacity);
+        Batcher batcher = new Batcher(seating, bufferCapacity, batchSize, maxBatchDelayMillis);
+        intake.subscribe(validator);
+        validator.subscribe(batcher);
+        batcher.subscribe(new Seater());
+    }
+    
+    /**
+     * Submits a check-in, waiting for room in the intake buffer if it is full.
+     * 
+     * @param checkIn request to process
+     * @throws IllegalStateException if the pipeline has been closed
+     */
+    public void submit(CheckIn checkIn)
+    {
+        intake.submit(checkIn);
+    }
+    
+    /**
+     * Submits a check-in only if there is room in the intake buffer.
+     * 
+     * @param checkIn request to process
+     * @return true if the check-in was accepted, false if the buffer was full
+     * @throws IllegalStateException if the pipeline has been closed
+     */
+    public boolean offer(CheckIn checkIn)
+    {
+        return intake.offer(checkIn, null) >= 0;
+    }
+    
+    /**
+     * Returns the number of check-ins waiting in the intake buffer.
+     * 
+     * @return estimated number of buffered check-ins
+     */
+    public int pending()
+    {
+        return intake.estimateMaximumLag();
+    }
+    
+    /**
+     * Stops accepting check-ins, waits until every check-in already submitted 
+     * has been seated, waitlisted or rejected, and then shuts down the 
+     * pipeline's threads.
+     */
+    @Override
+    public void close()
+    {
+        intake.close();
+        try 
+        {
+            done.get();
+        }
+        catch (InterruptedException e) 
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) 
+        {
+            throw new IllegalStateException("Seating stage failed.", e.getCause());
+        }
+        finally
+        {
+            flushTimer.shutdownNow();
+            validating.shutdownNow();
+            batching.shutdownNow();
+            seating.shutdownNow();
+            restaurant.removeListener(rotation);
+        }
+    }
+    
+    private static Thread daemonThread(Runnable r)
+    {
+        Thread t = new Thread(r, "check-in-pipeline");
+        t.setDaemon(true);
+        return t;
+    }
+    
+    /**
+     * Validation stage: turns CheckIns into Customers.
+     */
+    private class Validator extends SubmissionPublisher<Customer> 
+            implements Flow.Processor<CheckIn, Customer>
+    {
+        private Flow.Subscription upstream;
+        
+        Validator(ExecutorService next, int bufferCapacity)
+        {
+            super(next, bufferCapacity);
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            upstream = subscription;
+            upstream.request(1);
+        }
+        
+        @Override
+        public void onNext(CheckIn checkIn)
+        {
+            Customer customer = null;
+            try 
+            {
+                customer = new Customer(checkIn.name, checkIn.size, checkIn.reservation);
+            }
+            catch (IllegalArgumentException e) 
+            {
+                listener.rejected(checkIn, e.getMessage());
+            }
+            // submit blocks while the batcher's buffer is full, which in turn 
+            // stops this stage from requesting more from the intake
+            if (customer != null) submit(customer);
+            upstream.request(1);
+        }
+        
+        @Override
+        public void onError(Throwable error)
+        {
+            closeExceptionally(error);
+        }
+        
+        @Override
+        public void onComplete()
+        {
+            close();
+        }
+    }
+    
+    /**
+     * Batching stage: groups Customers into lists of up to batchSize.
+     */
+    private class Batcher extends SubmissionPublisher<List<Customer>> 
+            implements Flow.Processor<Customer, List<Customer>>
+    {
+        private final int batchSize;
+        private final long maxDelayMillis;
+        private Flow.Subscription upstream;
+        private List<Customer> batch;
+        private ScheduledFuture<?> pendingFlush;
+        
+        Batcher(ExecutorService next, int bufferCapacity, int batchSize, long maxDelayMillis)
+        {
+            super(next, bufferCapacity);
+            this.batchSize = batchSize;
+            this.maxDelayMillis = maxDelayMillis;
+            batch = new ArrayList<>(batchSize);
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            upstream = subscription;
+            upstream.request(batchSize);
+        }
+        
+        @Override
+        public synchronized void onNext(Customer customer)
+        {
+            batch.add(customer);
+            if (batch.size() >= batchSize) flush();
+            else if (pendingFlush == null) 
+                pendingFlush = flushTimer.schedule(this::timedFlush, maxDelayMillis, 
+                        TimeUnit.MILLISECONDS);
+        }
+        
+        @Override
+        public synchronized void onError(Throwable error)
+        {
+            closeExceptionally(error);
+        }
+        
+        @Override
+        public synchronized void onComplete()
+        {
+            if (!batch.isEmpty()) flush();
+            close();
+        }
+        
+        private synchronized void timedFlush()
+        {
+            pendingFlush = null;
+            if (!batch.isEmpty()) flush();
+        }
+        
+        /**
+         * Passes the current batch on (waiting for room downstream if needed) 
+         * and requests as many customers as were sent.
+         */
+        private void flush()
+        {
+            if (pendingFlush != null)
+            {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            List<Customer> full = batch;
+            batch = new ArrayList<>(batchSize);
+            submit(full);
+            upstream.request(full.size());
+        }
+    }
+    
+    /**
+     * Seating stage: the single writer that applies batches to the restaurant.
+     */
+    private class Seater implements Flow.Subscriber<List<Customer>>
+    {
+        private Flow.Subscription upstream;
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            upstream = subscription;
+            upstream.request(1);
+        }
+        
+        @Override
+        public void onNext(List<Customer> batch)
+        {
+            for (Customer customer : batch)
+            {
+                Table table = rotation.pickTable(restaurant.getAvailTables(customer.getSize()));
+                if (table != null && table.seat(customer))
+                    listener.seated(customer, table);
+                else
+                {
+                    restaurant.getWaitlist().add(customer);
+                    listener.waitlisted(customer);
+                }
+            }
+            restaurant.publish(); // let display boards see the whole batch at once
+            upstream.request(1);
+        }
+        
+        @Override
+        public void onError(Throwable error)
+        {
+            done.completeExceptionally(error);
+        }
+        
+        @Override
+        public void onComplete()
+        {
+            done.complete(null);
+        }
+    }
+}
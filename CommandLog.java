@@ -0,0 +1,389 @@
+package restaurant;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Makes changes to a restaurant's tables and waitlist in a way that can be 
+ * undone and redone. Each method records the change as a command that knows 
+ * how to reverse itself, so mistakes such as deleting the wrong patron can be 
+ * recovered from.
+ * <p>
+ * Commands store only what they need to reverse themselves - a table's 
+ * previous status and occupant, or a waitlist entry's position - so each step 
+ * of history costs a constant amount of memory, plus whatever waitlist nodes 
+ * are kept alive by the Waitlist's structural sharing. All changes that should 
+ * be undoable must go through this log: undoing a step after the restaurant 
+ * has been changed some other way can leave it in an unexpected state.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class CommandLog 
+{
+    /**
+     * Reversible change. apply() may be called again after revert() to redo it.
+     */
+    interface Command
+    {
+        boolean apply();
+        void revert();
+        String describe();
+    }
+    
+    private final Waitlist waitlist;
+    private final int maxHistory;
+    private final Deque<Command> undoStack;
+    private final Deque<Command> redoStack;
+    
+    /**
+     * Creates an empty log for the given restaurant that remembers up to 100 
+     * steps.
+     * 
+     * @param restaurant Restaurant whose changes are recorded
+     */
+    public CommandLog(Restaurant restaurant)
+    {
+        this(restaurant, 100);
+    }
+    
+    /**
+     * Creates an empty log for the given restaurant that remembers up to the 
+     * given number of steps.
+     * 
+     * @param restaurant Restaurant whose changes are recorded
+     * @param maxHistory maximum number of steps that can be undone
+     * @throws IllegalArgumentException if maxHistory is less than 1
+     */
+    public CommandLog(Restaurant restaurant, int maxHistory)
+    {
+        if (maxHistory < 1) throw new IllegalArgumentException("Must remember"
+                + " at least one step.");
+        
+        waitlist = restaurant.getWaitlist();
+        this.maxHistory = maxHistory;
+        undoStack = new ArrayDeque<>();
+        redoStack = new ArrayDeque<>();
+    }
+    
+    /**
+     * Seats the given customer at the given table. See Table.seat.
+     * 
+     * @param table Table to seat the customer at
+     * @param customer Customer to be seated
+     * @return true if successful, false otherwise
+     */
+    public boolean seat(Table table, Customer customer)
+    {
+        return execute(new Seat(table, customer));
+    }
+    
+    /**
+     * Removes the given table's occupant. See Table.vacate.
+     * 
+     * @param table Table to vacate
+     * @return true if successful, false otherwise
+     */
+    public boolean vacate(Table table)
+    {
+        return execute(new Vacate(table));
+    }
+    
+    /**
+     * Updates the given table's status. See Table.setStatus.
+     * 
+     * @param table Table to update
+     * @param newStatus integer between 0 and 5 inclusive
+     * @return true if successful, false otherwise
+     */
+    public boolean setStatus(Table table, int newStatus)
+    {
+        return execute(new SetStatus(table, newStatus));
+    }
+    
+    /**
+     * Adds a customer to the waitlist. See Waitlist.add.
+     * 
+     * @param customer Customer to be added
+     * @return true if successful
+     */
+    public boolean addToWaitlist(Customer customer)
+    {
+        return execute(new AddToWaitlist(customer));
+    }
+    
+    /**
+     * Removes a customer from the waitlist. See Waitlist.remove.
+     * 
+     * @param partyName name or ID of a Customer in the waitlist
+     * @return true if successful, false otherwise
+     */
+    public boolean removeFromWaitlist(String partyName)
+    {
+        return execute(new RemoveFromWaitlist(partyName));
+    }
+    
+    /**
+     * Removes a customer from the waitlist and seats them at the given table, 
+     * as a single step. If they cannot be seated, they are left on the waitlist.
+     * 
+     * @param table Table to seat the customer at
+     * @param partyName name or ID of a Customer in the waitlist
+     * @return true if successful, false otherwise
+     */
+    public boolean seatFromWaitlist(Table table, String partyName)
+    {
+        Customer customer = waitlist.find(partyName);
+        if (customer == null) return false;
+        return execute(new Composite(new RemoveFromWaitlist(partyName), new Seat(table, customer)));
+    }
+    
+    /**
+     * Returns whether there is a step that can be undone.
+     * 
+     * @return true if undo would do something
+     */
+    public boolean canUndo()
+    {
+        return !undoStack.isEmpty();
+    }
+    
+    /**
+     * Returns whether there is an undone step that can be redone.
+     * 
+     * @return true if redo would do something
+     */
+    public boolean canRedo()
+    {
+        return !redoStack.isEmpty();
+    }
+    
+    /**
+     * Reverses the most recent step.
+     * 
+     * @return description of the step that was undone, or null if there was 
+     * nothing to undo
+     */
+    public String undo()
+    {
+        Command command = undoStack.pollFirst();
+        if (command == null) return null;
+        
+        command.revert();
+        redoStack.addFirst(command);
+        return command.describe();
+    }
+    
+    /**
+     * Repeats the most recently undone step.
+     * 
+     * @return description of the step that was redone, or null if there was 
+     * nothing to redo or it could no longer be applied
+     */
+    public String redo()
+    {
+        Command command = redoStack.pollFirst();
+        if (command == null) return null;
+        
+        if (!command.apply())
+        {
+            redoStack.clear();
+            return null;
+        }
+        undoStack.addFirst(command);
+        return command.describe();
+    }
+    
+    /**
+     * Applies a command and, if it succeeds, records it for undo and forgets 
+     * anything that had been undone.
+     */
+    private boolean execute(Command command)
+    {
+        if (!command.apply()) return false;
+        
+        undoStack.addFirst(command);
+        if (undoStack.size() > maxHistory) undoStack.removeLast();
+        redoStack.clear();
+        return true;
+    }
+    
+    private static final class Seat implements Command
+    {
+        private final Table table;
+        private final Customer customer;
+        
+        Seat(Table table, Customer customer)
+        {
+            this.table = table;
+            this.customer = customer;
+        }
+        
+        public boolean apply()
+        {
+            return table.seat(customer);
+        }
+        
+        public void revert()
+        {
+            table.restore(null, 0);
+        }
+        
+        public String describe()
+        {
+            return "seat " + customer + " at Table " + table.getLabel();
+        }
+    }
+    
+    private static final class Vacate implements Command
+    {
+        private final Table table;
+        private Customer previousOccupant;
+        private int previousStatus;
+        
+        Vacate(Table table)
+        {
+            this.table = table;
+        }
+        
+        public boolean apply()
+        {
+            previousOccupant = table.getOccupant();
+            previousStatus = table.getStatus();
+            return table.vacate();
+        }
+        
+        public void revert()
+        {
+            table.restore(previousOccupant, previousStatus);
+        }
+        
+        public String describe()
+        {
+            return "remove " + previousOccupant + " from Table " + table.getLabel();
+        }
+    }
+    
+    private static final class SetStatus implements Command
+    {
+        private final Table table;
+        private final int newStatus;
+        private int previousStatus;
+        
+        SetStatus(Table table, int newStatus)
+        {
+            this.table = table;
+            this.newStatus = newStatus;
+        }
+        
+        public boolean apply()
+        {
+            previousStatus = table.getStatus();
+            return table.setStatus(newStatus);
+        }
+        
+        public void revert()
+        {
+            table.restore(table.getOccupant(), previousStatus);
+        }
+        
+        public String describe()
+        {
+            return "change the status of Table " + table.getLabel();
+        }
+    }
+    
+    private final class AddToWaitlist implements Command
+    {
+        private final Customer customer;
+        private long key = -1;
+        
+        AddToWaitlist(Customer customer)
+        {
+            this.customer = customer;
+        }
+        
+        public boolean apply()
+        {
+            // the first time, the customer goes to the back of their tier; 
+            // on redo they go back to the same place
+            if (key < 0) key = waitlist.addEntry(customer);
+            else waitlist.restoreEntry(key, customer);
+            return true;
+        }
+        
+        public void revert()
+        {
+            waitlist.removeEntry(key);
+        }
+        
+        public String describe()
+        {
+            return "add " + customer + " to the waitlist";
+        }
+    }
+    
+    private final class RemoveFromWaitlist implements Command
+    {
+        private final String partyName;
+        private Customer removed;
+        private long key;
+        
+        RemoveFromWaitlist(String partyName)
+        {
+            this.partyName = partyName;
+        }
+        
+        public boolean apply()
+        {
+            key = waitlist.keyOf(partyName);
+            if (key < 0) return false;
+            removed = waitlist.removeEntry(key);
+            return true;
+        }
+        
+        public void revert()
+        {
+            waitlist.restoreEntry(key, removed);
+        }
+        
+        public String describe()
+        {
+            return "remove " + removed + " from the waitlist";
+        }
+    }
+    
+    /**
+     * Two commands applied as one step. If the second fails, the first is 
+     * reverted.
+     */
+    private static final class Composite implements Command
+    {
+        private final Command first, second;
+        
+        Composite(Command first, Command second)
+        {
+            this.first = first;
+            this.second = second;
+        }
+        
+        public boolean apply()
+        {
+            if (!first.apply()) return false;
+            if (second.apply()) return true;
+            first.revert();
+            return false;
+        }
+        
+        public void revert()
+        {
+            second.revert();
+            first.revert();
+        }
+        
+        public String describe()
+        {
+            return second.describe();
+        }
+    }
+}
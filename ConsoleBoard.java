@@ -0,0 +1,180 @@
+package restaurant;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Full-screen, live view of a restaurant's tables and waitlist for the
+ * console. The tables are listed in a pane on the left and the waitlist, in
+ * order, in a pane on the right, under a header with the restaurant's totals.
+ * <p>
+ * The board draws from the restaurant's published snapshots (see
+ * Restaurant.publish). A background thread redraws it whenever a new snapshot
+ * appears while the user is typing a command, so changes published by other
+ * threads - a CheckInPipeline or ReplicationFollower, for example - show up
+ * as they happen. Each frame is drawn into a Screen, which sends only what
+ * has changed since the last frame.
+ * <p>
+ * The prompt is kept off the bottom line, so that the newline the terminal
+ * echoes when a command is entered never scrolls the screen; the line the
+ * command was typed on is resent with the next frame.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ConsoleBoard
+{
+    private static final long REFRESH_INTERVAL = 250; // milliseconds between checks for changes
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm");
+    private static final String PROMPT = "Enter n/p for the next/previous page of tables, "
+            + "r to redraw, or q to return: ";
+    
+    private final Restaurant restaurant;
+    private final Screen screen;
+    private int page;                       // page of the tables pane; guarded by this
+    private String message = "";            // guarded by this
+    private volatile boolean running;
+    
+    /**
+     * Creates a board for the given restaurant that draws on the given screen.
+     * 
+     * @param restaurant Restaurant to show
+     * @param screen terminal to draw on, which must have at least 6 rows
+     * @throws IllegalArgumentException if the screen is too small
+     */
+    public ConsoleBoard(Restaurant restaurant, Screen screen)
+    {
+        if (screen.getRows() < 6) throw new IllegalArgumentException("Screen must have "
+                + "at least 6 rows.");
+        this.restaurant = restaurant;
+        this.screen = screen;
+    }
+    
+    /**
+     * Shows the board until the user enters q. This publishes a snapshot 
+     * first, so it should be called on the thread that changes the restaurant; 
+     * changes made by other threads then appear as soon as they are published.
+     * 
+     * @param in reader for the user's commands
+     * @throws java.util.NoSuchElementException if the input ends
+     */
+    public void run(ConsoleReader in)
+    {
+        screen.begin();
+        running = true;
+        Thread refresher = new Thread(this::refreshLoop, "console-board");
+        refresher.setDaemon(true);
+        try
+        {
+            restaurant.publish();
+            draw(true);
+            refresher.start();
+            while (command(in.readLine())) draw(true);
+        }
+        finally
+        {
+            running = false;
+            refresher.interrupt();
+            screen.end();
+        }
+    }
+    
+    /**
+     * Carries out a command typed at the prompt.
+     * 
+     * @return false if the command was to quit
+     */
+    private synchronized boolean command(String command)
+    {
+        screen.invalidate(screen.getRows() - 2); // holds the echo of the command
+        message = "";
+        if (command.equalsIgnoreCase("q") || command.equalsIgnoreCase("quit")) return false;
+        else if (command.equalsIgnoreCase("n")) page++;
+        else if (command.equalsIgnoreCase("p")) page = Math.max(0, page - 1);
+        else if (command.equalsIgnoreCase("r")) screen.invalidate();
+        else if (!command.isEmpty()) message = "Unknown command \"" + command + "\".";
+        return true;
+    }
+    
+    /**
+     * Draws the latest snapshot and sends the changes to the terminal.
+     * 
+     * @param atPrompt true to leave the cursor at the start of the prompt
+     * (after a command has been entered), false to leave it where it is
+     */
+    private synchronized void draw(boolean atPrompt)
+    {
+        RestaurantSnapshot snapshot = restaurant.getSnapshot();
+        int rows = screen.getRows(), cols = screen.getCols();
+        int paneRows = rows - 4;
+        int tablesWidth = Math.min(Math.max(cols * 3 / 5, 40), cols);
+        
+        // Header
+        Waitlist waitlist = snapshot.getWaitlist();
+        screen.print(0, 0, cols, restaurant.getName().toUpperCase() + "   "
+                + snapshot.numOccupied() + " of " + snapshot.numTables() + " tables occupied, "
+                + snapshot.getSeatedCovers() + " seated, " + waitlist.length() + " waiting   "
+                + LocalTime.now().format(CLOCK));
+        
+        // Tables pane
+        int pages = Math.max(1, (snapshot.numTables() + paneRows - 1) / paneRows);
+        page = Math.min(page, pages - 1);
+        screen.print(1, 0, tablesWidth, "TABLES" + ((pages > 1) ? " (page " + (page + 1)
+                + " of " + pages + ")" : ""));
+        for (int r = 0; r < paneRows; r++)
+        {
+            int i = page * paneRows + r;
+            screen.print(2 + r, 0, tablesWidth,
+                    (i < snapshot.numTables()) ? snapshot.describeTable(i) : "");
+        }
+        
+        // Waitlist pane, with the last line saved for a count of the rest
+        int waitCol = tablesWidth + 2, waitWidth = cols - waitCol;
+        screen.print(1, tablesWidth, 2, "|");
+        screen.print(1, waitCol, waitWidth, "WAITLIST");
+        Customer[] front = waitlist.peek(paneRows);
+        int shown = (front.length < waitlist.length()) ? paneRows - 1 : front.length;
+        for (int r = 0; r < paneRows; r++)
+        {
+            String line;
+            if (r < shown) line = (r + 1) + ". " + front[r];
+            else if (r == shown && shown < waitlist.length())
+                line = "... and " + (waitlist.length() - shown) + " more";
+            else line = "";
+            screen.print(2 + r, tablesWidth, 2, "|");
+            screen.print(2 + r, waitCol, waitWidth, line);
+        }
+        
+        screen.print(rows - 2, 0, cols, PROMPT);
+        screen.print(rows - 1, 0, cols, message);
+        if (atPrompt) screen.setCursor(rows - 2, Math.min(PROMPT.length(), cols - 1));
+        screen.flush();
+    }
+    
+    /**
+     * Background thread: redraws the board when a new snapshot is published
+     * (or the clock in the header changes).
+     */
+    private void refreshLoop()
+    {
+        RestaurantSnapshot last = restaurant.getSnapshot();
+        String lastTime = LocalTime.now().format(CLOCK);
+        while (running)
+        {
+            try
+            {
+                Thread.sleep(REFRESH_INTERVAL);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            RestaurantSnapshot snapshot = restaurant.getSnapshot();
+            String time = LocalTime.now().format(CLOCK);
+            if (snapshot == last && time.equals(lastTime)) continue;
+            last = snapshot;
+            lastTime = time;
+            if (running) draw(false);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package restaurant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Line-oriented reader for RestaurantSystem's prompts, used in place of 
+ * java.util.Scanner. Input is read in large blocks and decoded as UTF-8 into 
+ * a reusable character buffer, one line at a time, with leading and trailing 
+ * whitespace removed. The current line can then be tested (isEmpty, isInt, 
+ * equalsIgnoreCase) without creating any objects; a String is only created 
+ * when the caller asks for one with readLine or toString.
+ * <p>
+ * This makes the reader fast enough to process piped or scripted input at 
+ * millions of lines per second, and it does no locking, so it should only be 
+ * used by one thread.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ConsoleReader implements Closeable
+{
+    private static final char REPLACEMENT = '\uFFFD'; // for bytes that are not valid UTF-8
+    
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position, limit;
+    private boolean endOfInput;
+    
+    private char[] line;   // current line, trimmed
+    private int lineLength;
+    
+    /**
+     * Creates a reader for the given stream.
+     * 
+     * @param in stream to read from, such as System.in
+     */
+    public ConsoleReader(InputStream in)
+    {
+        this.in = in;
+        buffer = new byte[1 << 16];
+        line = new char[256];
+    }
+    
+    /**
+     * Advances to the next line of input.
+     * 
+     * @return true if there was another line, false at the end of the input
+     */
+    public boolean hasNext()
+    {
+        if (position == limit && !fill()) return false;
+        
+        lineLength = 0;
+        while (true)
+        {
+            if (position == limit && !fill()) break;
+            byte b = buffer[position++];
+            if (b == '\n') break;
+            if (b >= 0) append((char) b);
+            else decodeMultibyte(b);
+        }
+        trim();
+        return true;
+    }
+    
+    /**
+     * Advances to the next line of input.
+     * 
+     * @throws NoSuchElementException if there is no more input
+     */
+    public void next()
+    {
+        if (!hasNext()) throw new NoSuchElementException("No more input.");
+    }
+    
+    /**
+     * Advances to the next line of input and returns it.
+     * 
+     * @return the line, without leading or trailing whitespace
+     * @throws NoSuchElementException if there is no more input
+     */
+    public String readLine()
+    {
+        next();
+        return toString();
+    }
+    
+    /**
+     * Skips the next line of input, such as after a "press enter to 
+     * continue" prompt.
+     * 
+     * @throws NoSuchElementException if there is no more input
+     */
+    public void skipLine()
+    {
+        if (position == limit && !fill()) throw new NoSuchElementException("No more input.");
+        while (true)
+        {
+            for (int i = position; i < limit; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    position = i + 1;
+                    lineLength = 0;
+                    return;
+                }
+            }
+            position = limit;
+            if (!fill()) break;
+        }
+        lineLength = 0;
+    }
+    
+    /**
+     * Returns whether the current line is empty.
+     * 
+     * @return true if the line was blank
+     */
+    public boolean isEmpty()
+    {
+        return lineLength == 0;
+    }
+    
+    /**
+     * Returns whether the current line is a decimal integer, optionally 
+     * preceded by a minus sign, that fits in an int.
+     * 
+     * @return true if intValue can be called
+     */
+    public boolean isInt()
+    {
+        if (lineLength == 0) return false;
+        int start = (line[0] == '-') ? 1 : 0;
+        if (start == lineLength || lineLength - start > 10) return false;
+        
+        long value = 0;
+        for (int i = start; i < lineLength; i++)
+        {
+            char ch = line[i];
+            if (ch < '0' || ch > '9') return false;
+            value = value * 10 + (ch - '0');
+        }
+        return (start == 0) ? value <= Integer.MAX_VALUE : -value >= Integer.MIN_VALUE;
+    }
+    
+    /**
+     * Returns the current line as an integer.
+     * 
+     * @return value of the line
+     * @throws NumberFormatException if isInt would return false
+     */
+    public int intValue()
+    {
+        if (!isInt()) throw new NumberFormatException("\"" + this + "\" is not a number.");
+        int start = (line[0] == '-') ? 1 : 0;
+        int value = 0;
+        for (int i = start; i < lineLength; i++) value = value * 10 - (line[i] - '0');
+        return (start == 0) ? -value : value;
+    }
+    
+    /**
+     * Compares the current line to the given string, ignoring case.
+     * 
+     * @param s string to compare with
+     * @return true if the line matches
+     */
+    public boolean equalsIgnoreCase(String s)
+    {
+        if (s.length() != lineLength) return false;
+        for (int i = 0; i < lineLength; i++)
+        {
+            char a = line[i], b = s.charAt(i);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b) 
+                    && Character.toUpperCase(a) != Character.toUpperCase(b)) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the current line.
+     * 
+     * @return the line, without leading or trailing whitespace
+     */
+    @Override
+    public String toString()
+    {
+        return new String(line, 0, lineLength);
+    }
+    
+    /**
+     * Closes the underlying stream.
+     */
+    @Override
+    public void close()
+    {
+        try 
+        {
+            in.close();
+        }
+        catch (IOException e) 
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Reads the next block of input into the buffer.
+     * 
+     * @return false if there is no more input
+     */
+    private boolean fill()
+    {
+        if (endOfInput) return false;
+        try 
+        {
+            int n = in.read(buffer);
+            if (n <= 0)
+            {
+                endOfInput = n < 0;
+                position = limit = 0;
+                return !endOfInput && fill();
+            }
+            position = 0;
+            limit = n;
+            return true;
+        }
+        catch (IOException e) 
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void append(char ch)
+    {
+        if (lineLength == line.length) line = Arrays.copyOf(line, lineLength * 2);
+        line[lineLength++] = ch;
+    }
+    
+    /**
+     * Decodes a UTF-8 sequence that starts with the given (non-ASCII) byte. 
+     * Invalid sequences - including overlong encodings, surrogates and code 
+     * points past U+10FFFF - are replaced with U+FFFD.
+     */
+    private void decodeMultibyte(byte first)
+    {
+        int extra, codePoint, min;
+        if ((first & 0xE0) == 0xC0) { extra = 1; codePoint = first & 0x1F; min = 0x80; }
+        else if ((first & 0xF0) == 0xE0) { extra = 2; codePoint = first & 0x0F; min = 0x800; }
+        else if ((first & 0xF8) == 0xF0) { extra = 3; codePoint = first & 0x07; min = 0x10000; }
+        else
+        {
+            append(REPLACEMENT);
+            return;
+        }
+        
+        for (int i = 0; i < extra; i++)
+        {
+            if (position == limit && !fill()) 
+            {
+                append(REPLACEMENT);
+                return;
+            }
+            byte b = buffer[position];
+            if ((b & 0xC0) != 0x80)
+            {
+                append(REPLACEMENT);
+                return;
+            }
+            position++;
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE))
+            append(REPLACEMENT);
+        else if (codePoint >= 0x10000)
+        {
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+        }
+        else append((char) codePoint);
+    }
+    
+    /**
+     * Removes leading and trailing whitespace (including the '\r' of Windows 
+     * line endings) from the current line.
+     */
+    private void trim()
+    {
+        int end = lineLength;
+        while (end > 0 && line[end - 1] <= ' ') end--;
+        int start = 0;
+        while (start < end && line[start] <= ' ') start++;
+        if (start > 0) System.arraycopy(line, start, line, 0, end - start);
+        lineLength = end - start;
+    }
+}
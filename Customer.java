@@ -1,18 +1,24 @@
 package restaurant;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Restaurant patron or party of patrons. Stores the party's name (or other 
- * unique identifier - the ID of a coaster pager, for instance), size, and 
- * whether they have a reservation.
+ * unique identifier - the ID of a coaster pager, for instance), size, 
+ * whether they have a reservation, and any table features (TableAttributes) 
+ * they would like.
  * 
  * @author Katie Woods
  * @version 1.0
  */
 public class Customer 
 {
-    private String name;
-    private int size;
-    private boolean reservation;
+    private final String name;
+    private final int size;
+    private final boolean reservation;
+    private final int preferences; // TableAttribute bits
+    private final String display;  // toString, built once since nothing above can change
     
     /**
      * Creates a customer with the specified characteristics.
@@ -24,6 +30,23 @@ public class Customer
      * @throws IllegalArgumentException if partyName is null or partySize is less than 1
      */
     public Customer(String partyName, int partySize, boolean hasReservation)
+    {
+        this(partyName, partySize, hasReservation, null);
+    }
+    
+    /**
+     * Creates a customer with the specified characteristics who would like a 
+     * table with the given features.
+     * 
+     * @param partyName name of customer, or other ID unique to this customer
+     * @param partySize number of people in the group
+     * @param hasReservation true if the customer has a reservation, false otherwise
+     * @param preferences table attributes the customer asked for, or null if none
+     * 
+     * @throws IllegalArgumentException if partyName is null or partySize is less than 1
+     */
+    public Customer(String partyName, int partySize, boolean hasReservation, 
+            Set<TableAttribute> preferences)
     {
         if (partySize < 1) throw new IllegalArgumentException("There must be at"
                 + " least one person in the party.");
@@ -33,6 +56,8 @@ public class Customer
         name = partyName;
         size = partySize;
         reservation = hasReservation;
+        this.preferences = TableAttribute.mask(preferences);
+        display = name + " (" + (reservation? "R, " : "") + "party of " + size + ")";
     }
     
     /**
@@ -65,16 +90,37 @@ public class Customer
         return reservation;
     }
     
+    /**
+     * Returns the table features the customer asked for.
+     * 
+     * @return new set of preferred attributes, which is empty if there are none
+     */
+    public EnumSet<TableAttribute> getPreferences()
+    {
+        return TableAttribute.fromMask(preferences);
+    }
+    
+    /**
+     * Returns the customer's preferences as a bit mask.
+     * 
+     * @return mask of TableAttribute bits
+     */
+    int getPreferenceMask()
+    {
+        return preferences;
+    }
+    
     /**
      * Generates a string representing the customer. The string's format is 
      * "[ID] (party of [size])", with an optional "R" appearing before the party 
-     * size if the customer had a reservation.
+     * size if the customer had a reservation. Customers never change, so the 
+     * string is built once, when the customer is created.
      * 
      * @return string in the given format
      */
     @Override
     public String toString()
     {
-        return name + " (" + (reservation? "R, " : "") + "party of " + size + ")";
+        return display;
     }
 }
@@ -0,0 +1,65 @@
+package restaurant;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * NotificationSender that appends each notification to a local text file 
+ * instead of contacting guests, for testing and for restaurants without a 
+ * messaging service. Each line holds the time, the party's name, the kind of 
+ * notification, and its message, separated by tabs.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class FileNotificationSender implements NotificationSender, Closeable
+{
+    private final BufferedWriter out;
+    
+    /**
+     * Creates a sender that appends to the given file, creating it if needed.
+     * 
+     * @param file file to write notifications to
+     * @throws IOException if the file cannot be opened
+     */
+    public FileNotificationSender(Path file) throws IOException
+    {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, 
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    
+    @Override
+    public void send(List<NotificationDispatcher.Notification> batch) throws IOException
+    {
+        for (NotificationDispatcher.Notification n : batch)
+        {
+            out.write(Instant.ofEpochMilli(n.getTime()).toString());
+            out.write('\t');
+            out.write(n.getCustomer().getName());
+            out.write('\t');
+            out.write(n.getKind().name());
+            out.write('\t');
+            out.write(n.getMessage());
+            out.newLine();
+        }
+        out.flush(); // one write to the file per batch
+    }
+    
+    /**
+     * Closes the file.
+     * 
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+}
@@ -0,0 +1,264 @@
+package restaurant;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a restaurant's layout from a floor plan file. Floor plans are plain 
+ * text, with one declaration per line; blank lines and lines starting with # 
+ * are ignored. For example:
+ * <pre>
+ * # Lakeside Grill
+ * name Lakeside Grill
+ * tables 4
+ * A1 2 section=Patio attributes=patio
+ * A2 2 section=Patio adjacent=A1 attributes=patio,accessible
+ * B1 6 section=Main attributes=booth,window
+ * B2 4 section=Main adjacent=B1,A2
+ * </pre>
+ * The optional name line gives the restaurant's name. The tables line gives 
+ * the number of tables and must come before the first table. Each table line 
+ * starts with the table's label and capacity, followed by any of these 
+ * optional fields:
+ * <ul>
+ * <li>section=[name] - section of the restaurant containing the table
+ * <li>adjacent=[label],[label],... - tables next to this one, which must 
+ * have been declared on earlier lines (adjacency is symmetric, so a table 
+ * does not need to list tables declared after it)
+ * <li>attributes=[attribute],[attribute],... - features of the table, from 
+ * booth, patio, window and accessible (see TableAttribute)
+ * </ul>
+ * Labels and section names cannot contain whitespace or commas. A floor plan 
+ * can have at most MAX_TABLES tables, each seating at most MAX_CAPACITY.
+ * <p>
+ * The file is read in a single pass: each table is validated and placed 
+ * directly into the restaurant's table array as its line is read, so large 
+ * floor plans load in time proportional to the size of the file.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public final class FloorPlanLoader 
+{
+    /** Largest number of tables a floor plan can declare. */
+    public static final int MAX_TABLES = 100_000;
+    
+    /** Largest capacity a table in a floor plan can have. */
+    public static final int MAX_CAPACITY = 1000;
+    
+    private FloorPlanLoader() {}
+    
+    /**
+     * Reads the floor plan file at the given path and creates the restaurant 
+     * it describes.
+     * 
+     * @param file path to a floor plan file, encoded as UTF-8
+     * @return new Restaurant with the tables described in the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid floor plan
+     */
+    public static Restaurant load(Path file) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            return load(reader);
+        }
+    }
+    
+    /**
+     * Reads a floor plan and creates the restaurant it describes. The reader 
+     * is not closed.
+     * 
+     * @param source floor plan text
+     * @return new Restaurant with the tables described in the floor plan
+     * @throws IOException if the floor plan cannot be read
+     * @throws IllegalArgumentException if the text is not a valid floor plan, 
+     * with a message giving the line number of the problem
+     */
+    public static Restaurant load(Reader source) throws IOException
+    {
+        BufferedReader reader = (source instanceof BufferedReader) 
+                ? (BufferedReader) source : new BufferedReader(source);
+        
+        String name = null;
+        Table[] tables = null;
+        Map<String, Table> byLabel = null;
+        Map<String, String> sections = new HashMap<>(); // so tables share section names
+        int numTables = 0;
+        int lineNumber = 0;
+        
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            int start = skipSpace(line, 0);
+            if (start == line.length() || line.charAt(start) == '#') continue;
+            
+            int end = tokenEnd(line, start);
+            String keyword = line.substring(start, end);
+            if (keyword.equals("name") && tables == null)
+            {
+                name = line.substring(skipSpace(line, end)).trim();
+            }
+            else if (keyword.equals("tables") && tables == null)
+            {
+                int count = parseNumber(line, skipSpace(line, end), lineNumber, "table count");
+                if (count < 1) throw error(lineNumber, "Must have at least one table.");
+                if (count > MAX_TABLES) throw error(lineNumber, "Cannot have more than "
+                        + MAX_TABLES + " tables.");
+                tables = new Table[count];
+                byLabel = new HashMap<>(count * 4 / 3 + 1);
+            }
+            else
+            {
+                if (tables == null) throw error(lineNumber, "Expected \"name\" or "
+                        + "\"tables\" before the first table.");
+                if (numTables == tables.length) throw error(lineNumber, "More tables "
+                        + "than the " + tables.length + " declared.");
+                
+                Table table = parseTable(line, start, end, byLabel, sections, lineNumber);
+                if (byLabel.putIfAbsent(table.getLabel(), table) != null) 
+                    throw error(lineNumber, "Duplicate table label " + table.getLabel() + ".");
+                tables[numTables++] = table;
+            }
+        }
+        
+        if (tables == null) throw error(lineNumber, "Floor plan has no \"tables\" line.");
+        if (numTables != tables.length) throw error(lineNumber, "Expected " 
+                + tables.length + " tables but found " + numTables + ".");
+        return new Restaurant(name, tables);
+    }
+    
+    /**
+     * Parses a table line whose label runs from start to labelEnd.
+     */
+    private static Table parseTable(String line, int start, int labelEnd, 
+            Map<String, Table> byLabel, Map<String, String> sections, int lineNumber)
+    {
+        String label = line.substring(start, labelEnd);
+        int pos = skipSpace(line, labelEnd);
+        int capacity = parseNumber(line, pos, lineNumber, "capacity");
+        if (capacity < 1) throw error(lineNumber, "Table " + label + " must be "
+                + "able to seat at least one person.");
+        if (capacity > MAX_CAPACITY) throw error(lineNumber, "Table " + label + " cannot "
+                + "seat more than " + MAX_CAPACITY + " people.");
+        pos = skipSpace(line, tokenEnd(line, pos));
+        
+        // Optional fields; adjacency is applied once the table has been created
+        String section = null;
+        int adjacentStart = -1, adjacentEnd = -1;
+        EnumSet<TableAttribute> attributes = null;
+        while (pos < line.length())
+        {
+            int end = tokenEnd(line, pos);
+            int equals = line.indexOf('=', pos);
+            if (equals < 0 || equals >= end) throw error(lineNumber, "Expected "
+                    + "key=value but found \"" + line.substring(pos, end) + "\".");
+            
+            if (line.startsWith("section", pos) && equals == pos + 7)
+                section = sections.computeIfAbsent(line.substring(equals + 1, end), k -> k);
+            else if (line.startsWith("adjacent", pos) && equals == pos + 8)
+            {
+                adjacentStart = equals + 1;
+                adjacentEnd = end;
+            }
+            else if (line.startsWith("attributes", pos) && equals == pos + 10)
+                attributes = parseAttributes(line, equals + 1, end, lineNumber);
+            else throw error(lineNumber, "Unknown field \"" + line.substring(pos, equals) + "\".");
+            pos = skipSpace(line, end);
+        }
+        
+        Table table = new Table(label, capacity, section, attributes);
+        
+        // Link to each earlier table listed in adjacent=
+        int i = adjacentStart;
+        while (i >= 0 && i < adjacentEnd)
+        {
+            int comma = line.indexOf(',', i);
+            if (comma < 0 || comma > adjacentEnd) comma = adjacentEnd;
+            if (comma > i)
+            {
+                String other = line.substring(i, comma);
+                Table neighbor = byLabel.get(other);
+                if (neighbor == null) throw error(lineNumber, "Table " + label 
+                        + " is adjacent to undeclared table " + other + ".");
+                table.addAdjacent(neighbor);
+            }
+            i = comma + 1;
+        }
+        return table;
+    }
+    
+    /**
+     * Parses a comma-separated list of table attributes from start to end.
+     */
+    private static EnumSet<TableAttribute> parseAttributes(String line, int start, int end, 
+            int lineNumber)
+    {
+        EnumSet<TableAttribute> attributes = EnumSet.noneOf(TableAttribute.class);
+        int i = start;
+        while (i < end)
+        {
+            int comma = line.indexOf(',', i);
+            if (comma < 0 || comma > end) comma = end;
+            if (comma > i)
+            {
+                try
+                {
+                    attributes.add(TableAttribute.parse(line.substring(i, comma)));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw error(lineNumber, e.getMessage());
+                }
+            }
+            i = comma + 1;
+        }
+        return attributes;
+    }
+    
+    /**
+     * Parses a non-negative decimal integer token starting at pos.
+     */
+    private static int parseNumber(String line, int pos, int lineNumber, String what)
+    {
+        int end = tokenEnd(line, pos);
+        if (pos == end) throw error(lineNumber, "Missing " + what + ".");
+        
+        long value = 0;
+        for (int i = pos; i < end; i++)
+        {
+            char ch = line.charAt(i);
+            if (ch < '0' || ch > '9' || value > Integer.MAX_VALUE) 
+                throw error(lineNumber, "Invalid " + what + " \"" + line.substring(pos, end) + "\".");
+            value = value * 10 + (ch - '0');
+        }
+        if (value > Integer.MAX_VALUE) throw error(lineNumber, "Invalid " + what 
+                + " \"" + line.substring(pos, end) + "\".");
+        return (int) value;
+    }
+    
+    private static int skipSpace(String line, int pos)
+    {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) pos++;
+        return pos;
+    }
+    
+    private static int tokenEnd(String line, int pos)
+    {
+        while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) pos++;
+        return pos;
+    }
+    
+    private static IllegalArgumentException error(int lineNumber, String message)
+    {
+        return new IllegalArgumentException("Line " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,356 @@
+package restaurant;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * Kitchen ticket queue driven by table status. When a table moves to status 2
+ * (waiting for food), a ticket is opened for it at one of the kitchen's
+ * stations; when the table moves to status 3 (served), the ticket is
+ * completed. A table that reaches status 2 more than once during a visit (a
+ * later course) gets a new ticket for each course.
+ * <p>
+ * Each station orders its open tickets by age, with later courses held back
+ * by COURSE_OFFSET, so a table's first course is cooked before another table's
+ * dessert that was ordered a minute earlier, but no ticket waits forever.
+ * New tickets go to the station with the fewest open tickets unless a router
+ * is set (to send each section's tables to its own line, for example).
+ * <p>
+ * The queue also tracks how fast the kitchen is working: moving averages of
+ * the time from opening to completing a ticket and of the time between
+ * completions. From those and the number of open tickets it suggests how long
+ * the host should wait before seating another party, so that the dining room
+ * is not filled faster than the kitchen can cook for it.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class KitchenQueue implements RestaurantListener
+{
+    /** How far each course after the first is held back, in milliseconds. */
+    public static final long COURSE_OFFSET = 5 * 60_000L;
+    
+    /** Weight given to each new observation in the moving averages. */
+    public static final double ALPHA = 0.2;
+    
+    /**
+     * Order for one course for one table.
+     */
+    public static final class Ticket
+    {
+        private final Table table;
+        private final int course;
+        private final int covers;
+        private final int station;
+        private final long openedAt;
+        
+        private Ticket(Table table, int course, int covers, int station, long openedAt)
+        {
+            this.table = table;
+            this.course = course;
+            this.covers = covers;
+            this.station = station;
+            this.openedAt = openedAt;
+        }
+        
+        /**
+         * Returns the table the order is for.
+         * 
+         * @return Table object
+         */
+        public Table getTable()
+        {
+            return table;
+        }
+        
+        /**
+         * Returns which course of the table's visit this is.
+         * 
+         * @return 1 for the first course, 2 for the second, and so on
+         */
+        public int getCourse()
+        {
+            return course;
+        }
+        
+        /**
+         * Returns the number of people the order is for.
+         * 
+         * @return size of the party at the table
+         */
+        public int getCovers()
+        {
+            return covers;
+        }
+        
+        /**
+         * Returns the station the ticket was sent to.
+         * 
+         * @return index into getStations
+         */
+        public int getStation()
+        {
+            return station;
+        }
+        
+        /**
+         * Returns when the ticket was opened.
+         * 
+         * @return time in milliseconds since the epoch
+         */
+        public long getOpenedAt()
+        {
+            return openedAt;
+        }
+        
+        /**
+         * Returns the time used to order the ticket within its station.
+         */
+        private long priority()
+        {
+            return openedAt + (course - 1) * COURSE_OFFSET;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Table " + table.getLabel() + ", course " + course + ", " + covers
+                    + ((covers == 1) ? " cover" : " covers");
+        }
+    }
+    
+    private static final Comparator<Ticket> ORDER =
+            Comparator.comparingLong(Ticket::priority).thenComparingInt(t -> t.table.getIndex());
+    
+    private final Clock clock;
+    private final String[] stations;
+    private final PriorityQueue<Ticket>[] queues; // open tickets, by station
+    private final Ticket[] openByTable;           // by table index
+    private final int[] courses;                  // courses so far in each table's visit
+    private final int targetDepth;
+    private ToIntFunction<Table> router;
+    private int openTickets;
+    
+    private double averageTicketTime;   // milliseconds from open to complete; 0 = none yet
+    private double averageInterval;     // milliseconds between completions; 0 = none yet
+    private long intervalStart = -1;    // last completion, or when the kitchen became busy; -1 if idle
+    
+    /**
+     * Creates a queue with a single station and a target of 4 open tickets,
+     * using the system clock, and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose tables send tickets to the kitchen
+     */
+    public KitchenQueue(Restaurant restaurant)
+    {
+        this(restaurant, Clock.systemUTC(), 4, "Kitchen");
+    }
+    
+    /**
+     * Creates a queue with the given stations and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose tables send tickets to the kitchen
+     * @param clock clock used to time tickets
+     * @param targetDepthPerStation number of open tickets per station that the
+     * kitchen can handle without falling behind
+     * @param stations names of the kitchen's stations
+     * @throws IllegalArgumentException if there are no stations or the target
+     * depth is less than 1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public KitchenQueue(Restaurant restaurant, Clock clock, int targetDepthPerStation,
+            String... stations)
+    {
+        if (stations.length == 0) throw new IllegalArgumentException("Kitchen must "
+                + "have at least one station.");
+        if (targetDepthPerStation < 1) throw new IllegalArgumentException("Target "
+                + "depth must be at least 1.");
+        
+        this.clock = clock;
+        this.stations = stations.clone();
+        targetDepth = targetDepthPerStation * stations.length;
+        queues = new PriorityQueue[stations.length];
+        for (int i = 0; i < queues.length; i++) queues[i] = new PriorityQueue<>(ORDER);
+        
+        Table[] tables = restaurant.getAllTables();
+        openByTable = new Ticket[tables.length];
+        courses = new int[tables.length];
+        for (Table t : tables)
+        {
+            if (t.getStatus() == 2) open(t);
+        }
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Sets the function that chooses a station for each new ticket.
+     * 
+     * @param router returns a station index for a table, or null to send each
+     * ticket to the station with the fewest open tickets (as are tickets for 
+     * which the router returns an index that is out of range)
+     */
+    public void setRouter(ToIntFunction<Table> router)
+    {
+        this.router = router;
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        int i = table.getIndex();
+        if (table.getOccupant() != oldOccupant) courses[i] = 0; // new visit
+        
+        int status = table.getStatus();
+        if (status == oldStatus) return;
+        if (oldStatus == 2 && openByTable[i] != null) close(i, status == 3);
+        if (status == 2) open(table);
+    }
+    
+    /**
+     * Returns the names of the kitchen's stations.
+     * 
+     * @return array of station names
+     */
+    public String[] getStations()
+    {
+        return stations.clone();
+    }
+    
+    /**
+     * Returns the ticket that the given station should work on next.
+     * 
+     * @param station index into getStations
+     * @return oldest open ticket (adjusted for course), or null if there are none
+     */
+    public Ticket nextTicket(int station)
+    {
+        return queues[station].peek();
+    }
+    
+    /**
+     * Returns the open tickets at the given station, in the order they should
+     * be worked on.
+     * 
+     * @param station index into getStations
+     * @return array of tickets, which is empty if there are none
+     */
+    public Ticket[] getTickets(int station)
+    {
+        Ticket[] tickets = queues[station].toArray(new Ticket[0]);
+        Arrays.sort(tickets, ORDER);
+        return tickets;
+    }
+    
+    /**
+     * Returns the number of open tickets in the whole kitchen.
+     * 
+     * @return queue depth
+     */
+    public int queueDepth()
+    {
+        return openTickets;
+    }
+    
+    /**
+     * Returns the number of open tickets at one station.
+     * 
+     * @param station index into getStations
+     * @return queue depth of that station
+     */
+    public int queueDepth(int station)
+    {
+        return queues[station].size();
+    }
+    
+    /**
+     * Returns the average time from opening a ticket to serving it.
+     * 
+     * @return time in milliseconds, or 0 if no ticket has been completed
+     */
+    public long getAverageTicketTime()
+    {
+        return Math.round(averageTicketTime);
+    }
+    
+    /**
+     * Returns the rate at which the kitchen has recently been completing tickets.
+     * 
+     * @return tickets per hour while the kitchen has had tickets open, or 0 
+     * if none have been completed
+     */
+    public double getThroughput()
+    {
+        return (averageInterval == 0) ? 0 : 3_600_000 / averageInterval;
+    }
+    
+    /**
+     * Returns how long the host should wait before seating another party.
+     * While the kitchen has fewer open tickets than its target, this is 0 
+     * (as it is until the first ticket has been served, since the kitchen's 
+     * pace is not yet known).
+     * Beyond that, each extra ticket adds one average interval between
+     * completions, which is roughly how long the kitchen needs to get back to
+     * its target.
+     * 
+     * @return suggested delay in milliseconds
+     */
+    public long getPacingDelay()
+    {
+        int excess = openTickets - targetDepth + 1;
+        if (excess <= 0) return 0;
+        return Math.round(excess * averageInterval);
+    }
+    
+    /**
+     * Opens a ticket for the next course at the given table.
+     */
+    private void open(Table table)
+    {
+        int i = table.getIndex();
+        int station = (router != null) ? router.applyAsInt(table) : -1;
+        if (station < 0 || station >= stations.length) station = leastLoadedStation();
+        Customer occupant = table.getOccupant();
+        Ticket ticket = new Ticket(table, ++courses[i], (occupant == null) ? 0 : occupant.getSize(),
+                station, clock.millis());
+        openByTable[i] = ticket;
+        queues[station].add(ticket);
+        if (openTickets++ == 0) intervalStart = ticket.openedAt;
+    }
+    
+    /**
+     * Closes the open ticket for the table at index i, recording its timing
+     * if it was served rather than cancelled.
+     */
+    private void close(int i, boolean served)
+    {
+        Ticket ticket = openByTable[i];
+        openByTable[i] = null;
+        queues[ticket.station].remove(ticket);
+        openTickets--;
+        long now = clock.millis();
+        if (served)
+        {
+            averageTicketTime = ewma(averageTicketTime, now - ticket.openedAt);
+            // Time when the kitchen had nothing to cook doesn't count
+            if (intervalStart >= 0) averageInterval = ewma(averageInterval, now - intervalStart);
+            intervalStart = now;
+        }
+        if (openTickets == 0) intervalStart = -1;
+    }
+    
+    private int leastLoadedStation()
+    {
+        int best = 0;
+        for (int s = 1; s < queues.length; s++)
+            if (queues[s].size() < queues[best].size()) best = s;
+        return best;
+    }
+    
+    private static double ewma(double average, long sample)
+    {
+        return (average == 0) ? sample : average + ALPHA * (sample - average);
+    }
+}
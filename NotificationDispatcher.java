@@ -0,0 +1,380 @@
+package restaurant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells waiting guests when their table is ready, and when they are nearly at
+ * the front of the waitlist, so that the host doesn't have to go and find them.
+ * <p>
+ * The dispatcher listens to a restaurant and raises a notification:
+ * <ul>
+ * <li>TABLE_READY when a customer is removed from the waitlist and then seated;
+ * <li>ALMOST_NEXT when a customer moves into one of the first few places in
+ * line (how many is set by nextThreshold), once per stay on the waitlist.
+ * </ul>
+ * Raising a notification only puts it in a bounded queue, which never blocks:
+ * if the queue is full the notification is dropped and counted, so a slow or
+ * failing sender can never hold up Table.seat or Waitlist.remove. A worker
+ * thread takes notifications from the queue in batches - waiting up to
+ * lingerMillis for a batch to fill - and hands each batch to the
+ * NotificationSender. Within a batch, notifications for the same customer are
+ * coalesced into the most recent one, so a guest who reached the front and was
+ * seated moments later gets a single "your table is ready". A batch that fails
+ * is retried with exponential backoff up to MAX_ATTEMPTS times before it is
+ * counted as failed.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class NotificationDispatcher implements RestaurantListener, AutoCloseable
+{
+    /** Number of times a batch is sent before giving up on it. */
+    public static final int MAX_ATTEMPTS = 5;
+    
+    private static final long FIRST_RETRY_DELAY = 100;  // milliseconds, doubled each retry
+    private static final long MAX_RETRY_DELAY = 5_000;
+    
+    /**
+     * Kinds of notification.
+     */
+    public enum Kind
+    {
+        /** The customer has been seated from the waitlist. */
+        TABLE_READY,
+        /** The customer is within the first few places in line. */
+        ALMOST_NEXT
+    }
+    
+    /**
+     * A message for one waiting customer.
+     */
+    public static final class Notification
+    {
+        private final Customer customer;
+        private final Kind kind;
+        private final String message;
+        private final long time;
+        
+        Notification(Customer customer, Kind kind, String message, long time)
+        {
+            this.customer = customer;
+            this.kind = kind;
+            this.message = message;
+            this.time = time;
+        }
+        
+        /**
+         * Returns the customer to be notified.
+         * 
+         * @return Customer object
+         */
+        public Customer getCustomer()
+        {
+            return customer;
+        }
+        
+        /**
+         * Returns the kind of notification.
+         * 
+         * @return TABLE_READY or ALMOST_NEXT
+         */
+        public Kind getKind()
+        {
+            return kind;
+        }
+        
+        /**
+         * Returns the text to show or send to the customer.
+         * 
+         * @return message text
+         */
+        public String getMessage()
+        {
+            return message;
+        }
+        
+        /**
+         * Returns the time the notification was raised.
+         * 
+         * @return time in milliseconds since the epoch
+         */
+        public long getTime()
+        {
+            return time;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return kind + " " + customer.getName() + ": " + message;
+        }
+    }
+    
+    private final Restaurant restaurant;
+    private final NotificationSender sender;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final int nextThreshold;
+    private final Thread worker;
+    private volatile boolean closed;
+    
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    // Used only on the thread that changes the restaurant
+    private final Set<Customer> toldAlmostNext = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Customer lastDequeued;
+    
+    /**
+     * Creates a dispatcher with a queue of 1024 notifications, batches of up
+     * to 32, a linger time of 50 milliseconds, and ALMOST_NEXT notifications
+     * for the first 2 places in line, and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose guests should be notified
+     * @param sender delivers the notifications
+     * @throws IllegalArgumentException if restaurant or sender is null
+     */
+    public NotificationDispatcher(Restaurant restaurant, NotificationSender sender)
+    {
+        this(restaurant, sender, 1024, 32, 50, 2);
+    }
+    
+    /**
+     * Creates a dispatcher and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose guests should be notified
+     * @param sender delivers the notifications
+     * @param queueCapacity maximum number of notifications waiting to be sent
+     * @param batchSize maximum number of notifications sent at once
+     * @param lingerMillis longest time to wait for a batch to fill, in milliseconds
+     * @param nextThreshold customers this close to the front of the line (1
+     * for the very front) get an ALMOST_NEXT notification, or 0 for none
+     * @throws IllegalArgumentException if restaurant or sender is null, or if
+     * any number is out of range
+     */
+    public NotificationDispatcher(Restaurant restaurant, NotificationSender sender,
+            int queueCapacity, int batchSize, long lingerMillis, int nextThreshold)
+    {
+        if (restaurant == null || sender == null) throw new IllegalArgumentException(
+                "Dispatcher must have a restaurant and a sender.");
+        if (queueCapacity < 1 || batchSize < 1 || lingerMillis < 0 || nextThreshold < 0)
+            throw new IllegalArgumentException("Queue capacity and batch size must be "
+                    + "at least 1, and linger time and threshold cannot be negative.");
+        
+        this.restaurant = restaurant;
+        this.sender = sender;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.nextThreshold = nextThreshold;
+        
+        worker = new Thread(this::run, "notification-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+        restaurant.addListener(this);
+        checkFrontOfLine();
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        // A reservation can join ahead of walk-ins who were already near the front
+        checkFrontOfLine();
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        lastDequeued = customer;
+        toldAlmostNext.remove(customer);
+        checkFrontOfLine();
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        Customer seated = table.getOccupant();
+        if (seated == null || seated == oldOccupant || seated != lastDequeued) return;
+        lastDequeued = null;
+        raise(seated, Kind.TABLE_READY, seated.getName() + ", your table is ready: Table "
+                + table.getLabel() + ". Please come to the host stand.");
+    }
+    
+    /**
+     * Returns the number of notifications delivered by the sender.
+     * 
+     * @return count of notifications sent
+     */
+    public long sentCount()
+    {
+        return sent.get();
+    }
+    
+    /**
+     * Returns the number of notifications that were dropped because the
+     * queue was full or the dispatcher was closed.
+     * 
+     * @return count of dropped notifications
+     */
+    public long droppedCount()
+    {
+        return dropped.get();
+    }
+    
+    /**
+     * Returns the number of notifications in batches that still failed after
+     * MAX_ATTEMPTS attempts.
+     * 
+     * @return count of failed notifications
+     */
+    public long failedCount()
+    {
+        return failed.get();
+    }
+    
+    /**
+     * Returns the number of notifications waiting to be sent.
+     * 
+     * @return length of the queue
+     */
+    public int pending()
+    {
+        return queue.size();
+    }
+    
+    /**
+     * Stops raising notifications, sends the ones already queued, and stops
+     * the worker thread. Waits at most 10 seconds for the queue to drain.
+     */
+    @Override
+    public void close()
+    {
+        restaurant.removeListener(this);
+        closed = true;
+        try
+        {
+            worker.join(10_000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        worker.interrupt();
+    }
+    
+    /**
+     * Raises ALMOST_NEXT for customers near the front who haven't had one.
+     */
+    private void checkFrontOfLine()
+    {
+        if (nextThreshold == 0) return;
+        Customer[] front = restaurant.getWaitlist().peek(nextThreshold);
+        for (int i = 0; i < front.length; i++)
+        {
+            if (!toldAlmostNext.add(front[i])) continue;
+            raise(front[i], Kind.ALMOST_NEXT, front[i].getName() + ", you are number " + (i + 1)
+                    + " in line. Please stay close to the host stand.");
+        }
+    }
+    
+    /**
+     * Queues a notification without waiting, dropping it if the queue is full.
+     */
+    private void raise(Customer customer, Kind kind, String message)
+    {
+        if (closed || !queue.offer(new Notification(customer, kind, message, System.currentTimeMillis())))
+            dropped.incrementAndGet();
+    }
+    
+    /**
+     * Worker thread: collects batches from the queue and sends them.
+     */
+    private void run()
+    {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        try
+        {
+            while (!closed || !queue.isEmpty())
+            {
+                Notification first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                
+                // Linger briefly so that bursts go out together
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize)
+                {
+                    long wait = deadline - System.nanoTime();
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+                    if (wait <= 0 || closed) break;
+                    Notification next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                
+                deliver(coalesce(batch));
+                batch.clear();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // close() gave up waiting; whatever is left is dropped
+            dropped.addAndGet(batch.size() + queue.size());
+        }
+    }
+    
+    /**
+     * Returns the batch with only the latest notification for each customer,
+     * in the order of those latest notifications.
+     */
+    private static List<Notification> coalesce(List<Notification> batch)
+    {
+        if (batch.size() == 1) return batch;
+        Map<Customer, Notification> latest = new IdentityHashMap<>();
+        for (Notification n : batch) latest.put(n.customer, n);
+        if (latest.size() == batch.size()) return batch;
+        
+        List<Notification> coalesced = new ArrayList<>(latest.size());
+        for (Notification n : batch)
+            if (latest.get(n.customer) == n) coalesced.add(n);
+        return coalesced;
+    }
+    
+    /**
+     * Sends one batch, retrying with exponential backoff if it fails.
+     */
+    private void deliver(List<Notification> batch) throws InterruptedException
+    {
+        long delay = FIRST_RETRY_DELAY;
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                sender.send(Collections.unmodifiableList(batch));
+                sent.addAndGet(batch.size());
+                return;
+            }
+            catch (Exception e)
+            {
+                if (attempt == MAX_ATTEMPTS)
+                {
+                    failed.addAndGet(batch.size());
+                    return;
+                }
+            }
+            Thread.sleep(delay);
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package restaurant;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delivers guest notifications (text messages, pager buzzes, and so on) for 
+ * a NotificationDispatcher. The dispatcher calls send from its own worker 
+ * thread, one batch at a time, and retries a batch if send throws.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public interface NotificationSender 
+{
+    /**
+     * Delivers a batch of notifications. Either every notification in the 
+     * batch should be delivered, or an exception thrown; a batch that fails 
+     * is sent again in full, so senders that can partly succeed should 
+     * tolerate duplicates.
+     * 
+     * @param batch notifications to deliver, in the order they were raised
+     * @throws IOException if the batch could not be delivered
+     */
+    void send(List<NotificationDispatcher.Notification> batch) throws IOException;
+}
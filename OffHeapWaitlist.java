@@ -0,0 +1,487 @@
+package restaurant;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Restaurant waiting list with the same two-tier order as Waitlist - all
+ * customers with reservations ahead of all customers without, first come first
+ * served within each tier - whose contents are stored outside the Java heap,
+ * for queues that may hold millions of parties.
+ * <p>
+ * A Waitlist holding a million parties is a million tree nodes and a million
+ * Customers (and their names) that the garbage collector must trace on every
+ * full collection. This list instead stores each party as a fixed-size record
+ * in a direct ByteBuffer: party size, reservation flag, arrival number, the
+ * links of its tier's doubly linked list and of its hash chain, and the offset
+ * and length of its name in a second direct buffer that serves as a string
+ * arena. The hash table that finds parties by name is a direct buffer as well.
+ * However many parties are waiting, the heap holds only these few buffers, so
+ * the list adds almost nothing to garbage collection times. Customer objects
+ * are created only when one is returned by find, peek or toArray.
+ * <p>
+ * Adding a party, and finding or removing one by name, take O(1) expected
+ * time. Slots of removed records are reused, and the string arena is compacted
+ * once more than half of it belongs to removed names. Each buffer is limited
+ * to 2 GB, which allows about 50 million records.
+ * <p>
+ * (The records would be a natural fit for the Foreign Function and Memory
+ * API's MemorySegment, but that API is still incubating in Java 17, so direct
+ * ByteBuffers are used instead; they are read and written the same way, with
+ * absolute gets and puts at computed offsets.)
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class OffHeapWaitlist
+{
+    // Record layout, in bytes
+    private static final int NEXT = 0;      // int: next slot in tier list (or free list), or -1
+    private static final int PREV = 4;      // int: previous slot in tier list, or -1
+    private static final int CHAIN = 8;     // int: next slot in hash chain, or -1
+    private static final int HASH = 12;     // int: hash of lowercased name
+    private static final int SEQUENCE = 16; // long: order of arrival
+    private static final int NAME = 24;     // int: offset of name in arena, in chars
+    private static final int NAME_LENGTH = 28; // int: length of name, in chars
+    private static final int SIZE = 32;     // int: party size
+    private static final int FLAGS = 36;    // int: RESERVATION bit
+    private static final int RECORD = 40;
+    
+    private static final int RESERVATION = 1;
+    private static final int NONE = -1;
+    
+    private ByteBuffer records;  // RECORD bytes per slot
+    private ByteBuffer arena;    // names, as UTF-16 chars
+    private ByteBuffer buckets;  // int per bucket: first slot in chain, or -1
+    private int numBuckets;      // always a power of 2
+    
+    private int slotsUsed;       // slots ever handed out; slots below this are live or free
+    private int freeSlot = NONE; // head of the free list
+    private int arenaUsed;       // chars written to the arena
+    private int arenaGarbage;    // chars belonging to removed names
+    
+    // Head and tail of each tier: [0] = reservations, [1] = walk-ins
+    private final int[] heads = { NONE, NONE };
+    private final int[] tails = { NONE, NONE };
+    private int length;
+    private int numReservations;
+    private long nextSequence;
+    
+    /**
+     * Creates an empty waitlist with room for 1024 parties before it needs
+     * to grow.
+     */
+    public OffHeapWaitlist()
+    {
+        this(1024);
+    }
+    
+    /**
+     * Creates an empty waitlist with room for the given number of parties
+     * before it needs to grow.
+     * 
+     * @param expectedParties number of parties to allocate space for
+     * @throws IllegalArgumentException if expectedParties is not positive or
+     *         is too large for a single buffer
+     */
+    public OffHeapWaitlist(int expectedParties)
+    {
+        if (expectedParties <= 0 || expectedParties > Integer.MAX_VALUE / RECORD)
+            throw new IllegalArgumentException("Expected number of parties must be "
+                    + "between 1 and " + (Integer.MAX_VALUE / RECORD) + ".");
+        records = allocate(expectedParties * RECORD);
+        arena = allocate((int) Math.min(32L * expectedParties, Integer.MAX_VALUE)); // 16 chars each
+        numBuckets = Integer.highestOneBit((int) Math.min(Math.max(16, 4L * expectedParties - 1),
+                Integer.MAX_VALUE / 4));
+        buckets = allocate(numBuckets * 4);
+        clearBuckets();
+    }
+    
+    /**
+     * Returns the length of the list.
+     * 
+     * @return number of parties in the waitlist
+     */
+    public int length()
+    {
+        return length;
+    }
+    
+    /**
+     * Returns the number of parties in the list who have reservations.
+     * 
+     * @return number of parties with reservations
+     */
+    public int numWithReservations()
+    {
+        return numReservations;
+    }
+    
+    /**
+     * Returns the number of bytes of off-heap memory that the list has
+     * allocated.
+     * 
+     * @return total capacity of the list's direct buffers
+     */
+    public long offHeapBytes()
+    {
+        return (long) records.capacity() + arena.capacity() + buckets.capacity();
+    }
+    
+    /**
+     * Adds a new party to the waitlist, at the end of the reservation tier if
+     * they have a reservation and at the end of the list if not. Only the
+     * customer's name, size and reservation status are stored; the Customer
+     * object itself is not kept.
+     * 
+     * @param newCustomer Customer to be added
+     * @return true if successful
+     * @throws IllegalStateException if the list has reached its maximum size
+     */
+    public boolean add(Customer newCustomer)
+    {
+        if (2 * length >= numBuckets) rehash(numBuckets * 2);
+        
+        String name = newCustomer.getName();
+        int slot = allocateSlot();
+        int base = slot * RECORD;
+        int hash = hash(name);
+        int tier = newCustomer.hasReservation() ? 0 : 1;
+        
+        records.putInt(base + HASH, hash);
+        records.putLong(base + SEQUENCE, nextSequence++);
+        records.putInt(base + NAME, appendName(name));
+        records.putInt(base + NAME_LENGTH, name.length());
+        records.putInt(base + SIZE, newCustomer.getSize());
+        records.putInt(base + FLAGS, (tier == 0) ? RESERVATION : 0);
+        
+        // Append to the tier's list
+        records.putInt(base + NEXT, NONE);
+        records.putInt(base + PREV, tails[tier]);
+        if (tails[tier] == NONE) heads[tier] = slot;
+        else records.putInt(tails[tier] * RECORD + NEXT, slot);
+        tails[tier] = slot;
+        
+        // Push onto the hash chain
+        int bucket = (hash & (numBuckets - 1)) * 4;
+        records.putInt(base + CHAIN, buckets.getInt(bucket));
+        buckets.putInt(bucket, slot);
+        
+        length++;
+        if (tier == 0) numReservations++;
+        return true;
+    }
+    
+    /**
+     * Removes the party with the specified name from the waitlist. If more
+     * than one party has the same name (not case sensitive), the one closest
+     * to the front of the list is removed. If no party with the given name is
+     * found, this method will return false and leave the list unchanged.
+     * 
+     * @param partyName name or ID of a party in this list
+     * @return true if successful, false otherwise
+     */
+    public boolean remove(String partyName)
+    {
+        int slot = findSlot(partyName);
+        if (slot == NONE) return false;
+        int base = slot * RECORD;
+        int tier = ((records.getInt(base + FLAGS) & RESERVATION) != 0) ? 0 : 1;
+        
+        // Unlink from the tier's list
+        int next = records.getInt(base + NEXT), prev = records.getInt(base + PREV);
+        if (prev == NONE) heads[tier] = next;
+        else records.putInt(prev * RECORD + NEXT, next);
+        if (next == NONE) tails[tier] = prev;
+        else records.putInt(next * RECORD + PREV, prev);
+        
+        // Unlink from the hash chain
+        int bucket = (records.getInt(base + HASH) & (numBuckets - 1)) * 4;
+        int current = buckets.getInt(bucket);
+        if (current == slot) buckets.putInt(bucket, records.getInt(base + CHAIN));
+        else
+        {
+            while (records.getInt(current * RECORD + CHAIN) != slot)
+                current = records.getInt(current * RECORD + CHAIN);
+            records.putInt(current * RECORD + CHAIN, records.getInt(base + CHAIN));
+        }
+        
+        arenaGarbage += records.getInt(base + NAME_LENGTH);
+        records.putInt(base + NEXT, freeSlot);
+        freeSlot = slot;
+        length--;
+        if (tier == 0) numReservations--;
+        
+        if (arenaGarbage > 4096 && arenaGarbage > arenaUsed / 2) compactArena();
+        return true;
+    }
+    
+    /**
+     * Finds the party with the given name, if they are in this waitlist. If
+     * more than one party has the same name (not case sensitive), the one
+     * closest to the front of the list is returned.
+     * 
+     * @param partyName name or ID of a party
+     * @return new Customer with the party's details, or null if not found
+     */
+    public Customer find(String partyName)
+    {
+        return customerAt(findSlot(partyName));
+    }
+    
+    /**
+     * Returns the first party in the waitlist.
+     * 
+     * @return new Customer with the party's details, or null if the waitlist is empty
+     */
+    public Customer peek()
+    {
+        return customerAt((heads[0] != NONE) ? heads[0] : heads[1]);
+    }
+    
+    /**
+     * Returns the first party in the waitlist whose size is no more than the
+     * given table capacity. This is the party that would be at the front of
+     * Waitlist.getPartiesSeatable(capacity).
+     * 
+     * @param capacity number of people who may be seated at a particular table
+     * @return new Customer with the party's details, or null if no party fits
+     */
+    public Customer peekSeatable(int capacity)
+    {
+        for (int tier = 0; tier < 2; tier++)
+        {
+            for (int slot = heads[tier]; slot != NONE; slot = records.getInt(slot * RECORD + NEXT))
+            {
+                if (records.getInt(slot * RECORD + SIZE) <= capacity) return customerAt(slot);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns all parties in the waitlist, in the order in which they will be
+     * offered for seating.
+     * 
+     * @return array of new Customers, which is empty if the waitlist is empty
+     */
+    public Customer[] toArray()
+    {
+        Customer[] customers = new Customer[length];
+        int i = 0;
+        for (int tier = 0; tier < 2; tier++)
+        {
+            for (int slot = heads[tier]; slot != NONE; slot = records.getInt(slot * RECORD + NEXT))
+                customers[i++] = customerAt(slot);
+        }
+        return customers;
+    }
+    
+    /**
+     * Removes every party from the list. The off-heap buffers are kept for
+     * reuse.
+     */
+    public void clear()
+    {
+        heads[0] = heads[1] = tails[0] = tails[1] = NONE;
+        length = numReservations = 0;
+        slotsUsed = 0;
+        freeSlot = NONE;
+        arenaUsed = arenaGarbage = 0;
+        clearBuckets();
+    }
+    
+    /**
+     * Returns all parties in the waitlist in order, separated by a newline
+     * character. If the waitlist is empty, returns, "There are no waiting patrons."
+     * 
+     * @return string representing the waitlist
+     */
+    @Override
+    public String toString()
+    {
+        if (length == 0) return "There are no waiting patrons.";
+        StringBuilder returnString = new StringBuilder();
+        for (Customer c : toArray())
+        {
+            if (returnString.length() > 0) returnString.append('\n');
+            returnString.append(c);
+        }
+        return returnString.toString();
+    }
+    
+    private static ByteBuffer allocate(int bytes)
+    {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Returns a buffer of the given size holding the contents of the old one.
+     */
+    private static ByteBuffer grow(ByteBuffer old, long bytes)
+    {
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Waitlist has reached its maximum size.");
+        ByteBuffer bigger = allocate((int) bytes);
+        ByteBuffer contents = old.duplicate();
+        contents.clear();
+        bigger.put(contents);
+        bigger.clear();
+        return bigger;
+    }
+    
+    /**
+     * Returns a free record slot, growing the record buffer if there are none.
+     */
+    private int allocateSlot()
+    {
+        if (freeSlot != NONE)
+        {
+            int slot = freeSlot;
+            freeSlot = records.getInt(slot * RECORD + NEXT);
+            return slot;
+        }
+        if ((slotsUsed + 1) * (long) RECORD > records.capacity())
+            records = grow(records, Math.min((long) records.capacity() * 2,
+                    (long) (Integer.MAX_VALUE / RECORD) * RECORD));
+        return slotsUsed++;
+    }
+    
+    /**
+     * Copies a name into the arena, growing it if necessary, and returns the
+     * offset it was written at.
+     */
+    private int appendName(String name)
+    {
+        long needed = 2L * (arenaUsed + name.length());
+        if (needed > arena.capacity())
+            arena = grow(arena, Math.min(Math.max(needed, 2L * arena.capacity()), Integer.MAX_VALUE));
+        int offset = arenaUsed;
+        for (int i = 0; i < name.length(); i++) arena.putChar(2 * (offset + i), name.charAt(i));
+        arenaUsed += name.length();
+        return offset;
+    }
+    
+    /**
+     * Rewrites the arena with only the names of parties still in the list.
+     */
+    private void compactArena()
+    {
+        ByteBuffer compacted = allocate(arena.capacity());
+        int used = 0;
+        for (int tier = 0; tier < 2; tier++)
+        {
+            for (int slot = heads[tier]; slot != NONE; slot = records.getInt(slot * RECORD + NEXT))
+            {
+                int base = slot * RECORD;
+                int from = records.getInt(base + NAME), nameLength = records.getInt(base + NAME_LENGTH);
+                for (int i = 0; i < nameLength; i++)
+                    compacted.putChar(2 * (used + i), arena.getChar(2 * (from + i)));
+                records.putInt(base + NAME, used);
+                used += nameLength;
+            }
+        }
+        arena = compacted;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+    
+    private void clearBuckets()
+    {
+        for (int i = 0; i < numBuckets; i++) buckets.putInt(i * 4, NONE);
+    }
+    
+    /**
+     * Moves every record into a hash table with the given number of buckets.
+     */
+    private void rehash(int newBuckets)
+    {
+        if (newBuckets > Integer.MAX_VALUE / 4) return; // chains just get longer
+        numBuckets = newBuckets;
+        buckets = allocate(numBuckets * 4);
+        clearBuckets();
+        for (int tier = 0; tier < 2; tier++)
+        {
+            for (int slot = heads[tier]; slot != NONE; slot = records.getInt(slot * RECORD + NEXT))
+            {
+                int base = slot * RECORD;
+                int bucket = (records.getInt(base + HASH) & (numBuckets - 1)) * 4;
+                records.putInt(base + CHAIN, buckets.getInt(bucket));
+                buckets.putInt(bucket, slot);
+            }
+        }
+    }
+    
+    /**
+     * Returns the slot of the front-most party with the given name, or NONE 
+     * if there is none or the name is null.
+     */
+    private int findSlot(String partyName)
+    {
+        if (partyName == null) return NONE;
+        int hash = hash(partyName);
+        int best = NONE;
+        long bestOrder = Long.MAX_VALUE;
+        for (int slot = buckets.getInt((hash & (numBuckets - 1)) * 4); slot != NONE;
+                slot = records.getInt(slot * RECORD + CHAIN))
+        {
+            int base = slot * RECORD;
+            if (records.getInt(base + HASH) != hash || !nameEquals(base, partyName)) continue;
+            // Reservations come first; within a tier, earlier arrivals do
+            long order = records.getLong(base + SEQUENCE)
+                    | (((records.getInt(base + FLAGS) & RESERVATION) != 0) ? 0 : 1L << 62);
+            if (order < bestOrder)
+            {
+                best = slot;
+                bestOrder = order;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Compares the name of the record at the given offset with the given
+     * string, ignoring case in the same way as String.equalsIgnoreCase.
+     */
+    private boolean nameEquals(int base, String name)
+    {
+        int nameLength = records.getInt(base + NAME_LENGTH);
+        if (nameLength != name.length()) return false;
+        int offset = records.getInt(base + NAME);
+        for (int i = 0; i < nameLength; i++)
+        {
+            char a = arena.getChar(2 * (offset + i)), b = name.charAt(i);
+            if (a != b && fold(a) != fold(b)) return false;
+        }
+        return true;
+    }
+    
+    private static char fold(char ch)
+    {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+    
+    /**
+     * Hashes a name so that names equal ignoring case have the same hash.
+     */
+    private static int hash(String name)
+    {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) h = 31 * h + fold(name.charAt(i));
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Creates a Customer from the record in the given slot.
+     */
+    private Customer customerAt(int slot)
+    {
+        if (slot == NONE) return null;
+        int base = slot * RECORD;
+        int offset = records.getInt(base + NAME), nameLength = records.getInt(base + NAME_LENGTH);
+        char[] name = new char[nameLength];
+        for (int i = 0; i < nameLength; i++) name[i] = arena.getChar(2 * (offset + i));
+        return new Customer(new String(name), records.getInt(base + SIZE),
+                (records.getInt(base + FLAGS) & RESERVATION) != 0);
+    }
+}
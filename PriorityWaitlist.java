@@ -0,0 +1,351 @@
+package restaurant;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Restaurant waiting list whose order is decided by a WaitlistPolicy, rather 
+ * than the fixed reservation/walk-in tiers of Waitlist. With the default 
+ * policy, WaitlistPolicy.twoTier(), the order is the same as Waitlist's.
+ * <p>
+ * The list is stored as an indexed 4-ary heap, with a map from each customer's 
+ * name to their position in the heap. Adding a customer, removing one by name, 
+ * and reprioritizing one after their rank has changed (for instance, when their 
+ * loyalty score goes up) all take O(log n) time. Because the heap is indexed by 
+ * name, each waiting customer must have a unique name (not case sensitive).
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class PriorityWaitlist 
+{
+    private static final int ARITY = 4;
+    
+    private final WaitlistPolicy policy;
+    private final Clock clock;
+    
+    // Heap entries, stored in parallel arrays so that entry i is made up of 
+    // customers[i], ranks[i], sequence[i] (order of arrival, used to break ties) 
+    // and arrivals[i] (time of arrival, passed to the policy).
+    private Customer[] customers;
+    private long[] ranks;
+    private long[] sequence;
+    private long[] arrivals;
+    private final Map<String, Integer> positions; // lowercased name -> heap index
+    
+    private int length;
+    private int numReservations;
+    private long nextSequence;
+    
+    /**
+     * Creates an empty waitlist that uses the two-tier reservation policy.
+     */
+    public PriorityWaitlist()
+    {
+        this(WaitlistPolicy.twoTier());
+    }
+    
+    /**
+     * Creates an empty waitlist that uses the given policy and the system clock.
+     * 
+     * @param policy policy used to rank customers
+     * @throws IllegalArgumentException if policy is null
+     */
+    public PriorityWaitlist(WaitlistPolicy policy)
+    {
+        this(policy, Clock.systemUTC());
+    }
+    
+    /**
+     * Creates an empty waitlist that uses the given policy and clock.
+     * 
+     * @param policy policy used to rank customers
+     * @param clock clock used to record arrival times
+     * @throws IllegalArgumentException if policy or clock is null
+     */
+    public PriorityWaitlist(WaitlistPolicy policy, Clock clock)
+    {
+        if (policy == null) throw new IllegalArgumentException("Waitlist must"
+                + " have a policy.");
+        if (clock == null) throw new IllegalArgumentException("Waitlist must"
+                + " have a clock.");
+        
+        this.policy = policy;
+        this.clock = clock;
+        customers = new Customer[16];
+        ranks = new long[16];
+        sequence = new long[16];
+        arrivals = new long[16];
+        positions = new HashMap<>();
+        length = 0;
+        numReservations = 0;
+        nextSequence = 0;
+    }
+    
+    /**
+     * Returns the length of the list.
+     * 
+     * @return number of Customers in the waitlist
+     */
+    public int length()
+    {
+        return length;
+    }
+    
+    /**
+     * Returns the number of people in the list who have reservations.
+     * 
+     * @return number of Customers with reservations
+     */
+    public int numWithReservations()
+    {
+        return numReservations;
+    }
+    
+    /**
+     * Adds a new person or party to the waitlist, ranked by the policy as of 
+     * the current time.
+     * 
+     * @param newCustomer Customer to be added
+     * @return true if successful, false if newCustomer is null or a customer 
+     * with the same name is already waiting
+     */
+    public boolean add(Customer newCustomer)
+    {
+        if (newCustomer == null) return false;
+        long now = clock.millis();
+        return insert(newCustomer, policy.rank(newCustomer, now), nextSequence++, now);
+    }
+    
+    /**
+     * Removes the Customer with the specified name from the waitlist. If no 
+     * Customer with the given name is found, this method will return false and 
+     * leave the list unchanged.
+     * 
+     * @param partyName name or ID of a Customer in this list (not case sensitive)
+     * @return true if successful, false otherwise
+     */
+    public boolean remove(String partyName)
+    {
+        Integer i = (partyName == null) ? null : positions.get(partyName.toLowerCase(Locale.ROOT));
+        if (i == null) return false;
+        
+        removeAt(i);
+        return true;
+    }
+    
+    /**
+     * Asks the policy to rank the given customer again, using their original 
+     * arrival time, and moves them to their new place in line. This should be 
+     * called whenever something the policy depends on changes.
+     * 
+     * @param partyName name or ID of a Customer in this list (not case sensitive)
+     * @return true if the customer was found, false otherwise
+     */
+    public boolean reprioritize(String partyName)
+    {
+        Integer i = (partyName == null) ? null : positions.get(partyName.toLowerCase(Locale.ROOT));
+        if (i == null) return false;
+        
+        long oldRank = ranks[i];
+        ranks[i] = policy.rank(customers[i], arrivals[i]);
+        if (ranks[i] < oldRank) siftUp(i);
+        else siftDown(i);
+        return true;
+    }
+    
+    /**
+     * Finds the customer with the given name, if they exist in this waitlist.
+     * 
+     * @param partyName name or ID of a Customer (not case sensitive)
+     * @return Customer with matching name, or null if not found
+     */
+    public Customer find(String partyName)
+    {
+        Integer i = (partyName == null) ? null : positions.get(partyName.toLowerCase(Locale.ROOT));
+        return (i == null) ? null : customers[i];
+    }
+    
+    /**
+     * Returns the first Customer in the waitlist.
+     * 
+     * @return the first Customer, or null if waitlist is empty
+     */
+    public Customer peek()
+    {
+        return (length == 0) ? null : customers[0];
+    }
+    
+    /**
+     * Returns all Customers in the waitlist, in the order in which they will be 
+     * offered for seating. This sorts a copy of the heap, and so takes 
+     * O(n log n) time.
+     * 
+     * @return array of waiting Customers, which is empty if the waitlist is empty
+     */
+    public Customer[] toArray()
+    {
+        Integer[] order = new Integer[length];
+        for (int i = 0; i < length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> less(a, b) ? -1 : (less(b, a) ? 1 : 0));
+        
+        Customer[] sorted = new Customer[length];
+        for (int i = 0; i < length; i++) sorted[i] = customers[order[i]];
+        return sorted;
+    }
+    
+    /**
+     * Returns a subset of the waitlist consisting of all Customers whose party 
+     * size is less than or equal to the given table capacity. Customers keep 
+     * their rank and arrival order in the new list. If none are found, returns 
+     * an empty waitlist.
+     * 
+     * @param capacity maximum number of people who may be seated at a particular table
+     * @return PriorityWaitlist of Customers that will fit at that table
+     */
+    public PriorityWaitlist getPartiesSeatable(int capacity)
+    {
+        PriorityWaitlist lessThan = new PriorityWaitlist(policy, clock);
+        for (int i = 0; i < length; i++)
+        {
+            if (customers[i].getSize() <= capacity)
+                lessThan.insert(customers[i], ranks[i], sequence[i], arrivals[i]);
+        }
+        lessThan.nextSequence = nextSequence;
+        return lessThan;
+    }
+    
+    /**
+     * Returns all Customers in the waitlist in order, separated by a newline 
+     * character. If the waitlist is empty, returns, "There are no waiting patrons."
+     * 
+     * @return string representing the waitlist
+     */
+    @Override
+    public String toString()
+    {
+        if (length == 0) return "There are no waiting patrons.";
+        StringBuilder returnString = new StringBuilder();
+        for (Customer c : toArray())
+        {
+            if (returnString.length() > 0) returnString.append('\n');
+            returnString.append(c);
+        }
+        return returnString.toString();
+    }
+    
+    /**
+     * Adds an entry with the given rank, sequence number and arrival time.
+     * 
+     * @return true if successful, false if the name is already in the list
+     */
+    private boolean insert(Customer c, long rank, long seq, long arrivalMillis)
+    {
+        String key = c.getName().toLowerCase(Locale.ROOT);
+        if (positions.containsKey(key)) return false;
+        
+        if (length == customers.length)
+        {
+            int newLength = length * 2;
+            customers = Arrays.copyOf(customers, newLength);
+            ranks = Arrays.copyOf(ranks, newLength);
+            sequence = Arrays.copyOf(sequence, newLength);
+            arrivals = Arrays.copyOf(arrivals, newLength);
+        }
+        customers[length] = c;
+        ranks[length] = rank;
+        sequence[length] = seq;
+        arrivals[length] = arrivalMillis;
+        positions.put(key, length);
+        length++;
+        if (c.hasReservation()) numReservations++;
+        
+        siftUp(length - 1);
+        return true;
+    }
+    
+    /**
+     * Removes the entry at heap index i, filling the gap with the last entry.
+     */
+    private void removeAt(int i)
+    {
+        Customer removed = customers[i];
+        positions.remove(removed.getName().toLowerCase(Locale.ROOT));
+        if (removed.hasReservation()) numReservations--;
+        length--;
+        
+        if (i != length)
+        {
+            move(length, i);
+            customers[length] = null;
+            siftDown(i);
+            siftUp(i);
+        }
+        else customers[length] = null;
+    }
+    
+    /**
+     * Returns true if entry a should be seated before entry b.
+     */
+    private boolean less(int a, int b)
+    {
+        if (ranks[a] != ranks[b]) return ranks[a] < ranks[b];
+        return sequence[a] < sequence[b];
+    }
+    
+    private void siftUp(int i)
+    {
+        while (i > 0)
+        {
+            int parent = (i - 1) / ARITY;
+            if (!less(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+    
+    private void siftDown(int i)
+    {
+        while (true)
+        {
+            int first = i * ARITY + 1;
+            if (first >= length) break;
+            
+            int best = first;
+            int last = Math.min(first + ARITY, length);
+            for (int child = first + 1; child < last; child++)
+                if (less(child, best)) best = child;
+            
+            if (!less(best, i)) break;
+            swap(i, best);
+            i = best;
+        }
+    }
+    
+    private void swap(int a, int b)
+    {
+        Customer c = customers[a];
+        long rank = ranks[a], seq = sequence[a], arrival = arrivals[a];
+        move(b, a);
+        customers[b] = c;
+        ranks[b] = rank;
+        sequence[b] = seq;
+        arrivals[b] = arrival;
+        positions.put(c.getName().toLowerCase(Locale.ROOT), b);
+    }
+    
+    /**
+     * Copies the entry at index from into index to, updating its position.
+     */
+    private void move(int from, int to)
+    {
+        customers[to] = customers[from];
+        ranks[to] = ranks[from];
+        sequence[to] = sequence[from];
+        arrivals[to] = arrivals[from];
+        positions.put(customers[to].getName().toLowerCase(Locale.ROOT), to);
+    }
+}
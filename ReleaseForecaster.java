@@ -0,0 +1,247 @@
+package restaurant;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Predicts when occupied tables will become available again, so that the next
+ * party can be lined up for a table before it is actually free.
+ * <p>
+ * A table's release is forecast as soon as its check is delivered (status 4):
+ * the predicted release time is the time the check was delivered plus the
+ * average time that tables of the same capacity have taken to go from check
+ * delivered to ready for patrons (status 0). That average is an exponentially
+ * weighted moving average, updated every time a table is released, so the
+ * forecast follows the pace of the current service. Until a capacity has been
+ * observed, the average over all capacities (or a default of 15 minutes) is
+ * used.
+ * <p>
+ * Forecasts are kept in one priority queue per capacity, ordered by predicted
+ * release time. A forecast stays valid while its table is at status 4 or 5;
+ * when the table changes in any other way, the forecast is not searched for
+ * and removed, but simply marked stale by bumping the table's generation
+ * number, and discarded when it reaches the head of its queue.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ReleaseForecaster implements RestaurantListener
+{
+    /** Weight given to each new observation in the moving averages. */
+    public static final double ALPHA = 0.2;
+    
+    private static final long DEFAULT_ESTIMATE = 15 * 60_000L;
+    
+    /**
+     * Predicted release of one table.
+     */
+    public static class Forecast implements Comparable<Forecast>
+    {
+        private final Table table;
+        private final long releaseTime;
+        private final int generation;
+        
+        private Forecast(Table table, long releaseTime, int generation)
+        {
+            this.table = table;
+            this.releaseTime = releaseTime;
+            this.generation = generation;
+        }
+        
+        /**
+         * Returns the table that is expected to be released.
+         * 
+         * @return Table object
+         */
+        public Table getTable()
+        {
+            return table;
+        }
+        
+        /**
+         * Returns the predicted time the table will be ready for patrons.
+         * 
+         * @return time in milliseconds since the epoch
+         */
+        public long getReleaseTime()
+        {
+            return releaseTime;
+        }
+        
+        @Override
+        public int compareTo(Forecast other)
+        {
+            return Long.compare(releaseTime, other.releaseTime);
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Table " + table.getLabel() + " (" + table.getCapacity()
+                    + " seats) at " + Instant.ofEpochMilli(releaseTime);
+        }
+    }
+    
+    private final Clock clock;
+    private final int[] capacities;    // distinct table capacities, in increasing order
+    private final PriorityQueue<Forecast>[] byCapacity; // indexed like capacities
+    private final int[] generations;   // by table index
+    private final boolean[] checked;   // by table index; whether the check has been delivered
+    private final long[] checkTimes;   // by table index; when status 4 was reached
+    private final double[] estimates;  // indexed like capacities; NaN = no observations yet
+    private double overallEstimate;    // NaN = no observations yet
+    
+    /**
+     * Creates a forecaster for the given restaurant, using the system clock,
+     * and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose tables should be forecast
+     */
+    public ReleaseForecaster(Restaurant restaurant)
+    {
+        this(restaurant, Clock.systemUTC());
+    }
+    
+    /**
+     * Creates a forecaster for the given restaurant that uses the given clock,
+     * and registers it as a listener. Tables whose check has already been
+     * delivered are forecast as if it had been delivered now.
+     * 
+     * @param restaurant Restaurant whose tables should be forecast
+     * @param clock clock used to time releases
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ReleaseForecaster(Restaurant restaurant, Clock clock)
+    {
+        this.clock = clock;
+        Table[] tables = restaurant.getAllTables();
+        capacities = restaurant.getCapacities();
+        byCapacity = new PriorityQueue[capacities.length];
+        for (int c = 0; c < byCapacity.length; c++) byCapacity[c] = new PriorityQueue<>();
+        generations = new int[tables.length];
+        checked = new boolean[tables.length];
+        checkTimes = new long[tables.length];
+        estimates = new double[byCapacity.length];
+        Arrays.fill(estimates, Double.NaN);
+        overallEstimate = Double.NaN;
+        
+        long now = clock.millis();
+        for (Table t : tables)
+        {
+            if (t.getStatus() == 4 || t.getStatus() == 5) forecast(t, now);
+        }
+        restaurant.addListener(this);
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        int status = table.getStatus();
+        if (status == oldStatus) return;
+        int i = table.getIndex();
+        
+        if (status == 4)
+        {
+            forecast(table, clock.millis());
+        }
+        else if (status == 5 && oldStatus == 4)
+        {
+            // Still on its way to being released; the forecast stands
+        }
+        else
+        {
+            if (status == 0 && checked[i])
+                observe(capacityIndex(table.getCapacity()), clock.millis() - checkTimes[i]);
+            generations[i]++;
+            checked[i] = false;
+        }
+    }
+    
+    /**
+     * Returns the table of at least the given capacity that is expected to
+     * become available soonest, among tables whose check has been delivered.
+     * Tables that are already available are not included; see
+     * Restaurant.getAvailTables.
+     * 
+     * @param partySize number of seats needed
+     * @return earliest forecast, or null if no suitable table is expected to
+     *         be released
+     */
+    public Forecast nextAvailable(int partySize)
+    {
+        Forecast best = null;
+        for (int c = Restaurant.fitIndex(capacities, partySize); c < byCapacity.length; c++)
+        {
+            Forecast head = peekValid(byCapacity[c]);
+            if (head != null && (best == null || head.releaseTime < best.releaseTime))
+                best = head;
+        }
+        return best;
+    }
+    
+    /**
+     * Returns the current estimate of how long a table of the given capacity
+     * takes to be ready for patrons after its check is delivered.
+     * 
+     * @param capacity table capacity
+     * @return estimate in milliseconds
+     */
+    public long getEstimate(int capacity)
+    {
+        int c = capacityIndex(capacity);
+        if (c >= 0 && !Double.isNaN(estimates[c])) return Math.round(estimates[c]);
+        if (!Double.isNaN(overallEstimate)) return Math.round(overallEstimate);
+        return DEFAULT_ESTIMATE;
+    }
+    
+    /**
+     * Adds a new forecast for the given table, replacing any earlier one.
+     */
+    private void forecast(Table table, long checkTime)
+    {
+        int i = table.getIndex();
+        generations[i]++;
+        checked[i] = true;
+        checkTimes[i] = checkTime;
+        // Clearing stale heads here too keeps queues that are rarely asked about from growing
+        int c = capacityIndex(table.getCapacity());
+        peekValid(byCapacity[c]);
+        byCapacity[c].add(
+                new Forecast(table, checkTime + getEstimate(table.getCapacity()), generations[i]));
+    }
+    
+    /**
+     * Discards stale forecasts from the head of a queue, and returns the first
+     * valid one.
+     */
+    private Forecast peekValid(PriorityQueue<Forecast> queue)
+    {
+        Forecast head;
+        while ((head = queue.peek()) != null
+                && head.generation != generations[head.table.getIndex()]) queue.poll();
+        return head;
+    }
+    
+    /**
+     * Returns the index of the given table capacity, or a negative number if
+     * no table has that capacity.
+     */
+    private int capacityIndex(int capacity)
+    {
+        return Arrays.binarySearch(capacities, capacity);
+    }
+    
+    /**
+     * Updates the moving averages with the time one table took to be released.
+     */
+    private void observe(int c, long millis)
+    {
+        if (millis < 0) return;
+        estimates[c] = Double.isNaN(estimates[c]) ? millis 
+                : estimates[c] + ALPHA * (millis - estimates[c]);
+        overallEstimate = Double.isNaN(overallEstimate) ? millis
+                : overallEstimate + ALPHA * (millis - overallEstimate);
+    }
+}
@@ -0,0 +1,195 @@
+package restaurant;
+
+/**
+ * Backend that a TraceReplayer re-executes a recorded trace against. Each 
+ * method corresponds to one kind of event in the trace. Implementations can 
+ * wrap a Restaurant (see of), or any other structure being compared with it, 
+ * such as an OffHeapWaitlist or PriorityWaitlist standing in for the waitlist.
+ * <p>
+ * Query methods return a number that summarizes their result. The replayer 
+ * folds these into a checksum, which both keeps the work from being optimized 
+ * away and shows whether two backends gave the same answers.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public interface ReplayTarget 
+{
+    /**
+     * Seats a customer at a table, as by Table.seat.
+     * 
+     * @param tableIndex index of the table, as in Restaurant.getAllTables
+     * @param customer Customer to be seated
+     */
+    void seat(int tableIndex, Customer customer);
+    
+    /**
+     * Vacates a table, as by Table.vacate.
+     * 
+     * @param tableIndex index of the table
+     */
+    void vacate(int tableIndex);
+    
+    /**
+     * Changes a table's status, as by Table.setStatus.
+     * 
+     * @param tableIndex index of the table
+     * @param status new status, from 0 to 5
+     */
+    void setStatus(int tableIndex, int status);
+    
+    /**
+     * Puts a table into a state that seat, vacate and setStatus cannot, such 
+     * as when a change is undone.
+     * 
+     * @param tableIndex index of the table
+     * @param status new status, from 0 to 5
+     * @param occupant new occupant, or null
+     */
+    void tableState(int tableIndex, int status, Customer occupant);
+    
+    /**
+     * Adds a customer to the waitlist.
+     * 
+     * @param key the customer's waitlist key in the recorded restaurant, 
+     * which records their exact place in line
+     * @param customer Customer who was added
+     */
+    void waitlistAdd(long key, Customer customer);
+    
+    /**
+     * Removes the first customer with the given name from the waitlist, as 
+     * by Waitlist.remove.
+     * 
+     * @param partyName name of the customer who was removed
+     */
+    void waitlistRemove(String partyName);
+    
+    /**
+     * Removes a customer from the waitlist.
+     * 
+     * @param key the customer's waitlist key in the recorded restaurant, as 
+     * given to waitlistAdd, which tells apart customers who share a name
+     * @param partyName name of the customer who was removed
+     */
+    void waitlistRemove(long key, String partyName);
+    
+    /**
+     * Looks up the table a customer is seated at.
+     * 
+     * @param partyName name that was looked up
+     * @return index of the table, or -1 if not found
+     */
+    default int findSeated(String partyName) { return 0; }
+    
+    /**
+     * Lists the available tables for a party.
+     * 
+     * @param partySize size of the party
+     * @return number of tables found
+     */
+    default int availTables(int partySize) { return 0; }
+    
+    /**
+     * Looks up a customer on the waitlist.
+     * 
+     * @param partyName name that was looked up
+     * @return 1 if found, 0 if not
+     */
+    default int findWaiting(String partyName) { return 0; }
+    
+    /**
+     * Finds a customer's position on the waitlist.
+     * 
+     * @param partyName name that was looked up
+     * @return position counting from 1, or 0 if not found
+     */
+    default int positionOf(String partyName) { return 0; }
+    
+    /**
+     * Returns a target that applies every event to the given restaurant, 
+     * which must have the same tables, in the same order, as the restaurant 
+     * the trace was recorded from (TraceReplayer.createRestaurant makes one).
+     * Events are applied through the same public methods as in the recorded 
+     * restaurant wherever those give the same result; a customer is added 
+     * with Waitlist.add unless they were put back in an earlier place in line.
+     * 
+     * @param r Restaurant to replay against
+     * @return target backed by the restaurant
+     */
+    static ReplayTarget of(Restaurant r)
+    {
+        Table[] tables = r.getAllTables();
+        Waitlist waitlist = r.getWaitlist();
+        return new ReplayTarget() 
+        {
+            @Override
+            public void seat(int tableIndex, Customer customer)
+            {
+                tables[tableIndex].seat(customer);
+            }
+            
+            @Override
+            public void vacate(int tableIndex)
+            {
+                tables[tableIndex].vacate();
+            }
+            
+            @Override
+            public void setStatus(int tableIndex, int status)
+            {
+                tables[tableIndex].setStatus(status);
+            }
+            
+            @Override
+            public void tableState(int tableIndex, int status, Customer occupant)
+            {
+                tables[tableIndex].restore(occupant, status);
+            }
+            
+            @Override
+            public void waitlistAdd(long key, Customer customer)
+            {
+                if (waitlist.isNextKey(key)) waitlist.add(customer);
+                else waitlist.restoreEntry(key, customer);
+            }
+            
+            @Override
+            public void waitlistRemove(String partyName)
+            {
+                waitlist.remove(partyName);
+            }
+            
+            @Override
+            public void waitlistRemove(long key, String partyName)
+            {
+                waitlist.removeEntry(key);
+            }
+            
+            @Override
+            public int findSeated(String partyName)
+            {
+                Table t = r.findSeated(partyName);
+                return (t == null) ? -1 : t.getIndex();
+            }
+            
+            @Override
+            public int availTables(int partySize)
+            {
+                return r.getAvailTables(partySize).length;
+            }
+            
+            @Override
+            public int findWaiting(String partyName)
+            {
+                return (waitlist.find(partyName) == null) ? 0 : 1;
+            }
+            
+            @Override
+            public int positionOf(String partyName)
+            {
+                return waitlist.positionOf(partyName);
+            }
+        };
+    }
+}
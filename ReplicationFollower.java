@@ -0,0 +1,244 @@
+package restaurant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Read-only copy of a Restaurant that is kept up to date by a 
+ * ReplicationLeader. The follower's restaurant must be built from the same 
+ * floor plan as the leader's; after that, it should only be changed by the 
+ * follower. Display boards and other readers can query it with read, which 
+ * gives them a consistent view between batches of changes, or without any 
+ * locking through the snapshot the follower publishes after each batch (see 
+ * Restaurant.getSnapshot).
+ * <p>
+ * If the leader fails, one follower can be promoted to leader, and the other 
+ * followers connected to it, without losing any change that the old leader's 
+ * awaitReplicated had reported as acknowledged by that follower.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ReplicationFollower implements AutoCloseable
+{
+    // Largest frame accepted from a leader; anything bigger is treated as 
+    // corrupt rather than allocated
+    private static final int MAX_FRAME_LENGTH = 64 << 20;
+    
+    private final Restaurant replica;
+    private final List<byte[]> log; // every entry applied so far, in order
+    private Socket socket;
+    private Thread reader;
+    private volatile boolean connected;
+    
+    /**
+     * Creates a follower that will copy changes into the given restaurant. The 
+     * follower does nothing until connect is called.
+     * 
+     * @param replica new Restaurant built from the same floor plan as the leader's
+     */
+    public ReplicationFollower(Restaurant replica)
+    {
+        this.replica = replica;
+        log = new ArrayList<>();
+    }
+    
+    /**
+     * Connects to a leader and starts applying its changes. If this follower 
+     * was previously following another leader, it resumes from the last change 
+     * it applied.
+     * 
+     * @param host host name of the leader
+     * @param port port the leader is listening on
+     * @throws IOException if the leader cannot be reached
+     * @throws IllegalStateException if the follower is already connected
+     */
+    public synchronized void connect(String host, int port) throws IOException
+    {
+        if (connected) throw new IllegalStateException("Already following a leader.");
+        
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeLong(lastApplied());
+        out.writeInt(replica.getAllTables().length);
+        out.flush();
+        
+        connected = true;
+        Socket s = socket;
+        reader = new Thread(() -> follow(s, in, out), "replication-follower");
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    /**
+     * Returns whether the follower is currently connected to a leader.
+     * 
+     * @return true if connected
+     */
+    public boolean isConnected()
+    {
+        return connected;
+    }
+    
+    /**
+     * Returns the sequence number of the last change applied to the replica.
+     * 
+     * @return number of changes applied
+     */
+    public long lastApplied()
+    {
+        synchronized (replica)
+        {
+            return log.size();
+        }
+    }
+    
+    /**
+     * Runs a query against the replica while no changes are being applied.
+     * 
+     * @param query function that reads from the replica
+     * @param <T> type of the query's result
+     * @return the query's result
+     */
+    public <T> T read(Function<Restaurant, T> query)
+    {
+        synchronized (replica)
+        {
+            return query.apply(replica);
+        }
+    }
+    
+    /**
+     * Disconnects from the current leader (if still connected) and makes this 
+     * follower's replica the new leader. Other followers should then connect 
+     * to the returned leader's port. The follower object cannot be used again.
+     * 
+     * @param port TCP port for the new leader to listen on, or 0 for any free port
+     * @return the new leader
+     * @throws IOException if the port cannot be opened
+     */
+    public ReplicationLeader promote(int port) throws IOException
+    {
+        close();
+        synchronized (replica)
+        {
+            return new ReplicationLeader(replica, port, 256, log);
+        }
+    }
+    
+    /**
+     * Disconnects from the leader. The replica keeps every change that had 
+     * been applied.
+     */
+    @Override
+    public synchronized void close()
+    {
+        connected = false;
+        if (socket != null)
+        {
+            try 
+            {
+                socket.close();
+            }
+            catch (IOException e) 
+            {
+                // already closed
+            }
+        }
+        if (reader != null && reader != Thread.currentThread())
+        {
+            try 
+            {
+                reader.join();
+            }
+            catch (InterruptedException e) 
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Reads frames from the leader, applies them and acknowledges them, until 
+     * the connection is closed or the leader sends something that cannot be 
+     * applied, which disconnects the follower so that it can connect again.
+     */
+    private void follow(Socket s, DataInputStream in, DataOutputStream out)
+    {
+        byte[] frame = new byte[1 << 12];
+        try 
+        {
+            while (connected)
+            {
+                int frameLength = in.readInt();
+                if (frameLength < 8 + 4 || frameLength > MAX_FRAME_LENGTH) 
+                    throw new IOException("Invalid frame length " + frameLength + ".");
+                if (frame.length < frameLength) frame = new byte[Math.max(frameLength, frame.length * 2)];
+                in.readFully(frame, 0, frameLength);
+                ByteBuffer buf = ByteBuffer.wrap(frame, 0, frameLength);
+                
+                long first = buf.getLong();
+                int count = buf.getInt();
+                long applied;
+                synchronized (replica)
+                {
+                    try 
+                    {
+                        for (int i = 0; i < count; i++)
+                        {
+                            int length = buf.getInt();
+                            if (length < 0 || length > buf.remaining())
+                                throw new IOException("Invalid entry length " + length + ".");
+                            byte[] entry = new byte[length];
+                            buf.get(entry);
+                            if (first + i <= log.size()) continue; // already have this one
+                            if (first + i > log.size() + 1)
+                                throw new IOException("Missing entries " + (log.size() + 1) 
+                                        + " to " + (first + i - 1) + ".");
+                            RestaurantCodec.applyMutation(ByteBuffer.wrap(entry), replica);
+                            log.add(entry);
+                        }
+                    }
+                    finally
+                    {
+                        replica.publish(); // whatever was applied before a failure
+                    }
+                    applied = log.size();
+                }
+                out.writeLong(applied);
+                out.flush();
+            }
+        }
+        catch (EOFException e) 
+        {
+            // leader closed the connection
+        }
+        catch (IOException | RuntimeException e) 
+        {
+            // connection lost, or the leader sent something we cannot apply
+        }
+        finally
+        {
+            try 
+            {
+                s.close();
+            }
+            catch (IOException e) 
+            {
+                // already closed
+            }
+            connected = false;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package restaurant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Copies every change made to a Restaurant to any number of followers over 
+ * TCP, so that a follower can take over (see ReplicationFollower.promote) if 
+ * the leader's machine fails, and so that display boards can read from a 
+ * follower instead of the leader.
+ * <p>
+ * The leader listens to its restaurant and appends each table change and 
+ * waitlist addition or removal to a log of mutations (see RestaurantCodec), 
+ * numbered from 1. Each follower connection has its own sender thread, which 
+ * sends whatever entries the follower has not yet received in batches of up 
+ * to maxBatch entries, without waiting for the previous batch to be 
+ * acknowledged, and a receiver thread that records the follower's 
+ * acknowledgements. A change should only be treated as durable once 
+ * awaitReplicated reports that enough followers have acknowledged it.
+ * <p>
+ * The log is kept in memory from the time the leader is created, and a 
+ * follower that connects late is sent the whole log. Leaders should therefore 
+ * be created before service starts, and followers' restaurants must be built 
+ * from the same floor plan as the leader's.
+ * <p>
+ * Frames sent to followers are: int frame length, long sequence number of the 
+ * first entry, int number of entries, then each entry as an int length and its 
+ * bytes. Followers reply with the long sequence number of the last entry they 
+ * have applied.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ReplicationLeader implements RestaurantListener, AutoCloseable
+{
+    private final Restaurant restaurant;
+    private final ServerSocket server;
+    private final int maxBatch;
+    private final List<byte[]> log; // entry with sequence number n is at index n - 1
+    private final List<Link> links;
+    private final Object ackLock = new Object();
+    private final Thread acceptor;
+    private volatile boolean closed;
+    
+    /**
+     * Creates a leader for the given restaurant that listens for followers on 
+     * the given local port, and registers it as a listener of the restaurant.
+     * 
+     * @param restaurant Restaurant whose changes are replicated
+     * @param port TCP port to listen on, or 0 to choose any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public ReplicationLeader(Restaurant restaurant, int port) throws IOException
+    {
+        this(restaurant, port, 256, new ArrayList<>());
+    }
+    
+    /**
+     * Creates a leader whose log starts with the given entries, which must 
+     * already have been applied to the restaurant. Used when a follower is 
+     * promoted.
+     */
+    ReplicationLeader(Restaurant restaurant, int port, int maxBatch, List<byte[]> existingLog) 
+            throws IOException
+    {
+        if (maxBatch < 1) throw new IllegalArgumentException("Batches must hold"
+                + " at least one entry.");
+        
+        this.restaurant = restaurant;
+        this.maxBatch = maxBatch;
+        log = existingLog;
+        links = new CopyOnWriteArrayList<>();
+        server = new ServerSocket(port);
+        
+        acceptor = new Thread(this::acceptFollowers, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Returns the port that followers should connect to.
+     * 
+     * @return local TCP port
+     */
+    public int getPort()
+    {
+        return server.getLocalPort();
+    }
+    
+    /**
+     * Returns the sequence number of the most recent change.
+     * 
+     * @return number of entries in the log
+     */
+    public long lastSequence()
+    {
+        synchronized (log)
+        {
+            return log.size();
+        }
+    }
+    
+    /**
+     * Returns the number of followers currently connected.
+     * 
+     * @return number of followers
+     */
+    public int followerCount()
+    {
+        return links.size();
+    }
+    
+    /**
+     * Waits until at least the given number of followers have acknowledged 
+     * every change up to and including the given sequence number.
+     * 
+     * @param sequence sequence number to wait for, usually lastSequence()
+     * @param minFollowers number of followers that must acknowledge it
+     * @param timeoutMillis maximum time to wait, in milliseconds
+     * @return true if enough followers acknowledged in time, false otherwise
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitReplicated(long sequence, int minFollowers, long timeoutMillis) 
+            throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (ackLock)
+        {
+            while (true)
+            {
+                int acknowledged = 0;
+                for (Link link : links)
+                    if (link.acked >= sequence) acknowledged++;
+                if (acknowledged >= minFollowers) return true;
+                
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) return false;
+                ackLock.wait(remaining);
+            }
+        }
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        append(RestaurantCodec.encodeTableState(table));
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        append(RestaurantCodec.encodeWaitlistAdd(restaurant.changingWaitlistKey(), customer));
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        append(RestaurantCodec.encodeWaitlistRemove(restaurant.changingWaitlistKey(), customer));
+    }
+    
+    /**
+     * Stops listening to the restaurant, disconnects all followers and closes 
+     * the server socket.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        restaurant.removeListener(this);
+        try 
+        {
+            server.close();
+        }
+        catch (IOException e) 
+        {
+            // already closed
+        }
+        for (Link link : links) link.close();
+        synchronized (log)
+        {
+            log.notifyAll();
+        }
+        synchronized (ackLock)
+        {
+            ackLock.notifyAll();
+        }
+    }
+    
+    private void append(byte[] entry)
+    {
+        synchronized (log)
+        {
+            log.add(entry);
+            log.notifyAll();
+        }
+    }
+    
+    private void acceptFollowers()
+    {
+        while (!closed)
+        {
+            try 
+            {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Link link = new Link(socket);
+                links.add(link);
+                link.start();
+            }
+            catch (IOException e) 
+            {
+                // server socket closed, or a follower failed during its handshake
+            }
+        }
+    }
+    
+    /**
+     * Connection to one follower.
+     */
+    private final class Link
+    {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private long sent;           // sequence number of the last entry sent
+        private volatile long acked; // sequence number of the last entry acknowledged
+        private volatile boolean open = true;
+        
+        Link(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            
+            // Handshake: follower sends the last entry it has and its table count
+            sent = acked = in.readLong();
+            int numTables = in.readInt();
+            if (numTables != restaurant.getAllTables().length || sent > lastSequence())
+            {
+                socket.close();
+                throw new IOException("Follower does not match this restaurant.");
+            }
+        }
+        
+        void start()
+        {
+            Thread sender = new Thread(this::sendLoop, "replication-sender");
+            Thread receiver = new Thread(this::receiveLoop, "replication-receiver");
+            sender.setDaemon(true);
+            receiver.setDaemon(true);
+            sender.start();
+            receiver.start();
+        }
+        
+        private void sendLoop()
+        {
+            byte[][] batch = new byte[maxBatch][];
+            try 
+            {
+                while (open && !closed)
+                {
+                    int count;
+                    synchronized (log)
+                    {
+                        while (open && !closed && sent >= log.size()) log.wait();
+                        if (!open || closed) break;
+                        count = (int) Math.min(maxBatch, log.size() - sent);
+                        for (int i = 0; i < count; i++) batch[i] = log.get((int) sent + i);
+                    }
+                    
+                    int frameLength = 8 + 4;
+                    for (int i = 0; i < count; i++) frameLength += 4 + batch[i].length;
+                    out.writeInt(frameLength);
+                    out.writeLong(sent + 1);
+                    out.writeInt(count);
+                    for (int i = 0; i < count; i++)
+                    {
+                        out.writeInt(batch[i].length);
+                        out.write(batch[i]);
+                        batch[i] = null;
+                    }
+                    out.flush();
+                    sent += count;
+                }
+            }
+            catch (IOException | InterruptedException e) 
+            {
+                // follower disconnected
+            }
+            close();
+        }
+        
+        private void receiveLoop()
+        {
+            try 
+            {
+                while (open && !closed)
+                {
+                    acked = in.readLong();
+                    synchronized (ackLock)
+                    {
+                        ackLock.notifyAll();
+                    }
+                }
+            }
+            catch (IOException e) 
+            {
+                // follower disconnected
+            }
+            close();
+        }
+        
+        void close()
+        {
+            open = false;
+            links.remove(this);
+            try 
+            {
+                socket.close();
+            }
+            catch (IOException e) 
+            {
+                // already closed
+            }
+            synchronized (log)
+            {
+                log.notifyAll();
+            }
+            synchronized (ackLock)
+            {
+                ackLock.notifyAll();
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package restaurant;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Restaurant object containing a list of tables and of customers who are waiting 
  * to be seated. Actions that are done on the Tables, Customers, and Waitlist are
@@ -14,6 +20,36 @@ public class Restaurant
     private final Table[] allTables;
     private Waitlist waitlist;
     
+    // Tables of seated parties, indexed by lowercased name, in the order the 
+    // parties were seated (almost always just one), and a bitset of occupied 
+    // tables (bit i set if allTables[i] has an occupant). Both are kept up to 
+    // date by tableChanged, which every Table calls after it is modified.
+    private final Map<String, Table[]> seatedByName;
+    private final long[] occupied;
+    private int numOccupied;
+    
+    // Live aggregates, also maintained by tableChanged so that none of the 
+    // getters below need to look at individual tables.
+    private int occupiedSeats;      // total capacity of occupied tables
+    private int seatedCovers;       // total number of seated people
+    private int[] capacities;       // distinct table capacities, in increasing order
+    private int[] freeByCapacity;   // number of unoccupied tables, indexed like capacities
+    private final int[] tablesByStatus = new int[6];
+    
+    private String[] sectionNames; // distinct sections, indexed by Table.getSectionIndex
+    
+    // Bitsets over the table index, in the same layout as occupied, so that 
+    // finding matching free tables is a few word operations per 64 tables
+    private long[][] atLeastCapacity; // tables seating at least capacities[k], indexed by k
+    private long[][] withAttribute;   // tables with each TableAttribute, indexed by ordinal
+    private long[][] inSection;       // tables in each section, indexed by section index
+    private RestaurantListener[] listeners = new RestaurantListener[0]; // copied on write
+    private long changingKey = -1; // waitlist key of the customer listeners are being told about
+    
+    // Most recently published snapshot, and the tables changed since then
+    private volatile RestaurantSnapshot published;
+    private long[] changedSincePublish;
+    
     /**
      * Creates a restaurant with the given name and number of tables. Tables are
      * given IDs consisting of capital letters starting with Table A, and each 
@@ -51,6 +87,9 @@ public class Restaurant
         }
         
         waitlist = new Waitlist();
+        seatedByName = new HashMap<>();
+        occupied = new long[(numTables + 63) / 64];
+        attachComponents();
     }
     
     /**
@@ -74,6 +113,32 @@ public class Restaurant
         }
         
         waitlist = new Waitlist();
+        seatedByName = new HashMap<>();
+        occupied = new long[(numTables + 63) / 64];
+        attachComponents();
+    }
+    
+    /**
+     * Creates a restaurant with the given name that contains the given tables, 
+     * such as those read from a floor plan by FloorPlanLoader. The tables must 
+     * be new (vacant and ready for patrons) and must not belong to any other 
+     * restaurant.
+     * 
+     * @param restaurantName name for restaurant (will simply be named "Restaurant" if null)
+     * @param tables array of tables, which the restaurant takes ownership of
+     * @throws IllegalArgumentException if tables is empty
+     */
+    Restaurant(String restaurantName, Table[] tables)
+    {
+        if (tables.length < 1) throw new IllegalArgumentException("Must have at least one table.");
+        
+        name = (restaurantName != null) ? restaurantName : "Restaurant";
+        allTables = tables;
+        
+        waitlist = new Waitlist();
+        seatedByName = new HashMap<>();
+        occupied = new long[(tables.length + 63) / 64];
+        attachComponents();
     }
     
     /**
@@ -114,29 +179,561 @@ public class Restaurant
      */
     public Table[] getAvailTables(int partySize)
     {
-        /* 
-        This is a little clunky, but allTables will always be a comparatively 
-        small array, and it hardly seems worth using a more complicated data 
-        structure.
-        */
-        int arrayLength = 0;
-        for (Table t : allTables)
-            if (t.getCapacity() >= partySize && t.getOccupant() == null) arrayLength++;
+        return getAvailTables(partySize, 0);
+    }
+    
+    /**
+     * Returns all unoccupied tables that can seat a party of the specified 
+     * size and have every one of the given attributes, such as a free 
+     * accessible patio table for 4.
+     * 
+     * @param partySize positive integer representing number of people in a party
+     * @param required attributes the tables must have, or null for none
+     * @return array of matching tables, in the order of getAllTables
+     */
+    public Table[] getAvailTables(int partySize, Set<TableAttribute> required)
+    {
+        return getAvailTables(partySize, TableAttribute.mask(required));
+    }
+    
+    /**
+     * Returns all unoccupied tables that can seat the given customer's party 
+     * and have every attribute the customer asked for.
+     * 
+     * @param customer Customer to be seated
+     * @return array of matching tables, in the order of getAllTables
+     */
+    public Table[] getAvailTables(Customer customer)
+    {
+        return getAvailTables(customer.getSize(), customer.getPreferenceMask());
+    }
+    
+    /**
+     * Returns the names of the sections that the restaurant is divided into, 
+     * in order of first appearance in getAllTables. Tables without a section 
+     * are grouped into a section whose name is null. Each table's position in 
+     * this array is given by its getSectionIndex method.
+     * 
+     * @return array of section names
+     */
+    public String[] getSections()
+    {
+        return sectionNames.clone();
+    }
+    
+    /**
+     * Vacates every occupied table in the given section, such as when a 
+     * section closes for the night. Only the occupied tables in the section 
+     * are visited, found a word at a time from the occupancy and section 
+     * bitsets. Each table is vacated as by Table.vacate, so listeners are 
+     * told about each one.
+     * 
+     * @param section name of a section, as returned by getSections (null for 
+     * tables without a section)
+     * @return number of tables vacated
+     * @throws IllegalArgumentException if the restaurant has no such section
+     */
+    public int vacateSection(String section)
+    {
+        long[] tables = inSection[sectionIndexOf(section)];
+        int count = 0;
+        for (int w = 0; w < occupied.length; w++)
+        {
+            long bits = occupied[w] & tables[w];
+            while (bits != 0)
+            {
+                allTables[(w << 6) + Long.numberOfTrailingZeros(bits)].vacate();
+                bits &= bits - 1;
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Resets every table in the given section to vacant and "Ready for 
+     * patrons" (status 0), as at the end of the night. Occupied tables are 
+     * cleared in a single step rather than being vacated and then marked 
+     * ready, and tables that are already ready are not touched, so listeners 
+     * hear about each changed table exactly once.
+     * 
+     * @param section name of a section, as returned by getSections (null for 
+     * tables without a section)
+     * @return number of tables changed
+     * @throws IllegalArgumentException if the restaurant has no such section
+     */
+    public int resetSection(String section)
+    {
+        long[] tables = inSection[sectionIndexOf(section)];
+        int count = 0;
+        for (int w = 0; w < tables.length; w++)
+        {
+            long bits = tables[w];
+            while (bits != 0)
+            {
+                Table t = allTables[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+                if (t.getOccupant() == null && t.getStatus() == 0) continue;
+                t.restore(null, 0);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Adds a listener that will be told about every subsequent change to this 
+     * restaurant's tables and waitlist.
+     * 
+     * @param listener listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addListener(RestaurantListener listener)
+    {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null.");
+        
+        RestaurantListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+    
+    /**
+     * Removes a listener that was previously added.
+     * 
+     * @param listener listener to remove
+     * @return true if the listener was found and removed, false otherwise
+     */
+    public boolean removeListener(RestaurantListener listener)
+    {
+        for (int i = 0; i < listeners.length; i++)
+        {
+            if (listeners[i] == listener)
+            {
+                RestaurantListener[] newListeners = new RestaurantListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Publishes a snapshot of the restaurant's current tables and waitlist, 
+     * which getSnapshot will return until the next call to publish. This 
+     * should be called by the thread that changes the restaurant, after each 
+     * change or batch of changes that readers should see. Only tables that 
+     * have changed since the last snapshot are read.
+     * 
+     * @return the new snapshot
+     */
+    public RestaurantSnapshot publish()
+    {
+        RestaurantSnapshot previous = published;
+        RestaurantSnapshot next = new RestaurantSnapshot(previous, allTables, 
+                changedSincePublish, waitlist.snapshot(), numOccupied, seatedCovers);
+        Arrays.fill(changedSincePublish, 0);
+        published = next;
+        return next;
+    }
+    
+    /**
+     * Returns the most recently published snapshot. This may be called from 
+     * any thread, at any time, without locking; the snapshot is immutable and 
+     * consistent, but does not show changes made since it was published.
+     * 
+     * @return most recent snapshot
+     */
+    public RestaurantSnapshot getSnapshot()
+    {
+        return published;
+    }
+    
+    /**
+     * Finds the table at which the customer with the given name is seated. This 
+     * is a single lookup rather than a search of every table. If more than one 
+     * seated party has the name, the one that was seated first is found.
+     * 
+     * @param partyName name or ID of a Customer (not case sensitive)
+     * @return Table where the customer is seated, or null if they are not seated
+     */
+    public Table findSeated(String partyName)
+    {
+        if (partyName == null) return null;
+        Table[] tables = seatedByName.get(partyName.toLowerCase(Locale.ROOT));
+        return (tables != null) ? tables[0] : null;
+    }
+    
+    /**
+     * Returns the number of tables that currently have an occupant.
+     * 
+     * @return number of occupied tables
+     */
+    public int numOccupied()
+    {
+        return numOccupied;
+    }
+    
+    /**
+     * Returns all tables that currently have an occupant, in the same order in 
+     * which they appear in getAllTables.
+     * 
+     * @return array containing only the occupied tables
+     */
+    public Table[] getOccupiedTables()
+    {
+        Table[] result = new Table[numOccupied];
+        int curIndex = 0;
+        for (int word = 0; word < occupied.length; word++)
+        {
+            long bits = occupied[word];
+            while (bits != 0)
+            {
+                result[curIndex++] = allTables[word * 64 + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1; // clear lowest set bit
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the total number of seats at tables that currently have an 
+     * occupant, including seats that the occupying party is not using.
+     * 
+     * @return number of seats at occupied tables
+     */
+    public int getOccupiedSeats()
+    {
+        return occupiedSeats;
+    }
+    
+    /**
+     * Returns the total number of people currently seated at a table.
+     * 
+     * @return sum of the party sizes of all occupants
+     */
+    public int getSeatedCovers()
+    {
+        return seatedCovers;
+    }
+    
+    /**
+     * Returns the capacity of the largest table in the restaurant, which is 
+     * also the largest party that can be seated.
+     * 
+     * @return largest table capacity
+     */
+    public int getMaxCapacity()
+    {
+        return capacities[capacities.length - 1];
+    }
+    
+    /**
+     * Returns the distinct capacities of the restaurant's tables.
+     * 
+     * @return array of capacities, in increasing order
+     */
+    public int[] getCapacities()
+    {
+        return capacities.clone();
+    }
+    
+    /**
+     * Returns the number of unoccupied tables with exactly the given capacity.
+     * 
+     * @param capacity table capacity
+     * @return number of unoccupied tables with that capacity
+     */
+    public int getFreeTables(int capacity)
+    {
+        int k = Arrays.binarySearch(capacities, capacity);
+        return (k < 0) ? 0 : freeByCapacity[k];
+    }
+    
+    /**
+     * Returns the number of seats at unoccupied tables with exactly the given 
+     * capacity.
+     * 
+     * @param capacity table capacity
+     * @return number of free seats at tables of that capacity
+     */
+    public int getFreeSeats(int capacity)
+    {
+        return getFreeTables(capacity) * capacity;
+    }
+    
+    /**
+     * Returns the number of tables that currently have the given status. See 
+     * Table for the meaning of each status.
+     * 
+     * @param status integer between 0 and 5 inclusive
+     * @return number of tables with that status, or 0 if status is out of range
+     */
+    public int getTablesWithStatus(int status)
+    {
+        if (status < 0 || status > 5) return 0;
+        return tablesByStatus[status];
+    }
+    
+    /**
+     * Called by a Table belonging to this restaurant after its status or 
+     * occupant changes, so that the occupant index can be updated.
+     * 
+     * @param table the table that changed
+     * @param oldStatus the table's status before the change
+     * @param oldOccupant the table's occupant before the change, or null
+     */
+    void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        tablesByStatus[oldStatus]--;
+        tablesByStatus[table.getStatus()]++;
+        changedSincePublish[table.getIndex() >>> 6] |= 1L << table.getIndex();
         
-        Table[] availTables = new Table[arrayLength];
+        Customer occupant = table.getOccupant();
+        if (occupant != oldOccupant) updateOccupancy(table, occupant, oldOccupant);
         
+        for (RestaurantListener listener : listeners)
+            listener.tableChanged(table, oldStatus, oldOccupant);
+    }
+    
+    /**
+     * Called by this restaurant's Waitlist after a customer is added to it or 
+     * removed from it.
+     * 
+     * @param customer the customer who was added or removed
+     * @param key the customer's waitlist key
+     * @param added true if the customer was added, false if removed
+     */
+    void waitlistChanged(Customer customer, long key, boolean added)
+    {
+        changingKey = key;
+        try
+        {
+            for (RestaurantListener listener : listeners)
+            {
+                if (added) listener.customerAdded(customer);
+                else listener.customerRemoved(customer);
+            }
+        }
+        finally
+        {
+            changingKey = -1;
+        }
+    }
+    
+    /**
+     * Returns the waitlist key of the customer whose addition or removal is 
+     * being reported, for listeners that copy the change elsewhere (such as 
+     * ReplicationLeader) and must identify the exact entry when several 
+     * customers share a name. Only meaningful during a call to customerAdded 
+     * or customerRemoved.
+     * 
+     * @return key of the entry, or -1 outside a waitlist notification
+     */
+    long changingWaitlistKey()
+    {
+        return changingKey;
+    }
+    
+    /**
+     * Returns the index of the section with the given name.
+     * 
+     * @throws IllegalArgumentException if there is no such section
+     */
+    private int sectionIndexOf(String section)
+    {
+        for (int i = 0; i < sectionNames.length; i++)
+        {
+            if (section == null ? sectionNames[i] == null : section.equals(sectionNames[i])) return i;
+        }
+        throw new IllegalArgumentException("No section named \"" + section + "\".");
+    }
+    
+    /**
+     * Returns the unoccupied tables that seat at least partySize people and 
+     * have all of the attributes in the given mask, by ANDing the free, 
+     * capacity and attribute bitsets a word at a time.
+     */
+    private Table[] getAvailTables(int partySize, int attributeMask)
+    {
+        int k = fitIndex(capacities, partySize);
+        if (k == capacities.length) return new Table[0];
+        long[] fits = atLeastCapacity[k];
+        
+        int count = 0;
+        for (int w = 0; w < occupied.length; w++)
+            count += Long.bitCount(matching(w, fits, attributeMask));
+        
+        Table[] availTables = new Table[count];
         int curIndex = 0;
-        for (Table t : allTables)
+        for (int w = 0; w < occupied.length; w++)
         {
-            if (t.getCapacity() >= partySize && t.getOccupant() == null)
+            long bits = matching(w, fits, attributeMask);
+            while (bits != 0)
             {
-                availTables[curIndex] = t;
-                curIndex++;
+                availTables[curIndex++] = allTables[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
             }
         }
         return availTables;
     }
     
+    /**
+     * Returns the index in the given capacities (distinct, in increasing 
+     * order) of the smallest one that seats the party size, or the length of 
+     * the array if none does.
+     * 
+     * @param capacities distinct capacities, in increasing order
+     * @param partySize number of people in a party
+     * @return index of the smallest fitting capacity, or capacities.length
+     */
+    static int fitIndex(int[] capacities, int partySize)
+    {
+        int k = Arrays.binarySearch(capacities, partySize);
+        return (k < 0) ? -k - 1 : k;
+    }
+    
+    /**
+     * Returns word w of the set of free tables that are in fits and have 
+     * every attribute in the mask.
+     */
+    private long matching(int w, long[] fits, int attributeMask)
+    {
+        long bits = ~occupied[w] & fits[w];
+        for (int a = 0; attributeMask != 0 && bits != 0; a++, attributeMask >>>= 1)
+        {
+            if ((attributeMask & 1) != 0) bits &= withAttribute[a][w];
+        }
+        return bits;
+    }
+    
+    /**
+     * Updates the occupant index and occupancy counters after a table's 
+     * occupant changes.
+     * 
+     * @param table the table that changed
+     * @param occupant the table's new occupant, or null
+     * @param oldOccupant the table's occupant before the change, or null
+     */
+    private void updateOccupancy(Table table, Customer occupant, Customer oldOccupant)
+    {
+        int i = table.getIndex();
+        int capacity = table.getCapacity();
+        int k = Arrays.binarySearch(capacities, capacity);
+        if (oldOccupant != null)
+        {
+            unindexSeated(oldOccupant.getName().toLowerCase(Locale.ROOT), table);
+            occupied[i >>> 6] &= ~(1L << i);
+            numOccupied--;
+            occupiedSeats -= capacity;
+            seatedCovers -= oldOccupant.getSize();
+            freeByCapacity[k]++;
+        }
+        if (occupant != null)
+        {
+            indexSeated(occupant.getName().toLowerCase(Locale.ROOT), table);
+            occupied[i >>> 6] |= 1L << i;
+            numOccupied++;
+            occupiedSeats += capacity;
+            seatedCovers += occupant.getSize();
+            freeByCapacity[k]--;
+        }
+    }
+    
+    /**
+     * Adds a table to the end of the seated index entry for the given 
+     * lowercased name.
+     */
+    private void indexSeated(String key, Table table)
+    {
+        Table[] tables = seatedByName.get(key);
+        if (tables == null) tables = new Table[] { table };
+        else
+        {
+            tables = Arrays.copyOf(tables, tables.length + 1);
+            tables[tables.length - 1] = table;
+        }
+        seatedByName.put(key, tables);
+    }
+    
+    /**
+     * Removes a table from the seated index entry for the given lowercased 
+     * name, keeping the rest in the order they were seated.
+     */
+    private void unindexSeated(String key, Table table)
+    {
+        Table[] tables = seatedByName.get(key);
+        if (tables == null) return;
+        int i = 0;
+        while (i < tables.length && tables[i] != table) i++;
+        if (i == tables.length) return;
+        if (tables.length == 1)
+        {
+            seatedByName.remove(key);
+            return;
+        }
+        Table[] rest = new Table[tables.length - 1];
+        System.arraycopy(tables, 0, rest, 0, i);
+        System.arraycopy(tables, i + 1, rest, i, rest.length - i);
+        seatedByName.put(key, rest);
+    }
+    
+    /**
+     * Registers every table and the waitlist with this restaurant and 
+     * initializes the aggregate counters. Called once by each constructor after 
+     * the table array has been filled with new (vacant, ready) tables.
+     */
+    private void attachComponents()
+    {
+        waitlist.attach(this);
+        
+        int[] all = new int[allTables.length];
+        for (int i = 0; i < all.length; i++) all[i] = allTables[i].getCapacity();
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int c : all)
+        {
+            if (distinct == 0 || all[distinct - 1] != c) all[distinct++] = c;
+        }
+        capacities = Arrays.copyOf(all, distinct);
+        
+        freeByCapacity = new int[capacities.length];
+        Map<String, Integer> sectionIndex = new HashMap<>();
+        for (int i = 0; i < allTables.length; i++)
+        {
+            Integer section = sectionIndex.get(allTables[i].getSection());
+            if (section == null)
+            {
+                section = sectionIndex.size();
+                sectionIndex.put(allTables[i].getSection(), section);
+            }
+            allTables[i].attach(this, i, section);
+            freeByCapacity[Arrays.binarySearch(capacities, allTables[i].getCapacity())]++;
+        }
+        tablesByStatus[0] = allTables.length;
+        
+        atLeastCapacity = new long[capacities.length][occupied.length];
+        withAttribute = new long[TableAttribute.values().length][occupied.length];
+        for (int i = 0; i < allTables.length; i++)
+        {
+            for (int k = Arrays.binarySearch(capacities, allTables[i].getCapacity()); k >= 0; k--)
+                atLeastCapacity[k][i >>> 6] |= 1L << i;
+            for (TableAttribute a : allTables[i].getAttributes())
+                withAttribute[a.ordinal()][i >>> 6] |= 1L << i;
+        }
+        
+        sectionNames = new String[sectionIndex.size()];
+        for (Map.Entry<String, Integer> entry : sectionIndex.entrySet())
+            sectionNames[entry.getValue()] = entry.getKey();
+        inSection = new long[sectionNames.length][occupied.length];
+        for (int i = 0; i < allTables.length; i++)
+            inSection[allTables[i].getSectionIndex()][i >>> 6] |= 1L << i;
+        
+        changedSincePublish = new long[occupied.length];
+        published = new RestaurantSnapshot(null, allTables, null, waitlist.snapshot(), 0, 0);
+    }
+    
     /**
      * Returns string consisting of the restaurant's name, all tables, and all
      * customers in the waitlist.
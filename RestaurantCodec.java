@@ -0,0 +1,464 @@
+package restaurant;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of Customers, Tables, and Waitlists, for passing 
+ * restaurant state between processes or saving snapshots of it. All methods 
+ * read from or write to the caller's ByteBuffer at its current position, so 
+ * no intermediate arrays are created except when decoding a string from a 
+ * direct (non-array) buffer.
+ * <p>
+ * Integers are written as unsigned LEB128 varints and strings as a varint 
+ * byte length followed by UTF-8 bytes. The formats are:
+ * <ul>
+ * <li>Customer: size, flags (bit 0 = reservation, bits 1-4 = preferred 
+ * TableAttributes by ordinal), name
+ * <li>Table: label, capacity, status byte, 0 or 1 byte, then the occupant 
+ * if the previous byte was 1
+ * <li>Waitlist: version byte, number of customers, then each Customer in order
+ * <li>Mutation: type byte, then for TABLE_STATE the table's index, status, 
+ * and 0 or 1 byte followed by the occupant; for WAITLIST_ADD the entry's 
+ * waitlist key (8 bytes) and the Customer; for WAITLIST_REMOVE the 
+ * entry's waitlist key and the customer's name
+ * </ul>
+ * Mutations describe a single change to a Restaurant and are used to copy 
+ * changes from one Restaurant to another, for instance by ReplicationLeader.
+ * Methods that decode throw IllegalArgumentException if the data is malformed 
+ * and java.nio.BufferUnderflowException if the data is incomplete. Methods 
+ * that encode throw java.nio.BufferOverflowException if the buffer is too 
+ * small; the encodedSize methods give the exact number of bytes needed.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public final class RestaurantCodec
+{
+    /** Version byte written at the start of each Waitlist dump. */
+    public static final byte VERSION = 1;
+    
+    /** Mutation type: a table's status and occupant were set. */
+    public static final byte TABLE_STATE = 1;
+    /** Mutation type: a customer was added to the waitlist. */
+    public static final byte WAITLIST_ADD = 2;
+    /** Mutation type: a customer was removed from the waitlist. */
+    public static final byte WAITLIST_REMOVE = 3;
+    
+    private static final int RESERVATION_FLAG = 1;
+    private static final int PREFERENCE_SHIFT = 1;
+    
+    private RestaurantCodec() {}
+    
+    /**
+     * Writes the given customer to the buffer.
+     * 
+     * @param c Customer to encode
+     * @param out buffer to write to
+     */
+    public static void encode(Customer c, ByteBuffer out)
+    {
+        putVarint(out, c.getSize());
+        out.put((byte) ((c.hasReservation() ? RESERVATION_FLAG : 0) 
+                | (c.getPreferenceMask() << PREFERENCE_SHIFT)));
+        putString(out, c.getName());
+    }
+    
+    /**
+     * Reads a customer from the buffer.
+     * 
+     * @param in buffer positioned at the start of an encoded Customer
+     * @return the decoded Customer
+     * @throws IllegalArgumentException if the encoded customer is invalid
+     */
+    public static Customer decodeCustomer(ByteBuffer in)
+    {
+        int size = getVarint(in);
+        int flags = in.get();
+        String name = getString(in);
+        return new Customer(name, size, (flags & RESERVATION_FLAG) != 0, 
+                TableAttribute.fromMask((flags & 0xFF) >>> PREFERENCE_SHIFT));
+    }
+    
+    /**
+     * Returns the number of bytes needed to encode the given customer.
+     * 
+     * @param c Customer to measure
+     * @return encoded length in bytes
+     */
+    public static int encodedSize(Customer c)
+    {
+        return varintSize(c.getSize()) + 1 + stringSize(c.getName());
+    }
+    
+    /**
+     * Writes the given table, including its status and occupant, to the buffer.
+     * 
+     * @param t Table to encode
+     * @param out buffer to write to
+     */
+    public static void encode(Table t, ByteBuffer out)
+    {
+        putString(out, t.getLabel());
+        putVarint(out, t.getCapacity());
+        out.put((byte) t.getStatus());
+        Customer occupant = t.getOccupant();
+        if (occupant == null) out.put((byte) 0);
+        else
+        {
+            out.put((byte) 1);
+            encode(occupant, out);
+        }
+    }
+    
+    /**
+     * Reads a table from the buffer. The returned table does not belong to 
+     * any Restaurant.
+     * 
+     * @param in buffer positioned at the start of an encoded Table
+     * @return a new Table with the encoded label, capacity, status and occupant
+     * @throws IllegalArgumentException if the encoded table is invalid
+     */
+    public static Table decodeTable(ByteBuffer in)
+    {
+        String label = getString(in);
+        int capacity = getVarint(in);
+        int status = in.get();
+        boolean occupied = in.get() != 0;
+        
+        Table t = new Table(label, capacity);
+        if (occupied && !t.seat(decodeCustomer(in)))
+            throw new IllegalArgumentException("Occupant does not fit at Table " + label + ".");
+        if (status != t.getStatus() && !t.setStatus(status))
+            throw new IllegalArgumentException("Invalid status " + status 
+                    + " for Table " + label + ".");
+        return t;
+    }
+    
+    /**
+     * Returns the number of bytes needed to encode the given table.
+     * 
+     * @param t Table to measure
+     * @return encoded length in bytes
+     */
+    public static int encodedSize(Table t)
+    {
+        int size = stringSize(t.getLabel()) + varintSize(t.getCapacity()) + 2;
+        if (t.getOccupant() != null) size += encodedSize(t.getOccupant());
+        return size;
+    }
+    
+    /**
+     * Writes a versioned dump of the whole waitlist to the buffer.
+     * 
+     * @param w Waitlist to encode
+     * @param out buffer to write to
+     */
+    public static void encode(Waitlist w, ByteBuffer out)
+    {
+        Customer[] customers = w.toArray();
+        out.put(VERSION);
+        putVarint(out, customers.length);
+        for (Customer c : customers)
+            encode(c, out);
+    }
+    
+    /**
+     * Reads a waitlist dump from the buffer. Customers are re-added in their 
+     * original order, so the decoded waitlist has the same order as the one 
+     * that was encoded.
+     * 
+     * @param in buffer positioned at the start of an encoded Waitlist
+     * @return a new Waitlist containing the decoded Customers
+     * @throws IllegalArgumentException if the version is not supported or the 
+     * data is invalid
+     */
+    public static Waitlist decodeWaitlist(ByteBuffer in)
+    {
+        byte version = in.get();
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported"
+                + " waitlist version " + version + ".");
+        
+        Waitlist w = new Waitlist();
+        int count = getVarint(in);
+        for (int i = 0; i < count; i++)
+            w.add(decodeCustomer(in));
+        return w;
+    }
+    
+    /**
+     * Returns the number of bytes needed to encode the given waitlist.
+     * 
+     * @param w Waitlist to measure
+     * @return encoded length in bytes
+     */
+    public static int encodedSize(Waitlist w)
+    {
+        Customer[] customers = w.toArray();
+        int size = 1 + varintSize(customers.length);
+        for (Customer c : customers)
+            size += encodedSize(c);
+        return size;
+    }
+    
+    /**
+     * Encodes the current status and occupant of a table that belongs to a 
+     * restaurant, as a TABLE_STATE mutation.
+     * 
+     * @param t Table that has changed
+     * @return encoded mutation
+     */
+    public static byte[] encodeTableState(Table t)
+    {
+        Customer occupant = t.getOccupant();
+        int size = 1 + varintSize(t.getIndex()) + 2;
+        if (occupant != null) size += encodedSize(occupant);
+        
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(TABLE_STATE);
+        putVarint(out, t.getIndex());
+        out.put((byte) t.getStatus());
+        if (occupant == null) out.put((byte) 0);
+        else
+        {
+            out.put((byte) 1);
+            encode(occupant, out);
+        }
+        return out.array();
+    }
+    
+    /**
+     * Encodes the addition of a customer to a restaurant's waitlist, as a 
+     * WAITLIST_ADD mutation. The waitlist key records the customer's exact 
+     * place in line.
+     * 
+     * @param key the customer's waitlist key
+     * @param c Customer who was added
+     * @return encoded mutation
+     */
+    static byte[] encodeWaitlistAdd(long key, Customer c)
+    {
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + encodedSize(c));
+        out.put(WAITLIST_ADD);
+        out.putLong(key);
+        encode(c, out);
+        return out.array();
+    }
+    
+    /**
+     * Encodes the removal of a customer from a restaurant's waitlist, as a 
+     * WAITLIST_REMOVE mutation. The waitlist key identifies the exact entry, 
+     * so the right customer is removed when several share a name.
+     * 
+     * @param key the customer's waitlist key
+     * @param c Customer who was removed
+     * @return encoded mutation
+     */
+    static byte[] encodeWaitlistRemove(long key, Customer c)
+    {
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + stringSize(c.getName()));
+        out.put(WAITLIST_REMOVE);
+        out.putLong(key);
+        putString(out, c.getName());
+        return out.array();
+    }
+    
+    /**
+     * Reads one mutation from the buffer and applies it to the given 
+     * restaurant, which must have the same tables, in the same order, as the 
+     * restaurant the mutation was encoded from.
+     * 
+     * @param in buffer positioned at the start of an encoded mutation
+     * @param r Restaurant to change
+     * @throws IllegalArgumentException if the mutation is invalid or does not 
+     * fit the restaurant
+     */
+    public static void applyMutation(ByteBuffer in, Restaurant r)
+    {
+        byte type = in.get();
+        switch (type)
+        {
+            case TABLE_STATE:
+                int index = getVarint(in);
+                int status = in.get();
+                Customer occupant = (in.get() != 0) ? decodeCustomer(in) : null;
+                Table[] tables = r.getAllTables();
+                if (index < 0 || index >= tables.length || status < 0 || status > 5) 
+                    throw new IllegalArgumentException("Invalid table state for table " 
+                            + index + ".");
+                tables[index].restore(occupant, status);
+                break;
+            case WAITLIST_ADD:
+                long key = in.getLong();
+                r.getWaitlist().restoreEntry(key, decodeCustomer(in));
+                break;
+            case WAITLIST_REMOVE:
+                long removedKey = in.getLong();
+                String name = getString(in);
+                Customer removed = r.getWaitlist().removeEntry(removedKey);
+                if (removed == null || !removed.getName().equals(name))
+                    throw new IllegalArgumentException("No waitlist entry for " + name 
+                            + " with key " + removedKey + ".");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mutation type " + type + ".");
+        }
+    }
+    
+    /**
+     * Writes a non-negative integer as an unsigned varint.
+     * 
+     * @param out buffer to write to
+     * @param value integer to write
+     */
+    static void putVarint(ByteBuffer out, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    /**
+     * Reads an unsigned varint.
+     * 
+     * @param in buffer to read from
+     * @return the decoded integer
+     * @throws IllegalArgumentException if the varint is longer than 5 bytes
+     */
+    static int getVarint(ByteBuffer in)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+    
+    /**
+     * Returns the number of bytes needed to write the given integer as a varint.
+     * 
+     * @param value non-negative integer
+     * @return encoded length in bytes, between 1 and 5
+     */
+    static int varintSize(int value)
+    {
+        int size = 1;
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * Writes a string as its UTF-8 length followed by its UTF-8 bytes. The 
+     * bytes are written directly into the buffer, one character at a time.
+     * 
+     * @param out buffer to write to
+     * @param s string to write
+     */
+    static void putString(ByteBuffer out, String s)
+    {
+        putVarint(out, utf8Length(s));
+        for (int i = 0; i < s.length(); i++)
+        {
+            char ch = s.charAt(i);
+            if (ch < 0x80) out.put((byte) ch);
+            else if (ch < 0x800)
+            {
+                out.put((byte) (0xC0 | (ch >> 6)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(ch) && i + 1 < s.length() 
+                    && Character.isLowSurrogate(s.charAt(i + 1)))
+            {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            }
+            else
+            {
+                if (Character.isSurrogate(ch)) ch = '?'; // unpaired surrogate
+                out.put((byte) (0xE0 | (ch >> 12)));
+                out.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+    }
+    
+    /**
+     * Reads a string written by putString. Strings in array-backed buffers are 
+     * decoded in place; others are copied out first.
+     * 
+     * @param in buffer to read from
+     * @return the decoded string
+     */
+    static String getString(ByteBuffer in)
+    {
+        int length = getVarint(in);
+        if (length < 0 || length > in.remaining()) throw new IllegalArgumentException(
+                "Invalid string length " + length + ".");
+        
+        String s;
+        if (in.hasArray())
+        {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, 
+                    StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        }
+        else
+        {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+    
+    /**
+     * Returns the number of bytes needed to write the given string with putString.
+     * 
+     * @param s string to measure
+     * @return encoded length in bytes
+     */
+    static int stringSize(String s)
+    {
+        int length = utf8Length(s);
+        return varintSize(length) + length;
+    }
+    
+    /**
+     * Returns the number of bytes in the UTF-8 encoding of the given string, 
+     * as written by putString.
+     * 
+     * @param s string to measure
+     * @return number of UTF-8 bytes
+     */
+    private static int utf8Length(String s)
+    {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++)
+        {
+            char ch = s.charAt(i);
+            if (ch < 0x80) length += 1;
+            else if (ch < 0x800) length += 2;
+            else if (Character.isHighSurrogate(ch) && i + 1 < s.length() 
+                    && Character.isLowSurrogate(s.charAt(i + 1)))
+            {
+                length += 4;
+                i++;
+            }
+            else length += 3;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,39 @@
+package restaurant;
+
+/**
+ * Receives notice of changes to a Restaurant's tables and waitlist. Listeners are added 
+ * with Restaurant.addListener and are called synchronously, on the thread that 
+ * made the change, after the restaurant's own indexes and counters have been 
+ * updated. They should therefore return quickly and must not modify the 
+ * restaurant themselves.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public interface RestaurantListener 
+{
+    /**
+     * Called after a table's status or occupant changes. The new status and 
+     * occupant can be read from the table itself.
+     * 
+     * @param table the table that changed
+     * @param oldStatus the table's status before the change
+     * @param oldOccupant the table's occupant before the change, or null
+     */
+    default void tableChanged(Table table, int oldStatus, Customer oldOccupant) {}
+    
+    /**
+     * Called after a customer is added to the restaurant's waitlist.
+     * 
+     * @param customer the customer who was added
+     */
+    default void customerAdded(Customer customer) {}
+    
+    /**
+     * Called after a customer is removed from the restaurant's waitlist, 
+     * whether to be seated or because they left.
+     * 
+     * @param customer the customer who was removed
+     */
+    default void customerRemoved(Customer customer) {}
+}
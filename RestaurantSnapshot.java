@@ -0,0 +1,227 @@
+package restaurant;
+
+/**
+ * Immutable view of a Restaurant's tables and waitlist at the moment it was 
+ * published (see Restaurant.publish). Snapshots are meant for display boards, 
+ * host tablets and other readers that look at the restaurant far more often 
+ * than it changes: any number of threads can read a snapshot without locking 
+ * and without slowing down the thread that is seating customers.
+ * <p>
+ * A new snapshot copies the previous one's arrays and re-reads only the 
+ * tables that have changed since then, and shares the waitlist's structure 
+ * through Waitlist.snapshot, so publishing is cheap even for large restaurants.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public final class RestaurantSnapshot 
+{
+    private final long version;
+    private final Table[] tables;       // used only for labels and capacities, which never change
+    private final byte[] statuses;
+    private final Customer[] occupants;
+    private final String[] descriptions; // each table's toString, shared with earlier snapshots
+    private final Waitlist waitlist;
+    private final int numOccupied;
+    private final int seatedCovers;
+    
+    /**
+     * Creates a snapshot from the previous one, re-reading the tables whose 
+     * bits are set in changed. If there is no previous snapshot, every table 
+     * is read.
+     */
+    RestaurantSnapshot(RestaurantSnapshot previous, Table[] tables, long[] changed, 
+            Waitlist waitlist, int numOccupied, int seatedCovers)
+    {
+        this.tables = tables;
+        this.waitlist = waitlist;
+        this.numOccupied = numOccupied;
+        this.seatedCovers = seatedCovers;
+        
+        if (previous == null)
+        {
+            version = 0;
+            statuses = new byte[tables.length];
+            occupants = new Customer[tables.length];
+            descriptions = new String[tables.length];
+            for (int i = 0; i < tables.length; i++)
+            {
+                statuses[i] = (byte) tables[i].getStatus();
+                occupants[i] = tables[i].getOccupant();
+                descriptions[i] = tables[i].toString();
+            }
+        }
+        else
+        {
+            version = previous.version + 1;
+            statuses = previous.statuses.clone();
+            occupants = previous.occupants.clone();
+            descriptions = previous.descriptions.clone();
+            for (int word = 0; word < changed.length; word++)
+            {
+                long bits = changed[word];
+                while (bits != 0)
+                {
+                    int i = word * 64 + Long.numberOfTrailingZeros(bits);
+                    statuses[i] = (byte) tables[i].getStatus();
+                    occupants[i] = tables[i].getOccupant();
+                    descriptions[i] = tables[i].toString();
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of snapshots published before this one.
+     * 
+     * @return version number, starting at 0
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+    
+    /**
+     * Returns the number of tables in the restaurant.
+     * 
+     * @return number of tables
+     */
+    public int numTables()
+    {
+        return tables.length;
+    }
+    
+    /**
+     * Returns the label of the table at the given index.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return the table's label
+     */
+    public String getLabel(int i)
+    {
+        return tables[i].getLabel();
+    }
+    
+    /**
+     * Returns the capacity of the table at the given index.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return the table's capacity
+     */
+    public int getCapacity(int i)
+    {
+        return tables[i].getCapacity();
+    }
+    
+    /**
+     * Returns the status the table at the given index had when the snapshot 
+     * was published.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return integer between 0 and 5 inclusive
+     */
+    public int getStatus(int i)
+    {
+        return statuses[i];
+    }
+    
+    /**
+     * Returns the occupant the table at the given index had when the snapshot 
+     * was published.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return the table's occupant, or null if it was unoccupied
+     */
+    public Customer getOccupant(int i)
+    {
+        return occupants[i];
+    }
+    
+    /**
+     * Returns the number of occupied tables.
+     * 
+     * @return number of occupied tables
+     */
+    public int numOccupied()
+    {
+        return numOccupied;
+    }
+    
+    /**
+     * Returns the number of people seated.
+     * 
+     * @return sum of the party sizes of all occupants
+     */
+    public int getSeatedCovers()
+    {
+        return seatedCovers;
+    }
+    
+    /**
+     * Returns the waitlist as it was when the snapshot was published. The 
+     * returned list is the caller's own copy; changing it does not affect the 
+     * snapshot or the restaurant.
+     * 
+     * @return copy of the waitlist
+     */
+    public Waitlist getWaitlist()
+    {
+        return waitlist.snapshot();
+    }
+    
+    /**
+     * Returns the position in line that the customer with the given name had 
+     * when the snapshot was published. This is the query that guests polling 
+     * a remote waitlist should use: snapshots never change, so any number of 
+     * threads can ask at once, and the index of names behind the query is 
+     * built once per snapshot and then shared by every caller.
+     * 
+     * @param partyName name or ID of a Customer
+     * @return position in the waitlist, counting from 1, or 0 if not found
+     */
+    public int positionOf(String partyName)
+    {
+        return waitlist.positionOf(partyName);
+    }
+    
+    /**
+     * Returns the string that the table at the given index's toString 
+     * method would have returned when the snapshot was published. The string 
+     * is made when a snapshot is published after the table changes, and 
+     * shared by every snapshot after that until it changes again, so a board 
+     * that redraws every table costs nothing for the ones that haven't changed.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return string representing the table
+     */
+    public String describeTable(int i)
+    {
+        return descriptions[i];
+    }
+    
+    /**
+     * Returns all tables in the snapshot, one per line, followed by the waitlist.
+     * 
+     * @return string representing the snapshot
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("TABLES:\n");
+        for (int i = 0; i < tables.length; i++)
+            sb.append(describeTable(i)).append('\n');
+        return sb.append("\nWAITLIST:\n").append(waitlist).toString();
+    }
+    
+    /**
+     * Returns whether the snapshot shows the given table as occupied.
+     * 
+     * @param i index of the table, as in Restaurant.getAllTables
+     * @return true if the table had an occupant
+     */
+    public boolean isOccupied(int i)
+    {
+        return occupants[i] != null;
+    }
+}
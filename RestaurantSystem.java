@@ -1,18 +1,24 @@
 package restaurant;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.NoSuchElementException;
 
 /**
  * Runs a command-line menu that gives users the ability to create a restaurant
  * with some basic stats on the restaurant and to manage incoming, waiting, and  
  * seated customers.
  * <p>
- * Version 1.0 of RestaurantSystem does not support a restaurant with tables of 
- * varying sizes; all tables are restricted to the default size of 4 seats. It 
- * and its accompanying classes are, however, designed so that such functionality 
- * could be added with minimal fuss. Very little code needs to be changed or 
- * expanded, other than adding some way or ways of getting those table sizes 
- * from the user during init().
+ * By default, the user is asked for the restaurant's name and number of 
+ * tables, and every table has the default size of 4 seats. A restaurant with 
+ * tables of varying sizes can instead be loaded from a floor plan file (see 
+ * FloorPlanLoader) by passing the file's path as a command-line argument. 
+ * Passing -trace followed by a file name records the session to that file 
+ * (see TraceRecorder) so that it can be replayed later, and passing -notify 
+ * followed by a file name writes the notifications that waiting guests would 
+ * be sent (see NotificationDispatcher) to that file.
  * <p>
  * 1.0 also does not support parties that contain more people than are able to
  * fit at the largest table. If the user wishes to accommodate a larger party, 
@@ -29,36 +35,173 @@ import java.util.Scanner;
 public class RestaurantSystem 
 {
     Restaurant restaurant; 
-    int defaultTableCapacity;
-    Scanner in;
+    SectionRotation rotation;
+    CommandLog history;
+    SeatingLatencyTracker waits;
+    ReleaseForecaster releases;
+    WaitEstimator eta;
+    KitchenQueue kitchen;
+    AdmissionControl admission;
+    TraceRecorder trace;
+    Path traceFile;
+    NotificationDispatcher notifier;
+    FileNotificationSender notificationSender;
+    Path notificationFile;
+    int maxTableCapacity;
+    ConsoleReader in;
     
     /**
      * Creates a new RestaurantSystem object and calls init() to do menu setup.
-     * @param args 
+     * @param args optional path to a floor plan file to load the restaurant from, 
+     * and optionally -trace followed by a file to record the session to and 
+     * -notify followed by a file to write guest notifications to
      */
     public static void main(String[] args) 
     {
         RestaurantSystem system = new RestaurantSystem();
+        String floorPlan = null;
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-trace") && i + 1 < args.length) system.traceFile = Paths.get(args[++i]);
+            else if (args[i].equals("-notify") && i + 1 < args.length)
+                system.notificationFile = Paths.get(args[++i]);
+            else floorPlan = args[i];
+        }
+        if (floorPlan != null)
+        {
+            try
+            {
+                system.restaurant = FloorPlanLoader.load(Paths.get(floorPlan));
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                System.out.println("Could not load floor plan " + floorPlan + ": " 
+                        + e.getMessage());
+                System.exit(1);
+            }
+        }
         system.init();
         System.exit(0);
     }
     
     /**
-     * Gets the restaurant's name and number of tables from the user, creates a 
-     * corresponding Restaurant, and prints a main menu to interact with.
+     * Gets the restaurant's name and number of tables from the user and creates 
+     * a corresponding Restaurant, unless one has already been loaded from a 
+     * floor plan, and prints a main menu to interact with.
      */
     public void init()
     {
-        in = new Scanner(System.in);
+        in = new ConsoleReader(System.in);
         
+        try
+        {
+            if (restaurant == null) createRestaurant();
+            maxTableCapacity = restaurant.getMaxCapacity();
+            rotation = new SectionRotation(restaurant);
+            history = new CommandLog(restaurant);
+            waits = new SeatingLatencyTracker(restaurant);
+            releases = new ReleaseForecaster(restaurant);
+            eta = new WaitEstimator(restaurant);
+            kitchen = new KitchenQueue(restaurant);
+            admission = new AdmissionControl(restaurant);
+            waits.setBreachListener((customer, waitMillis, limitMillis, seated) -> 
+                    System.out.println("\nNote: " + customer + " has " 
+                    + (seated ? "been seated after waiting " : "been waiting for ") 
+                    + minutes(waitMillis) + ", longer than the " + minutes(limitMillis) 
+                    + " limit."));
+            if (traceFile != null) startTrace();
+            if (notificationFile != null) startNotifications();
+            
+            runMainMenu();
+        }
+        catch (NoSuchElementException e)
+        {
+            // Input was closed (end of a piped script, or Ctrl-D); treat it like "quit"
+            System.out.println();
+        }
+        if (notifier != null) stopNotifications();
+        if (trace != null)
+        {
+            try
+            {
+                trace.close();
+            }
+            catch (IOException e)
+            {
+                System.out.println("Could not finish writing trace " + traceFile + ": " 
+                        + e.getMessage());
+            }
+        }
+        in.close();
+    }
+    
+    /**
+     * Starts recording the session to the trace file, or says why it can't.
+     */
+    private void startTrace()
+    {
+        try
+        {
+            trace = new TraceRecorder(restaurant, traceFile);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not open trace " + traceFile + ": " + e.getMessage()
+                    + "; continuing without a trace.");
+        }
+    }
+    
+    /**
+     * Starts writing guest notifications to the notification file, or says 
+     * why it can't.
+     */
+    private void startNotifications()
+    {
+        try
+        {
+            notificationSender = new FileNotificationSender(notificationFile);
+            notifier = new NotificationDispatcher(restaurant, notificationSender);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not open notification file " + notificationFile + ": " 
+                    + e.getMessage() + "; continuing without notifications.");
+        }
+    }
+    
+    /**
+     * Sends any notifications still queued and closes the notification file.
+     */
+    private void stopNotifications()
+    {
+        notifier.close();
+        try
+        {
+            notificationSender.close();
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not close notification file " + notificationFile + ": " 
+                    + e.getMessage());
+        }
+        if (notifier.droppedCount() + notifier.failedCount() > 0)
+            System.out.println(notifier.droppedCount() + " notifications were dropped and " 
+                    + notifier.failedCount() + " could not be written.");
+    }
+    
+    /**
+     * Gets the restaurant's name and number of tables from the user and creates 
+     * a Restaurant whose tables all have the default capacity.
+     */
+    private void createRestaurant()
+    {
         // Get name
         String name = "";
         boolean validInput = false;
         while (!validInput)
         {
             System.out.print("Name of restaurant: ");
-            name = in.nextLine();
-            name = name.trim().replaceAll("\t\n", "");
+            name = in.readLine();
             if (!name.isEmpty()) validInput = true;
             else System.out.println("Please enter a name.");
         }
@@ -67,21 +210,15 @@ public class RestaurantSystem
         while (!validInput)
         {
             System.out.print("How many tables does it have? ");
-            if (in.hasNextInt())
+            in.next();
+            if (in.isInt())
             {
-                int numTables = in.nextInt();
+                int numTables = in.intValue();
                 if (numTables > 0) 
                 {
+                    // All tables get the default size of 4; restaurants with 
+                    // other table sizes are loaded from a floor plan instead
                     restaurant = new Restaurant(name, numTables);
-                    /*
-                    For this version, all tables are assumed to be size 4. Future 
-                    versions of this program could support restaurants that 
-                    have tables of multiple different sizes, or of a size other 
-                    than 4 - either by prompting the user for that info or by 
-                    reading it from a file. Restaurant has two extra constructors 
-                    with that functionality in mind.
-                    */
-                    defaultTableCapacity = 4;
                     validInput = true;
                 }
                 else System.out.println("Please enter a number greater than 0.");
@@ -90,13 +227,18 @@ public class RestaurantSystem
             {
                 System.out.println("Please enter a valid number.");
             }
-            in.nextLine();
         }
-        
-        // Print main menu
+    }
+    
+    /**
+     * Prints the main menu and processes choices until the user quits.
+     */
+    private void runMainMenu()
+    {
         boolean quit = false;
         while (!quit)
         {
+            waits.checkWaiting();
             System.out.println("\n\t\t" + restaurant.getName().toUpperCase() + "\n");
             System.out.println("Please enter a number for one of the following options, or enter \"quit\" to quit:");
             System.out.println("1.\tAdd an incoming patron");
@@ -105,32 +247,32 @@ public class RestaurantSystem
             System.out.println("4.\tView all tables");
             System.out.println("5.\tView the waitlist");
             System.out.println("6.\tView all patrons");
+            System.out.println("7.\tUndo the last change");
+            System.out.println("8.\tRedo the last undone change");
+            System.out.println("9.\tFull-screen view of tables and waitlist");
             
             // Get a valid input and process it before reprinting the main menu
             boolean validChoice = false;
             while (!validChoice)
             {
-                if (in.hasNextInt()) 
+                in.next();
+                if (in.isInt()) 
                 {
-                    int choice = in.nextInt();
-                    in.nextLine();
-                    validChoice = processChoice(choice);
+                    validChoice = processChoice(in.intValue());
+                    restaurant.publish(); // so that the full-screen board sees the change
                 }
                 else
                 {
-                    String choice = in.next();
-                    if (choice.equalsIgnoreCase("quit") || choice.equalsIgnoreCase("q"))
+                    if (in.equalsIgnoreCase("quit") || in.equalsIgnoreCase("q"))
                     {
                         validChoice = true;
                         quit = true;
                     }
                 }
                 if (!validChoice) System.out.println("Please enter a number"
-                        + " between 1 and 6, or \"quit\" to quit.");
+                        + " between 1 and 9, or \"quit\" to quit.");
             }
         }
-        
-        in.close();
     }
     
     /**
@@ -150,6 +292,9 @@ public class RestaurantSystem
             case 4: viewTables(); return true;
             case 5: viewWaitlist(); return true;
             case 6: viewCustomers(); return true;
+            case 7: undo(); return true;
+            case 8: redo(); return true;
+            case 9: new ConsoleBoard(restaurant, Screen.forConsole()).run(in); return true;
             default: return false;
         }
     }
@@ -173,7 +318,7 @@ public class RestaurantSystem
         while (!validInput)
         {
             System.out.print("Patron's name: ");
-            name = in.nextLine().trim().replaceAll("\t\n", "");
+            name = in.readLine();
             if (!name.isEmpty()) validInput = true;
             else System.out.println("Please enter a name.");
         }
@@ -182,15 +327,15 @@ public class RestaurantSystem
         while (!validInput)
         {
             System.out.print("Size of patron's party: ");
-            if (in.hasNextInt())
+            in.next();
+            if (in.isInt())
             {
-                partySize = in.nextInt();
-                if (partySize > 0 && partySize <= defaultTableCapacity) validInput = true;
+                partySize = in.intValue();
+                if (partySize > 0 && partySize <= maxTableCapacity) validInput = true;
                 else System.out.println("Please enter a number greater than 0 and "
-                        + "no more than " + defaultTableCapacity + ".");
+                        + "no more than " + maxTableCapacity + ".");
             }
             else System.out.println("Please enter a valid number.");
-            in.nextLine();
         }
         // Get reservation info
         validInput = false;
@@ -198,7 +343,7 @@ public class RestaurantSystem
         {
             System.out.print("Does this " + ((partySize == 1) ? "person" : "party") 
                     + " have a reservation? (y/n) ");
-            input = in.nextLine().trim().replaceAll("\t\n", "");
+            input = in.readLine();
             if (input.equalsIgnoreCase("yes") || input.equalsIgnoreCase("y"))
             {
                 hasReservation = true;
@@ -212,20 +357,73 @@ public class RestaurantSystem
             else System.out.println("Please enter yes or no.");
         }
         
-        Customer newCustomer = new Customer(name, partySize, hasReservation);
-        Table[] availTables = restaurant.getAvailTables(partySize);
+        // Get seating preferences, if this restaurant has tables that differ
+        EnumSet<TableAttribute> preferences = EnumSet.noneOf(TableAttribute.class);
+        boolean hasAttributes = false;
+        for (Table t : restaurant.getAllTables())
+            if (!t.getAttributes().isEmpty()) hasAttributes = true;
+        validInput = !hasAttributes;
+        while (!validInput)
+        {
+            System.out.print("Seating preferences (booth, patio, window, accessible; "
+                    + "separate with commas, or press enter for none): ");
+            input = in.readLine();
+            preferences.clear();
+            validInput = true;
+            for (String word : input.split(","))
+            {
+                if (word.trim().isEmpty()) continue;
+                try
+                {
+                    preferences.add(TableAttribute.parse(word.trim()));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    System.out.println(e.getMessage());
+                    validInput = false;
+                }
+            }
+        }
+        
+        Customer newCustomer = new Customer(name, partySize, hasReservation, preferences);
+        if (trace != null && preferences.isEmpty()) trace.recordAvailTables(partySize);
+        Table[] availTables = restaurant.getAvailTables(newCustomer);
+        if (availTables.length == 0 && !preferences.isEmpty())
+        {
+            if (trace != null) trace.recordAvailTables(partySize);
+            availTables = restaurant.getAvailTables(partySize);
+            if (availTables.length != 0) System.out.println("\nNo free table has all of the "
+                    + "requested features (" + TableAttribute.describe(TableAttribute.mask(preferences)) 
+                    + "), so other tables will be offered.");
+        }
         
         // No tables available; add customer to waitlist
         if (availTables.length == 0)
         {
-            restaurant.getWaitlist().add(newCustomer);
-            System.out.println("\n" + newCustomer + " has been added to the waitlist.");
+            AdmissionControl.Decision decision = admission.decide(newCustomer);
+            if (decision.getKind() != AdmissionControl.Kind.ADMIT && !confirmAdmission(decision))
+            {
+                System.out.println("\n" + newCustomer + " was not added to the waitlist.");
+                System.out.print("\n(Press enter to continue) ");
+                in.skipLine();
+                return;
+            }
+            history.addToWaitlist(newCustomer);
+            System.out.println("\n" + newCustomer + " has been added to the waitlist, with "
+                    + "a quoted wait of about " + minutes(decision.getQuotedWait()) + ".");
+            ReleaseForecaster.Forecast next = releases.nextAvailable(partySize);
+            if (next != null) System.out.println("The next table for this party is expected "
+                    + "to be Table " + next.getTable().getLabel() + ", in about " 
+                    + minutes(Math.max(0, next.getReleaseTime() - System.currentTimeMillis())) + ".");
             System.out.print("\n(Press enter to continue) ");
-            in.nextLine();
+            in.skipLine();
             return;
         }
         
-        Table seatHere = availTables[0];
+        printPacingHint();
+        
+        // Suggest a table in whichever section is least busy
+        Table seatHere = rotation.pickTable(availTables);
         
         // Only one table available - don't add options
         if (availTables.length == 1)
@@ -234,7 +432,7 @@ public class RestaurantSystem
                     + seatHere.getLabel() + " (" + seatHere.getCapacity() 
                     + " seats).");
             System.out.print("\n(This is the only available table; press enter to continue) ");
-            in.nextLine();
+            in.skipLine();
         }
         else
         {
@@ -245,7 +443,7 @@ public class RestaurantSystem
                     + "different table) ");
             // Any input that isn't an empty line can be interpreted as "cancel," since 
             // what follows is essentially just an expanded version of the seating dialog.
-            input = in.nextLine().trim().replaceAll("\t\n", "");
+            input = in.readLine();
             boolean approvedToSeat = false;
             if (input.isEmpty()) 
                 approvedToSeat = true;
@@ -259,7 +457,7 @@ public class RestaurantSystem
                 validInput = false;
                 while (!validInput)
                 {
-                    input = in.nextLine().trim().replaceAll("\t\n", "");
+                    input = in.readLine();
                     for (Table option : availTables)
                     {
                         if (option.getLabel().equals(input))
@@ -273,10 +471,10 @@ public class RestaurantSystem
                 }
                 System.out.println("\n" + newCustomer + " may be seated at Table " + input + ".");
                 System.out.print("\n(Press enter to continue) ");
-                in.nextLine();
+                in.skipLine();
             }
         }
-        boolean success = seatHere.seat(newCustomer);
+        boolean success = history.seat(seatHere, newCustomer);
         
         if (!success) // This should never happen
             System.out.println(newCustomer + " could not be seated "
@@ -292,25 +490,15 @@ public class RestaurantSystem
     private void viewEditCustomer()
     {
         System.out.println("\tVIEW OR EDIT A PATRON");
-        Table[] allTables = restaurant.getAllTables();
         Waitlist waiting = restaurant.getWaitlist();
         
         // Exit early if there isn't at least one customer in the restaurant 
         // (avoids infinite loop later)
-        boolean noCustomers = true;
-        for (Table table : allTables)
-        {
-            if (table.getOccupant() != null) 
-            {
-                noCustomers = false;
-                break;
-            }
-        }
-        if (noCustomers)
+        if (restaurant.numOccupied() == 0)
         {
             System.out.println("There are no patrons currently at " + restaurant.getName() + ".");
             System.out.print("\n(Press enter to continue) ");
-            in.nextLine();
+            in.skipLine();
             return;
         }
         
@@ -320,20 +508,16 @@ public class RestaurantSystem
         while (requested == null)
         {
             System.out.print("Patron's name/identifier: ");
-            String name = in.nextLine().trim().replaceAll("\t\n", "");
+            String name = in.readLine();
             
-            for (Table table : allTables) // Check tables
-            {
-                Customer occupant = table.getOccupant();
-                if (occupant != null && occupant.getName().equalsIgnoreCase(name))
-                {
-                    requested = table.getOccupant();
-                    seatedAt = table;
-                    break;
-                }
-            }
+            if (trace != null) trace.recordFindSeated(name);
+            seatedAt = restaurant.findSeated(name); // Check tables
+            if (seatedAt != null) requested = seatedAt.getOccupant();
             if (requested == null) // Not found at a table
+            {
+                if (trace != null) trace.recordFindWaiting(name);
                 requested = waiting.find(name);
+            }
             if (requested == null) // Not found in the waitlist either
             {
                 System.out.println("Patron named " + name + " was not found. "
@@ -345,33 +529,40 @@ public class RestaurantSystem
         }
         
         if (seatedAt != null) System.out.println("\n" + seatedAt);
-        else System.out.println("\n" + requested + " is waiting for a table.");
+        else
+        {
+            if (trace != null) trace.recordPositionOf(requested.getName());
+            int position = waiting.positionOf(requested.getName());
+            System.out.println("\n" + requested + " is waiting for a table (number " 
+                    + position + " in line, about " + minutes(eta.estimateWait(position)) 
+                    + " to go).");
+        }
         
         System.out.print("\n(Enter \"delete\" to delete this patron, or press enter "
                 + "to return to the main menu) ");
         // All input not equal to "delete" is interpreted as a return to the menu
-        String input = in.nextLine().trim().replaceAll("\t\r", "");
+        String input = in.readLine();
         if (input.equalsIgnoreCase("delete"))
         {
             System.out.print("This will remove " + requested + " from the "
                     + "restaurant. Are you sure you want to continue? (yes/no)");
-            input = in.nextLine().trim().replaceAll("\t\r", "");
+            input = in.readLine();
             if (input.equalsIgnoreCase("yes") || input.equalsIgnoreCase("y"))
             {
                 if (seatedAt != null)
                 {
-                    boolean success = seatedAt.vacate();
+                    boolean success = history.vacate(seatedAt);
                     if (!success) System.out.println("Unable to remove patron from table.");
                     System.out.println("\n" + seatedAt);
                 }
-                else 
+                else
                 {
-                    waiting.remove(requested.getName());
+                    history.removeFromWaitlist(requested.getName());
                     System.out.println("\n" + requested + " has been removed "
                             + "from the waitlist.");
                 }
                 System.out.print("\n(Press enter to continue) ");
-                in.nextLine();
+                in.skipLine();
             }
         }
     }
@@ -392,7 +583,7 @@ public class RestaurantSystem
         while (requested == null)
         {
             System.out.print("Table number: ");
-            String num = in.nextLine().trim().replaceAll("\t\n", "");
+            String num = in.readLine();
             
             for (Table table : allTables) // Check tables
             {
@@ -414,7 +605,7 @@ public class RestaurantSystem
         System.out.println("\n" + requested);
         System.out.print("\nUpdate this table's status? (y/n) ");
         // All input not equal to "yes" or "y" is interpreted as "no"
-        String input = in.nextLine().trim().replaceAll("\t\r", "");
+        String input = in.readLine();
         if (input.equalsIgnoreCase("yes") || input.equalsIgnoreCase("y"))
         {
             System.out.println("Enter a number for the new status, or enter \"+\" to increment by one level:");
@@ -424,17 +615,17 @@ public class RestaurantSystem
             System.out.println("3\tServed");
             System.out.println("4\tCheck delivered");
             System.out.println("5\tTable vacated");
-
+            
             // Get valid new status
             boolean validInput = false;
             int newStatus = requested.getStatus();
             int oldStatus = requested.getStatus();
             while (!validInput)
             {
-                if (in.hasNextInt())
+                in.next();
+                if (in.isInt()) 
                 {
-                   newStatus = in.nextInt();
-                   in.nextLine();
+                   newStatus = in.intValue();
                    if (newStatus >= 0 && newStatus <= 5)
                    {
                        if ((oldStatus == 0 || oldStatus == 5) && 
@@ -449,8 +640,7 @@ public class RestaurantSystem
                 }
                 else
                 {
-                    input = in.nextLine().trim().replaceAll("\t\r", "");
-                    if (input.equals("+"))
+                    if (in.equalsIgnoreCase("+"))
                     {
                         newStatus++;
                         if (newStatus == 6) newStatus = 0;
@@ -472,20 +662,31 @@ public class RestaurantSystem
             {
                 System.out.print("This will remove " + requested.getOccupant()
                     + " from the restaurant. Are you sure you want to continue? (yes/no) ");
-                input = in.nextLine().trim().replaceAll("\t\r", "");
+                input = in.readLine();
                 if (input.equalsIgnoreCase("yes") || input.equalsIgnoreCase("y"))
                 {
-                    success = requested.vacate();
+                    success = history.vacate(requested);
                     if (!success) System.out.println("Unable to clear table occupant.");
                 }
             }
             else 
             {
-                success = requested.setStatus(newStatus);
+                success = history.setStatus(requested, newStatus);
                 if (!success) System.out.println("Unable to update table status.");
             }
             System.out.println("\n" + requested + "\n");
             
+            // If the check was just delivered, say who is likely to get the table next
+            if (requested.getStatus() == 4 && oldStatus != 4)
+            {
+                System.out.print("Table " + requested.getLabel() + " should be ready in about " 
+                        + minutes(releases.getEstimate(requested.getCapacity())));
+                Customer next = restaurant.getWaitlist()
+                        .getPartiesSeatable(requested.getCapacity()).peek();
+                if (next == null) System.out.println(".");
+                else System.out.println("; " + next + " can be seated there next.");
+            }
+            
             // If table is now "Ready for patrons," check to see if someone from 
             // the waitlist can be seated at it
             if (requested.getStatus() == 0)
@@ -503,17 +704,18 @@ public class RestaurantSystem
                 }
                 else if (seatable.length() != 1) // Results in repetitive messaging when there's only one option
                 {
+                    printPacingHint();
                     Customer toSeat = seatable.peek();
                     System.out.println(" for " + toSeat + ".");
                     System.out.print("\n(Press enter to seat, or type \"cancel\" "
                         + "to seat a different patron at this table) ");
                     // Any input that isn't an empty line can be interpreted as "cancel," since 
                     // what follows is essentially just an expanded version of the seating dialog.
-                    input = in.nextLine().trim().replaceAll("\t\n", "");
+                    input = in.readLine();
                     boolean approvedToSeat = false;
                     if (input.isEmpty()) 
                         approvedToSeat = true;
-
+                    
                     if (!approvedToSeat)
                     {
                         System.out.println("\nThe patrons waiting for a table of this size are: " + seatable);
@@ -521,23 +723,46 @@ public class RestaurantSystem
                         success = false;
                         while (!success)
                         {
-                            input = in.nextLine().trim().replaceAll("\t\n", "");
+                            input = in.readLine();
                             toSeat = seatable.find(input);
                             if (toSeat == null) System.out.print(input + " was not found. Please try again: ");
+                            else success = true;
                         }
                     }
-                    success = restaurant.getWaitlist().remove(toSeat.getName());
-                    if (!success) System.out.println("Could not remove from waitlist.");
-                    success = requested.seat(toSeat);
+                    success = history.seatFromWaitlist(requested, toSeat.getName());
                     if (!success) System.out.println("Could not seat patron at table.");
                     System.out.println("\n" + toSeat + " may be seated at Table " + requested.getLabel() + ".");
                 }
             }
             System.out.print("\n(Press enter to continue) ");
-            in.nextLine();
+            in.skipLine();
         }
     }
     
+    /**
+     * Undoes the most recent change to the tables or waitlist, if any.
+     */
+    private void undo()
+    {
+        String undone = history.undo();
+        if (undone == null) System.out.println("There is nothing to undo.");
+        else System.out.println("Undid: " + undone + ".");
+        System.out.print("\n(Press enter to continue) ");
+        in.skipLine();
+    }
+    
+    /**
+     * Redoes the most recently undone change, if any.
+     */
+    private void redo()
+    {
+        String redone = history.redo();
+        if (redone == null) System.out.println("There is nothing to redo.");
+        else System.out.println("Redid: " + redone + ".");
+        System.out.print("\n(Press enter to continue) ");
+        in.skipLine();
+    }
+    
     /**
      * Prints all tables and their statuses.
      */
@@ -551,20 +776,31 @@ public class RestaurantSystem
             System.out.print("There are " + allTables.length + " tables in " 
                 + restaurant.getName());
         
-        int full = 0;
-        int vacant = 0;
-        for (Table table : allTables)
+        int full = restaurant.numOccupied();
+        int vacant = allTables.length - full;
+        System.out.println(" (" + full + " in use and " + vacant + " empty).");
+        System.out.println(restaurant.getSeatedCovers() + " patrons are seated at " 
+                + restaurant.getOccupiedSeats() + " seats. Tables by status: " 
+                + restaurant.getTablesWithStatus(0) + " ready, "
+                + restaurant.getTablesWithStatus(1) + " ordering, "
+                + restaurant.getTablesWithStatus(2) + " waiting for food, "
+                + restaurant.getTablesWithStatus(3) + " served, "
+                + restaurant.getTablesWithStatus(4) + " with check, "
+                + restaurant.getTablesWithStatus(5) + " vacated.");
+        if (kitchen.queueDepth() > 0)
         {
-            if (table.getOccupant() == null) vacant++;
-            else full++;
+            KitchenQueue.Ticket next = kitchen.nextTicket(0);
+            System.out.println("Kitchen: " + kitchen.queueDepth() + " orders waiting; next up is " 
+                    + next + ((kitchen.getAverageTicketTime() == 0) ? "." 
+                    : " (orders take about " + minutes(kitchen.getAverageTicketTime()) + ")."));
         }
-        System.out.println(" (" + full + " in use and " + vacant + " empty).\n");
+        System.out.println();
         
         for (Table table : allTables)
             System.out.println(table);
         
         System.out.print("\n(Press enter to continue) ");
-        in.nextLine();
+        in.skipLine();
     }
     
     /**
@@ -587,11 +823,20 @@ public class RestaurantSystem
             System.out.println("Parties with a reservation:\t" + withRes);
             System.out.println("Parties without a reservation:\t" + withoutRes + "\n");
         }
+        for (int kind = 1; kind >= 0; kind--)
+        {
+            SeatingLatencyTracker.Histogram seated = waits.getHistogram(kind == 1);
+            if (seated.count() == 0) continue;
+            System.out.println("Median wait before seating (" 
+                    + ((kind == 1) ? "reservations" : "walk-ins") + "):\t" 
+                    + minutes(seated.percentile(50)) + " (95th percentile " 
+                    + minutes(seated.percentile(95)) + ")");
+        }
         
         System.out.println(waiting);
         
         System.out.print("\n(Press enter to continue) ");
-        in.nextLine();
+        in.skipLine();
     }
     
     /**
@@ -613,7 +858,7 @@ public class RestaurantSystem
         System.out.println("\nTotal patrons: " + (numFound + waiting.length()));
         
         System.out.print("\n(Press enter to continue) ");
-        in.nextLine();
+        in.skipLine();
     }
     
     /**
@@ -624,19 +869,69 @@ public class RestaurantSystem
      */
     private int printAllSeatedCustomers()
     {
-        Table[] allTables = restaurant.getAllTables();
+        Table[] seatedTables = restaurant.getOccupiedTables();
         
-        int numFound = 0;
-        for (Table table : allTables)
+        for (Table table : seatedTables)
         {
-            if (table.getOccupant() != null) 
-            {
-                System.out.println(table.getOccupant() + "\tSeated at Table " + 
-                        table.getLabel() + "");
-                numFound++;
-            }
+            System.out.println(table.getOccupant() + "\tSeated at Table " + 
+                    table.getLabel() + "");
         }
         
-        return numFound;
+        return seatedTables.length;
+    }
+    
+    /**
+     * Explains why a walk-in should not simply be added to the waitlist and 
+     * asks whether to add them anyway.
+     * 
+     * @param decision decision from the admission control
+     * @return true if the user chose to add the party
+     */
+    private boolean confirmAdmission(AdmissionControl.Decision decision)
+    {
+        String wait = minutes(decision.getQuotedWait());
+        switch (decision.getKind())
+        {
+            case QUOTE:
+                System.out.print("\nThe quoted wait is about " + wait + ". Does the party "
+                        + "want to wait? (y/n) ");
+                break;
+            case THROTTLE:
+                System.out.print("\nWalk-ins are arriving faster than tables are turning "
+                        + "(quoted wait about " + wait + "). Suggest that the party check "
+                        + "back in about " + minutes(decision.getRetryAfter()) 
+                        + ". Add them to the waitlist anyway? (y/n) ");
+                break;
+            default:
+                System.out.print("\nThe wait is about " + wait + ", which is too long to "
+                        + "take more walk-ins. Add the party to the waitlist anyway? (y/n) ");
+                break;
+        }
+        String input = in.readLine();
+        return input.equalsIgnoreCase("yes") || input.equalsIgnoreCase("y");
+    }
+    
+    /**
+     * Warns the host if the kitchen has more open tickets than it can keep up 
+     * with, so that seating another party now would only make them wait.
+     */
+    private void printPacingHint()
+    {
+        long delay = kitchen.getPacingDelay();
+        if (delay > 0) System.out.println("\nThe kitchen is busy (" + kitchen.queueDepth() 
+                + " orders waiting); consider waiting about " + minutes(delay) 
+                + " before seating another party.");
+    }
+    
+    /**
+     * Formats a duration as a whole number of minutes, for messages about wait times.
+     * 
+     * @param millis duration in milliseconds
+     * @return duration such as "12 minutes"
+     */
+    private static String minutes(long millis)
+    {
+        long m = Math.round(millis / 60_000.0);
+        return m + ((m == 1) ? " minute" : " minutes");
     }
 }
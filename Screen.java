@@ -0,0 +1,297 @@
+package restaurant;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Model of a full-screen terminal display, for views that are redrawn many
+ * times a second over slow connections. Text is drawn into an off-screen
+ * copy of the screen; flush then compares it with what the terminal is
+ * already showing and sends only the parts of each line that have changed,
+ * using ANSI escape sequences to move the cursor, all in a single write.
+ * A frame in which nothing has changed sends nothing at all.
+ * <p>
+ * Tabs are expanded to the next multiple of 8 columns, and text that runs
+ * past the right edge is cut off. Methods are synchronized, so one thread
+ * can redraw the screen while another waits for input.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class Screen
+{
+    private static final String CSI = "\033[";
+    private static final String SAVE_CURSOR = "\0337";
+    private static final String RESTORE_CURSOR = "\0338";
+    private static final char UNKNOWN = '\0'; // in shown, forces the cell to be sent
+    private static final int MIN_GAP = 8;     // unchanged cells worth a cursor movement to skip
+    
+    private final PrintStream out;
+    private final int rows, cols;
+    private final char[][] drawn;  // next frame
+    private final char[][] shown;  // what the terminal is showing
+    private final StringBuilder frame = new StringBuilder();
+    private int cursorRow = -1, cursorCol;  // where flush leaves the cursor; -1 = where it was
+    
+    /**
+     * Creates a screen of the given size that writes to the given stream.
+     * 
+     * @param out stream connected to the terminal
+     * @param rows number of lines on the terminal
+     * @param cols number of columns on the terminal
+     * @throws IllegalArgumentException if rows or cols is less than 1
+     */
+    public Screen(PrintStream out, int rows, int cols)
+    {
+        if (rows < 1 || cols < 1) throw new IllegalArgumentException("Screen must have "
+                + "at least one row and one column.");
+        this.out = out;
+        this.rows = rows;
+        this.cols = cols;
+        drawn = new char[rows][cols];
+        shown = new char[rows][cols];
+        for (char[] line : drawn) Arrays.fill(line, ' ');
+        for (char[] line : shown) Arrays.fill(line, UNKNOWN);
+    }
+    
+    /**
+     * Creates a screen that writes to standard output, sized from the LINES
+     * and COLUMNS environment variables, or 24 by 80 if they are not set.
+     * 
+     * @return new Screen object
+     */
+    public static Screen forConsole()
+    {
+        return new Screen(System.out, sizeFromEnvironment("LINES", 24),
+                sizeFromEnvironment("COLUMNS", 80));
+    }
+    
+    /**
+     * Returns the number of lines on the screen.
+     * 
+     * @return number of rows
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+    
+    /**
+     * Returns the number of columns on the screen.
+     * 
+     * @return number of columns
+     */
+    public int getCols()
+    {
+        return cols;
+    }
+    
+    /**
+     * Switches the terminal to its alternate screen, so that whatever was
+     * there before is put back by end, and clears it.
+     */
+    public synchronized void begin()
+    {
+        out.print(CSI + "?1049h" + CSI + "2J" + CSI + "H");
+        out.flush();
+        for (char[] line : shown) Arrays.fill(line, ' ');
+    }
+    
+    /**
+     * Switches the terminal back from its alternate screen.
+     */
+    public synchronized void end()
+    {
+        out.print(CSI + "?1049l");
+        out.flush();
+    }
+    
+    /**
+     * Blanks the next frame, so that it can be drawn from scratch. Nothing
+     * is sent to the terminal until flush.
+     */
+    public synchronized void clear()
+    {
+        for (char[] line : drawn) Arrays.fill(line, ' ');
+    }
+    
+    /**
+     * Draws text into the next frame, starting at the given position. Nothing
+     * is sent to the terminal until flush.
+     * 
+     * @param row line to draw on, from 0 at the top
+     * @param col column to start at, from 0 at the left
+     * @param text text to draw, which should not contain newlines
+     * @return column just after the end of the text
+     */
+    public synchronized int print(int row, int col, String text)
+    {
+        return put(row, col, cols, text);
+    }
+    
+    /**
+     * Draws text into the next frame, filling the rest of the given width with
+     * spaces so that nothing is left over from a longer line.
+     * 
+     * @param row line to draw on, from 0 at the top
+     * @param col column to start at, from 0 at the left
+     * @param width number of columns the text may use
+     * @param text text to draw, which should not contain newlines
+     */
+    public synchronized void print(int row, int col, int width, String text)
+    {
+        if (row < 0 || row >= rows) return;
+        int end = Math.min(col + width, cols);
+        int next = put(row, col, end, text);
+        if (next < end) Arrays.fill(drawn[row], next, end, ' ');
+    }
+    
+    /**
+     * Sets where the cursor is left after the next flush, such as at the end
+     * of a prompt. Otherwise flush leaves the cursor where it was, so that a
+     * background redraw doesn't disturb what the user is typing.
+     * 
+     * @param row line of the cursor
+     * @param col column of the cursor
+     */
+    public synchronized void setCursor(int row, int col)
+    {
+        cursorRow = Math.max(0, Math.min(row, rows - 1));
+        cursorCol = Math.max(0, Math.min(col, cols - 1));
+    }
+    
+    /**
+     * Makes the next flush resend the whole screen, such as after the terminal
+     * has been disturbed by other output.
+     */
+    public synchronized void invalidate()
+    {
+        for (char[] line : shown) Arrays.fill(line, UNKNOWN);
+    }
+    
+    /**
+     * Makes the next flush resend one line, such as after the terminal has
+     * echoed what the user typed on it.
+     * 
+     * @param row line to resend
+     */
+    public synchronized void invalidate(int row)
+    {
+        if (row >= 0 && row < rows) Arrays.fill(shown[row], UNKNOWN);
+    }
+    
+    /**
+     * Sends the changes between the terminal and the next frame, in a single
+     * write, and remembers the frame as what the terminal is showing.
+     * 
+     * @return number of characters written
+     */
+    public synchronized int flush()
+    {
+        frame.setLength(0);
+        boolean moveCursor = cursorRow >= 0;
+        if (!moveCursor) frame.append(SAVE_CURSOR);
+        
+        int mark = frame.length();
+        for (int r = 0; r < rows; r++)
+        {
+            char[] next = drawn[r], now = shown[r];
+            int c = 0;
+            while (c < cols)
+            {
+                if (next[c] == now[c])
+                {
+                    c++;
+                    continue;
+                }
+                // Extend the run over short unchanged gaps, which are cheaper 
+                // to resend than to skip with another cursor movement
+                int end = c + 1, same = 0;
+                for (int j = end; j < cols && same < MIN_GAP; j++)
+                {
+                    if (next[j] == now[j]) same++;
+                    else
+                    {
+                        same = 0;
+                        end = j + 1;
+                    }
+                }
+                c = sendRun(r, c, end);
+            }
+        }
+        boolean changed = frame.length() > mark;
+        
+        if (moveCursor)
+        {
+            frame.append(CSI).append(cursorRow + 1).append(';').append(cursorCol + 1).append('H');
+            cursorRow = -1;
+        }
+        else if (changed) frame.append(RESTORE_CURSOR);
+        else frame.setLength(0);
+        
+        if (frame.length() > 0)
+        {
+            out.append(frame);
+            out.flush();
+        }
+        return frame.length();
+    }
+    
+    /**
+     * Adds the characters of the next frame from column start up to end on 
+     * the given row to the frame being sent, marks them as shown, and returns 
+     * the column after the last one sent.
+     */
+    private int sendRun(int row, int start, int end)
+    {
+        char[] next = drawn[row];
+        frame.append(CSI).append(row + 1).append(';').append(start + 1).append('H');
+        
+        // If the rest of the line is blank, clear to the end of the line 
+        // rather than sending the blanks
+        int text = cols;
+        while (text > start && next[text - 1] == ' ') text--;
+        if (text < end)
+        {
+            frame.append(next, start, text - start).append(CSI).append('K');
+            end = cols;
+        }
+        else frame.append(next, start, end - start);
+        System.arraycopy(next, start, shown[row], start, end - start);
+        return end;
+    }
+    
+    /**
+     * Draws text into the next frame, stopping before column end, and returns
+     * the column after the last character drawn.
+     */
+    private int put(int row, int col, int end, String text)
+    {
+        if (row < 0 || row >= rows) return col;
+        char[] line = drawn[row];
+        for (int i = 0; i < text.length() && col < end; i++)
+        {
+            char c = text.charAt(i);
+            if (c == '\t')
+            {
+                int stop = Math.min((col / 8 + 1) * 8, end);
+                while (col < stop) line[col++] = ' ';
+            }
+            else line[col++] = (c < ' ') ? ' ' : c;
+        }
+        return col;
+    }
+    
+    private static int sizeFromEnvironment(String name, int fallback)
+    {
+        try
+        {
+            int size = Integer.parseInt(System.getenv(name));
+            return (size > 0) ? size : fallback;
+        }
+        catch (NumberFormatException e)
+        {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package restaurant;
+
+import java.time.Clock;
+import java.util.Arrays;
+
+/**
+ * Measures how long parties wait between joining a restaurant's waitlist and
+ * being seated, and reports waits that exceed a service-level objective (for
+ * example, reservations waiting more than 10 minutes).
+ * <p>
+ * The tracker listens to the restaurant: it notes the time when a customer is
+ * added to the waitlist, and when that same customer is removed from the
+ * waitlist and then seated at a table, it records the wait in a histogram.
+ * Waits are kept separately for reservations and walk-ins and by party size
+ * (1 through 7, with larger parties counted together), so that, for example,
+ * the 95th percentile wait for walk-in parties of 6 can be looked up directly.
+ * Parties who leave the waitlist without being seated are not counted.
+ * <p>
+ * Enqueue times are kept in an identity hash table of parallel arrays, and the
+ * histograms are fixed arrays of counters, so recording an event does not
+ * create any objects (except when the hash table grows). Like other
+ * listeners, the tracker is updated on the thread that changed the restaurant
+ * and is not otherwise synchronized.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class SeatingLatencyTracker implements RestaurantListener
+{
+    /** Largest party size with its own histogram; larger parties share it. */
+    public static final int MAX_PARTY_BUCKET = 8;
+    
+    /**
+     * Receives notice of waits that exceed the tracker's limits.
+     */
+    public interface BreachListener
+    {
+        /**
+         * Called when a party's wait exceeds the limit for its kind (reservation
+         * or walk-in). This happens at most once per stay on the waitlist:
+         * either when checkWaiting finds the party still waiting, or when the
+         * party is seated, whichever comes first.
+         * 
+         * @param customer the party that waited too long
+         * @param waitMillis how long they have waited so far, in milliseconds
+         * @param limitMillis the limit that was exceeded
+         * @param seated true if the party has been seated, false if still waiting
+         */
+        void breached(Customer customer, long waitMillis, long limitMillis, boolean seated);
+    }
+    
+    private final Clock clock;
+    private final Histogram[][] bySize;    // [reservation ? 1 : 0][min(size, 8) - 1]
+    private final Histogram[] byKind;      // [reservation ? 1 : 0]
+    private final long[] limits;           // [reservation ? 1 : 0], in milliseconds
+    private BreachListener breachListener;
+    
+    // Identity hash table of waiting customers, with linear probing
+    private Customer[] waiting;
+    private long[] enqueuedAt;
+    private boolean[] flagged;             // breach already reported
+    private int numWaiting;
+    
+    // Most recent removal from the waitlist, matched against the next seating
+    private Customer lastDequeued;
+    private long lastEnqueuedAt;
+    private boolean lastFlagged;
+    
+    /**
+     * Creates a tracker for the given restaurant, using the system clock, and
+     * registers it as a listener. Reservations have a limit of 10 minutes;
+     * walk-ins have no limit until one is set.
+     * 
+     * @param restaurant Restaurant whose waits should be measured
+     */
+    public SeatingLatencyTracker(Restaurant restaurant)
+    {
+        this(restaurant, Clock.systemUTC());
+    }
+    
+    /**
+     * Creates a tracker for the given restaurant that uses the given clock,
+     * and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose waits should be measured
+     * @param clock clock used to time waits
+     */
+    public SeatingLatencyTracker(Restaurant restaurant, Clock clock)
+    {
+        this.clock = clock;
+        bySize = new Histogram[2][MAX_PARTY_BUCKET];
+        byKind = new Histogram[2];
+        for (int kind = 0; kind < 2; kind++)
+        {
+            byKind[kind] = new Histogram();
+            for (int i = 0; i < MAX_PARTY_BUCKET; i++) bySize[kind][i] = new Histogram();
+        }
+        limits = new long[] { Long.MAX_VALUE, 10 * 60_000L };
+        
+        waiting = new Customer[64];
+        enqueuedAt = new long[64];
+        flagged = new boolean[64];
+        
+        // Parties already on the waitlist are timed from now
+        for (Customer c : restaurant.getWaitlist().toArray()) customerAdded(c);
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Sets the longest acceptable wait for reservations or walk-ins.
+     * 
+     * @param reservation true to set the limit for reservations, false for walk-ins
+     * @param limitMillis limit in milliseconds, or Long.MAX_VALUE for no limit
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public void setLimit(boolean reservation, long limitMillis)
+    {
+        if (limitMillis < 0) throw new IllegalArgumentException("Limit cannot be negative.");
+        limits[reservation ? 1 : 0] = limitMillis;
+    }
+    
+    /**
+     * Returns the longest acceptable wait for reservations or walk-ins.
+     * 
+     * @param reservation true for reservations, false for walk-ins
+     * @return limit in milliseconds, or Long.MAX_VALUE if there is none
+     */
+    public long getLimit(boolean reservation)
+    {
+        return limits[reservation ? 1 : 0];
+    }
+    
+    /**
+     * Sets the listener to be called when a wait exceeds its limit.
+     * 
+     * @param listener listener to call, or null for none
+     */
+    public void setBreachListener(BreachListener listener)
+    {
+        breachListener = listener;
+    }
+    
+    /**
+     * Returns the wait times of seated parties of one kind and size.
+     * 
+     * @param reservation true for reservations, false for walk-ins
+     * @param partySize size of party; sizes of MAX_PARTY_BUCKET and above
+     *        share a histogram
+     * @return histogram of waits, in milliseconds
+     * @throws IllegalArgumentException if partySize is less than 1
+     */
+    public Histogram getHistogram(boolean reservation, int partySize)
+    {
+        if (partySize < 1) throw new IllegalArgumentException("Party size must be at least 1.");
+        return bySize[reservation ? 1 : 0][Math.min(partySize, MAX_PARTY_BUCKET) - 1];
+    }
+    
+    /**
+     * Returns the wait times of all seated parties of one kind.
+     * 
+     * @param reservation true for reservations, false for walk-ins
+     * @return histogram of waits, in milliseconds
+     */
+    public Histogram getHistogram(boolean reservation)
+    {
+        return byKind[reservation ? 1 : 0];
+    }
+    
+    /**
+     * Returns the number of parties currently being timed.
+     * 
+     * @return number of parties on the waitlist
+     */
+    public int numWaiting()
+    {
+        return numWaiting;
+    }
+    
+    /**
+     * Checks every party still on the waitlist and reports those who have
+     * waited longer than their limit and have not already been reported.
+     * This is meant to be called periodically (every few seconds, say) so that
+     * breaches are noticed while the party is still waiting, rather than only
+     * once they are seated.
+     * 
+     * @return number of new breaches reported
+     */
+    public int checkWaiting()
+    {
+        long now = clock.millis();
+        int found = 0;
+        for (int i = 0; i < waiting.length; i++)
+        {
+            Customer c = waiting[i];
+            if (c == null || flagged[i]) continue;
+            long wait = now - enqueuedAt[i];
+            long limit = limits[c.hasReservation() ? 1 : 0];
+            if (wait > limit)
+            {
+                flagged[i] = true;
+                found++;
+                if (breachListener != null) breachListener.breached(c, wait, limit, false);
+            }
+        }
+        return found;
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        if (2 * (numWaiting + 1) > waiting.length) grow();
+        int i = slot(customer, waiting);
+        if (waiting[i] == null) numWaiting++;
+        waiting[i] = customer;
+        enqueuedAt[i] = clock.millis();
+        flagged[i] = false;
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        int i = slot(customer, waiting);
+        if (waiting[i] == null)
+        {
+            lastDequeued = null;
+            return;
+        }
+        lastDequeued = customer;
+        lastEnqueuedAt = enqueuedAt[i];
+        lastFlagged = flagged[i];
+        delete(i);
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        Customer seated = table.getOccupant();
+        if (seated == null || seated == oldOccupant || seated != lastDequeued) return;
+        lastDequeued = null;
+        
+        long wait = Math.max(0, clock.millis() - lastEnqueuedAt);
+        int kind = seated.hasReservation() ? 1 : 0;
+        byKind[kind].record(wait);
+        bySize[kind][Math.min(seated.getSize(), MAX_PARTY_BUCKET) - 1].record(wait);
+        
+        if (!lastFlagged && wait > limits[kind] && breachListener != null)
+            breachListener.breached(seated, wait, limits[kind], true);
+    }
+    
+    /**
+     * Returns the index where the given customer is stored, or the empty slot
+     * where it would be stored.
+     */
+    private static int slot(Customer customer, Customer[] table)
+    {
+        int mask = table.length - 1;
+        int i = mix(System.identityHashCode(customer)) & mask;
+        while (table[i] != null && table[i] != customer) i = (i + 1) & mask;
+        return i;
+    }
+    
+    private static int mix(int h)
+    {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Empties slot i, shifting later entries of the same probe run back so
+     * that lookups never stop early at the hole.
+     */
+    private void delete(int i)
+    {
+        int mask = waiting.length - 1;
+        waiting[i] = null;
+        numWaiting--;
+        int j = i;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            Customer c = waiting[j];
+            if (c == null) return;
+            int home = mix(System.identityHashCode(c)) & mask;
+            // Move c back if its home slot is not between the hole and j (cyclically)
+            if (((j - home) & mask) >= ((j - i) & mask))
+            {
+                waiting[i] = c;
+                enqueuedAt[i] = enqueuedAt[j];
+                flagged[i] = flagged[j];
+                waiting[j] = null;
+                i = j;
+            }
+        }
+    }
+    
+    private void grow()
+    {
+        Customer[] oldWaiting = waiting;
+        long[] oldTimes = enqueuedAt;
+        boolean[] oldFlagged = flagged;
+        waiting = new Customer[oldWaiting.length * 2];
+        enqueuedAt = new long[waiting.length];
+        flagged = new boolean[waiting.length];
+        for (int i = 0; i < oldWaiting.length; i++)
+        {
+            if (oldWaiting[i] == null) continue;
+            int j = slot(oldWaiting[i], waiting);
+            waiting[j] = oldWaiting[i];
+            enqueuedAt[j] = oldTimes[i];
+            flagged[j] = oldFlagged[i];
+        }
+    }
+    
+    /**
+     * Histogram of non-negative values with a fixed relative precision, in the
+     * style of HdrHistogram. Values below 128 are counted exactly; larger
+     * values are counted in buckets whose width is at most 1/64 of their
+     * value, so any value up to Long.MAX_VALUE can be recorded in a fixed
+     * array of counters and reported to within about 1.5%.
+     */
+    public static class Histogram
+    {
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int HALF = SUB_BUCKETS / 2;
+        
+        private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * HALF + HALF];
+        private long total, sum, max;
+        private long min = Long.MAX_VALUE;
+        
+        /**
+         * Records a value.
+         * 
+         * @param value value to record; negative values are recorded as 0
+         */
+        public void record(long value)
+        {
+            if (value < 0) value = 0;
+            counts[indexOf(value)]++;
+            total++;
+            sum += value;
+            if (value > max) max = value;
+            if (value < min) min = value;
+        }
+        
+        /**
+         * Returns the number of values recorded.
+         * 
+         * @return count of values
+         */
+        public long count()
+        {
+            return total;
+        }
+        
+        /**
+         * Returns the smallest value recorded.
+         * 
+         * @return exact minimum, or 0 if nothing has been recorded
+         */
+        public long min()
+        {
+            return (total == 0) ? 0 : min;
+        }
+        
+        /**
+         * Returns the largest value recorded.
+         * 
+         * @return exact maximum, or 0 if nothing has been recorded
+         */
+        public long max()
+        {
+            return max;
+        }
+        
+        /**
+         * Returns the mean of the values recorded.
+         * 
+         * @return exact mean, or NaN if nothing has been recorded
+         */
+        public double mean()
+        {
+            return (total == 0) ? Double.NaN : (double) sum / total;
+        }
+        
+        /**
+         * Returns the value at the given percentile: the largest value (to
+         * within the histogram's precision) such that at least that percentage
+         * of recorded values are no larger.
+         * 
+         * @param percentile percentile from 0 to 100, such as 50 or 99.9
+         * @return value at that percentile, or 0 if nothing has been recorded
+         * @throws IllegalArgumentException if percentile is not between 0 and 100
+         */
+        public long percentile(double percentile)
+        {
+            if (!(percentile >= 0 && percentile <= 100))
+                throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+            if (total == 0) return 0;
+            
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestEquivalent(i), max);
+            }
+            return max;
+        }
+        
+        /**
+         * Removes all recorded values.
+         */
+        public void reset()
+        {
+            Arrays.fill(counts, 0);
+            total = sum = max = 0;
+            min = Long.MAX_VALUE;
+        }
+        
+        @Override
+        public String toString()
+        {
+            if (total == 0) return "no data";
+            return total + " values, mean " + Math.round(mean()) + ", p50 " + percentile(50)
+                    + ", p95 " + percentile(95) + ", p99 " + percentile(99) + ", max " + max;
+        }
+        
+        private static int indexOf(long value)
+        {
+            if (value < SUB_BUCKETS) return (int) value;
+            int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return shift * HALF + (int) (value >>> shift);
+        }
+        
+        private static long highestEquivalent(int index)
+        {
+            if (index < SUB_BUCKETS) return index;
+            int shift = index / HALF - 1;
+            long subBucket = index % HALF + HALF;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
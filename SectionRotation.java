@@ -0,0 +1,127 @@
+package restaurant;
+
+import java.util.Arrays;
+
+/**
+ * Chooses which of several available tables a party should be seated at, so 
+ * that new parties are spread evenly across the restaurant's sections (and so 
+ * across the servers covering them) instead of always going to the first 
+ * table on the list.
+ * <p>
+ * Each section's load is the number of covers (seated people) at its tables 
+ * whose status is 1, 2 or 3 - parties who are still ordering, waiting for 
+ * food, or eating - divided by the number of seats in the section. Loads are 
+ * kept up to date as tables change, so choosing a table never requires looking 
+ * at tables other than the candidates. Ties between equally loaded sections 
+ * go to the section that has waited longest since it was last given a party.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class SectionRotation implements RestaurantListener
+{
+    private final String[] sections;
+    private final int[] covers;      // covers at tables with status 1-3, by section
+    private final int[] seats;       // total seats, by section
+    private final long[] lastPicked; // pick count when each section was last chosen
+    private long picks;
+    
+    // scratch space for pickTable, reused between calls
+    private final Table[] bestInSection;
+    
+    /**
+     * Creates a rotation for the given restaurant and registers it as a 
+     * listener so that it is kept up to date.
+     * 
+     * @param restaurant Restaurant whose sections are being balanced
+     */
+    public SectionRotation(Restaurant restaurant)
+    {
+        sections = restaurant.getSections();
+        covers = new int[sections.length];
+        seats = new int[sections.length];
+        lastPicked = new long[sections.length];
+        bestInSection = new Table[sections.length];
+        
+        for (Table t : restaurant.getAllTables())
+        {
+            seats[t.getSectionIndex()] += t.getCapacity();
+            covers[t.getSectionIndex()] += activeCovers(t.getStatus(), t.getOccupant());
+        }
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Returns the number of covers currently counted against a section.
+     * 
+     * @param sectionIndex index of the section, as given by Table.getSectionIndex
+     * @return covers at tables in that section whose status is 1, 2 or 3
+     */
+    public int getSectionLoad(int sectionIndex)
+    {
+        return covers[sectionIndex];
+    }
+    
+    /**
+     * Chooses one of the given tables, preferring the least loaded section and, 
+     * within that section, the smallest table. The candidates would normally 
+     * come from Restaurant.getAvailTables.
+     * 
+     * @param candidates available tables to choose from
+     * @return chosen table, or null if there are no candidates
+     */
+    public Table pickTable(Table[] candidates)
+    {
+        if (candidates.length == 0) return null;
+        
+        // Smallest candidate in each section
+        for (Table t : candidates)
+        {
+            int s = t.getSectionIndex();
+            if (bestInSection[s] == null || t.getCapacity() < bestInSection[s].getCapacity())
+                bestInSection[s] = t;
+        }
+        
+        // Least loaded section that has a candidate
+        int best = -1;
+        for (int s = 0; s < sections.length; s++)
+        {
+            if (bestInSection[s] == null) continue;
+            if (best < 0 || lessLoaded(s, best)) best = s;
+        }
+        
+        Table chosen = bestInSection[best];
+        Arrays.fill(bestInSection, null);
+        lastPicked[best] = ++picks;
+        return chosen;
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        covers[table.getSectionIndex()] += activeCovers(table.getStatus(), table.getOccupant()) 
+                - activeCovers(oldStatus, oldOccupant);
+    }
+    
+    /**
+     * Returns true if section a should be given the next party ahead of 
+     * section b.
+     */
+    private boolean lessLoaded(int a, int b)
+    {
+        // compare covers[a] / seats[a] with covers[b] / seats[b] without dividing
+        long loadA = (long) covers[a] * seats[b];
+        long loadB = (long) covers[b] * seats[a];
+        if (loadA != loadB) return loadA < loadB;
+        return lastPicked[a] < lastPicked[b];
+    }
+    
+    /**
+     * Returns the number of covers a table contributes to its section's load.
+     */
+    private static int activeCovers(int status, Customer occupant)
+    {
+        if (occupant == null || status < 1 || status > 3) return 0;
+        return occupant.getSize();
+    }
+}
@@ -0,0 +1,452 @@
+package restaurant;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only record of everything that happens during service, kept compact 
+ * enough that months of history can stay in memory. Every table status change 
+ * and every waitlist addition and removal is recorded as an event with a 
+ * timestamp, an event code, a table, and a party size.
+ * <p>
+ * Events are stored in one partition per day, and each partition stores each 
+ * field as its own column:
+ * <ul>
+ * <li>timestamps as varint-encoded differences from the previous event;
+ * <li>event codes (the new table status 0-5, or ENQUEUE or DEQUEUE) as 
+ * run-length encoded (code, run length) pairs;
+ * <li>tables as varint-encoded codes from a dictionary of table labels;
+ * <li>party sizes as varints.
+ * </ul>
+ * Queries decode one partition at a time into reusable primitive arrays and 
+ * then aggregate over those arrays in simple loops, so scanning a year of 
+ * events touches only a few arrays and allocates nothing per event.
+ * <p>
+ * All methods are synchronized, since the store is updated on whichever 
+ * thread changes the restaurant and may be queried from another. A Scan is 
+ * called with the lock held, so it should not take long.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ServiceAnalytics implements RestaurantListener
+{
+    /** Event code recorded when a customer is added to the waitlist. */
+    public static final byte ENQUEUE = 6;
+    /** Event code recorded when a customer is removed from the waitlist. */
+    public static final byte DEQUEUE = 7;
+    
+    /**
+     * Receives the decoded events of one partition at a time. The arrays are 
+     * reused between calls and are only valid for the first count entries.
+     */
+    public interface Scan
+    {
+        /**
+         * Called once per partition, in date order.
+         * 
+         * @param day date of the partition
+         * @param count number of events in the partition
+         * @param times event times, in milliseconds since the epoch
+         * @param codes event codes: a table status 0-5, ENQUEUE or DEQUEUE
+         * @param tables table codes (see getTableLabel), or -1 for waitlist events
+         * @param sizes party size of the event's customer, or 0 if there is none
+         */
+        void accept(LocalDate day, int count, long[] times, byte[] codes, 
+                int[] tables, int[] sizes);
+    }
+    
+    private final Clock clock;
+    private final ZoneId zone;
+    private final TreeMap<LocalDate, Partition> partitions;
+    private Partition current;
+    
+    // Dictionary of table labels; a table's code is its index in these arrays
+    private final Map<String, Integer> tableCodes;
+    private String[] labels;
+    private int[] capacities;
+    
+    // Decoding buffers, reused by every scan
+    private long[] times = new long[0];
+    private byte[] codes = new byte[0];
+    private int[] tables = new int[0];
+    private int[] sizes = new int[0];
+    
+    /**
+     * Creates an empty store that uses the system clock and time zone, and 
+     * registers it as a listener of the given restaurant.
+     * 
+     * @param restaurant Restaurant whose events should be recorded
+     */
+    public ServiceAnalytics(Restaurant restaurant)
+    {
+        this(Clock.systemDefaultZone());
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Creates an empty store that uses the given clock, and whose daily 
+     * partitions follow the clock's time zone. Events must be added by 
+     * registering the store as a listener or by calling the RestaurantListener 
+     * methods directly.
+     * 
+     * @param clock clock used to timestamp events
+     */
+    public ServiceAnalytics(Clock clock)
+    {
+        this.clock = clock;
+        zone = clock.getZone();
+        partitions = new TreeMap<>();
+        tableCodes = new HashMap<>();
+        labels = new String[16];
+        capacities = new int[16];
+    }
+    
+    @Override
+    public synchronized void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        Customer occupant = table.getOccupant();
+        if (occupant == null) occupant = oldOccupant;
+        append(clock.millis(), (byte) table.getStatus(), tableCode(table), 
+                (occupant == null) ? 0 : occupant.getSize());
+    }
+    
+    @Override
+    public synchronized void customerAdded(Customer customer)
+    {
+        append(clock.millis(), ENQUEUE, -1, customer.getSize());
+    }
+    
+    @Override
+    public synchronized void customerRemoved(Customer customer)
+    {
+        append(clock.millis(), DEQUEUE, -1, customer.getSize());
+    }
+    
+    /**
+     * Returns the label of the table with the given code.
+     * 
+     * @param tableCode code from the tables array given to a Scan
+     * @return table label
+     */
+    public synchronized String getTableLabel(int tableCode)
+    {
+        return labels[tableCode];
+    }
+    
+    /**
+     * Returns the capacity of the table with the given code.
+     * 
+     * @param tableCode code from the tables array given to a Scan
+     * @return table capacity
+     */
+    public synchronized int getTableCapacity(int tableCode)
+    {
+        return capacities[tableCode];
+    }
+    
+    /**
+     * Returns the total number of events recorded.
+     * 
+     * @return number of events in all partitions
+     */
+    public synchronized long eventCount()
+    {
+        long count = 0;
+        for (Partition p : partitions.values()) count += p.count;
+        return count;
+    }
+    
+    /**
+     * Returns the number of bytes used by the encoded columns of all partitions.
+     * 
+     * @return total encoded size in bytes
+     */
+    public synchronized long encodedSize()
+    {
+        long size = 0;
+        for (Partition p : partitions.values()) size += p.encodedSize();
+        return size;
+    }
+    
+    /**
+     * Decodes every partition from the given dates (inclusive) and passes 
+     * each one to the given scan, in date order.
+     * 
+     * @param from first day to scan
+     * @param to last day to scan
+     * @param scan receives each decoded partition
+     */
+    public synchronized void scan(LocalDate from, LocalDate to, Scan scan)
+    {
+        for (Partition p : partitions.subMap(from, true, to, true).values())
+        {
+            if (times.length < p.count)
+            {
+                int newLength = Math.max(p.count, times.length * 2);
+                times = new long[newLength];
+                codes = new byte[newLength];
+                tables = new int[newLength];
+                sizes = new int[newLength];
+            }
+            p.decode(times, codes, tables, sizes);
+            scan.accept(p.day, p.count, times, codes, tables, sizes);
+        }
+    }
+    
+    /**
+     * Returns the number of events of each kind between the given dates 
+     * (inclusive).
+     * 
+     * @param from first day to include
+     * @param to last day to include
+     * @return array of 8 counts, indexed by event code
+     */
+    public synchronized long[] countEvents(LocalDate from, LocalDate to)
+    {
+        long[] counts = new long[8];
+        scan(from, to, (day, count, times, codes, tables, sizes) -> {
+            for (int i = 0; i < count; i++) counts[codes[i]]++;
+        });
+        return counts;
+    }
+    
+    /**
+     * Returns the average turn time - the time from seating a party (status 1) 
+     * to their leaving (status 5) - of tables with the given capacity, for 
+     * parties seated on the given day of the week between the given dates 
+     * (inclusive). For example, the average turn time for 2-tops on Fridays 
+     * last quarter.
+     * 
+     * @param capacity table capacity to include
+     * @param dayOfWeek day of the week to include, or null to include every day
+     * @param from first day to include
+     * @param to last day to include
+     * @return average turn time in minutes, or NaN if no parties qualified
+     */
+    public synchronized double averageTurnMinutes(int capacity, DayOfWeek dayOfWeek, 
+            LocalDate from, LocalDate to)
+    {
+        boolean[] counting = new boolean[labels.length]; // by table code
+        long[] seatedAt = new long[labels.length];
+        long[] totals = new long[2]; // total milliseconds, number of turns
+        
+        scan(from, to, (day, count, times, codes, tables, sizes) -> {
+            boolean dayMatches = dayOfWeek == null || day.getDayOfWeek() == dayOfWeek;
+            for (int i = 0; i < count; i++)
+            {
+                int table = tables[i];
+                if (table < 0 || capacities[table] != capacity) continue;
+                if (codes[i] == 1 && !counting[table])
+                {
+                    if (dayMatches)
+                    {
+                        counting[table] = true;
+                        seatedAt[table] = times[i];
+                    }
+                }
+                else if (codes[i] == 5 && counting[table])
+                {
+                    totals[0] += times[i] - seatedAt[table];
+                    totals[1]++;
+                    counting[table] = false;
+                }
+            }
+        });
+        return (totals[1] == 0) ? Double.NaN : totals[0] / 60000.0 / totals[1];
+    }
+    
+    /**
+     * Adds an event to the partition for the day containing its time, starting 
+     * a new partition if needed.
+     */
+    synchronized void append(long time, byte code, int table, int size)
+    {
+        if (current == null || time >= current.endTime || time < current.startTime)
+        {
+            LocalDate day = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+            current = partitions.get(day);
+            if (current == null)
+            {
+                long start = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                long end = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                current = new Partition(day, start, end);
+                partitions.put(day, current);
+            }
+        }
+        current.append(time, code, table, size);
+    }
+    
+    /**
+     * Returns the dictionary code for the given table's label, adding it to 
+     * the dictionary if it is new.
+     */
+    private int tableCode(Table table)
+    {
+        Integer code = tableCodes.get(table.getLabel());
+        if (code == null)
+        {
+            code = tableCodes.size();
+            tableCodes.put(table.getLabel(), code);
+            if (code == labels.length)
+            {
+                labels = Arrays.copyOf(labels, code * 2);
+                capacities = Arrays.copyOf(capacities, code * 2);
+            }
+            labels[code] = table.getLabel();
+            capacities[code] = table.getCapacity();
+        }
+        return code;
+    }
+    
+    /**
+     * One day's events, stored as compressed columns.
+     */
+    private static final class Partition
+    {
+        final LocalDate day;
+        final long startTime, endTime; // millisecond range covered by this day
+        int count;
+        
+        private final Column timeDeltas = new Column();
+        private final Column codeRuns = new Column();
+        private final Column tableCodes = new Column();
+        private final Column partySizes = new Column();
+        
+        private long lastTime;
+        private byte runCode = -1; // code of the run that has not been written yet
+        private int runLength;
+        
+        Partition(LocalDate day, long startTime, long endTime)
+        {
+            this.day = day;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            lastTime = startTime;
+        }
+        
+        void append(long time, byte code, int table, int size)
+        {
+            // Events can arrive slightly out of order from a clock adjustment; 
+            // clamp them so that every delta is non-negative
+            if (time < lastTime) time = lastTime;
+            timeDeltas.putVarLong(time - lastTime);
+            lastTime = time;
+            
+            if (code != runCode)
+            {
+                if (runLength > 0)
+                {
+                    codeRuns.putByte(runCode);
+                    codeRuns.putVarLong(runLength);
+                }
+                runCode = code;
+                runLength = 0;
+            }
+            runLength++;
+            
+            tableCodes.putVarLong(table + 1); // shifted so waitlist events (-1) become 0
+            partySizes.putVarLong(size);
+            count++;
+        }
+        
+        void decode(long[] times, byte[] codes, int[] tables, int[] sizes)
+        {
+            byte[] buf = timeDeltas.bytes;
+            long time = startTime;
+            int pos = 0;
+            for (int i = 0; i < count; i++)
+            {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do
+                {
+                    b = buf[pos++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                time += delta;
+                times[i] = time;
+            }
+            
+            buf = codeRuns.bytes;
+            pos = 0;
+            int i = 0;
+            while (pos < codeRuns.length)
+            {
+                byte code = buf[pos++];
+                int run = 0, shift = 0;
+                byte b;
+                do
+                {
+                    b = buf[pos++];
+                    run |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                Arrays.fill(codes, i, i + run, code);
+                i += run;
+            }
+            Arrays.fill(codes, i, count, runCode); // the run still being written
+            
+            decodeInts(tableCodes, tables, count, -1);
+            decodeInts(partySizes, sizes, count, 0);
+        }
+        
+        int encodedSize()
+        {
+            return timeDeltas.length + codeRuns.length + tableCodes.length 
+                    + partySizes.length + 5;
+        }
+        
+        private static void decodeInts(Column column, int[] out, int count, int offset)
+        {
+            byte[] buf = column.bytes;
+            int pos = 0;
+            for (int i = 0; i < count; i++)
+            {
+                int value = 0, shift = 0;
+                byte b;
+                do
+                {
+                    b = buf[pos++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                out[i] = value + offset;
+            }
+        }
+    }
+    
+    /**
+     * Growable byte array with varint encoding.
+     */
+    private static final class Column
+    {
+        byte[] bytes = new byte[64];
+        int length;
+        
+        void putByte(byte b)
+        {
+            if (length == bytes.length) bytes = Arrays.copyOf(bytes, length * 2);
+            bytes[length++] = b;
+        }
+        
+        void putVarLong(long value)
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                putByte((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            putByte((byte) value);
+        }
+    }
+}
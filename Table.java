@@ -1,10 +1,16 @@
 package restaurant;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Table within the restaurant. Tables have a default capacity of 4 seats. Each
- * table also has a unique label, a Customer occupant (which is null if the 
- * table is unoccupied), and a status marker between 0 and 5 inclusive with the  
- * following meaning:
+ * table also has a unique label, an optional section of the floor that it 
+ * belongs to, the tables next to it (if any), the TableAttributes that guests 
+ * may ask for (a booth, say), a Customer occupant (which is 
+ * null if the table is unoccupied), and a status marker between 0 and 5 
+ * inclusive with the following meaning:
  * <ul>
  * <li>0 = Ready for patrons
  * <li>1 = Waiting to order
@@ -19,10 +25,19 @@ package restaurant;
  */
 public class Table 
 {
+    private static final Table[] NO_TABLES = new Table[0];
+    
     private String ID;
     private final int capacity;
     private int status;
     private Customer occupant;
+    private final String section;
+    private final int attributes; // TableAttribute bits
+    private Table[] adjacent;
+    private Restaurant owner; // restaurant to notify of changes, or null
+    private int index;        // position of this table in owner's table array
+    private int sectionIndex; // position of this table's section in owner's section array
+    private String rendered;  // cached toString, or null after a change
     
     /**
      * Creates an unoccupied table with the given label and a default capacity 
@@ -44,6 +59,37 @@ public class Table
      * @throws IllegalArgumentException if label is null or capacity is less than 1
      */
     public Table(String label, int capacity)
+    {
+        this(label, capacity, null);
+    }
+    
+    /**
+     * Creates an unoccupied table with the given label and capacity, in the 
+     * given section of the restaurant.
+     * 
+     * @param label unique identifier for this table
+     * @param capacity number of seats available at the table
+     * @param section name of the section containing this table, or null if 
+     * the restaurant is not divided into sections
+     * @throws IllegalArgumentException if label is null or capacity is less than 1
+     */
+    public Table(String label, int capacity, String section)
+    {
+        this(label, capacity, section, null);
+    }
+    
+    /**
+     * Creates an unoccupied table with the given label, capacity, section, 
+     * and attributes.
+     * 
+     * @param label unique identifier for this table
+     * @param capacity number of seats available at the table
+     * @param section name of the section containing this table, or null if 
+     * the restaurant is not divided into sections
+     * @param attributes features of the table, or null if it has none
+     * @throws IllegalArgumentException if label is null or capacity is less than 1
+     */
+    public Table(String label, int capacity, String section, Set<TableAttribute> attributes)
     {
         if (capacity < 1) throw new IllegalArgumentException("Table must be able"
                 + " to seat at least one person.");
@@ -54,6 +100,9 @@ public class Table
         this.capacity = capacity;
         status = 0;
         occupant = null;
+        this.section = section;
+        this.attributes = TableAttribute.mask(attributes);
+        adjacent = NO_TABLES;
     }
     
     /**
@@ -76,6 +125,75 @@ public class Table
         return capacity;
     }
     
+    /**
+     * Returns the name of the section of the restaurant containing this table.
+     * 
+     * @return section name, or null if the table is not in a section
+     */
+    public String getSection()
+    {
+        return section;
+    }
+    
+    /**
+     * Returns the features of this table.
+     * 
+     * @return new set of the table's attributes, which is empty if it has none
+     */
+    public EnumSet<TableAttribute> getAttributes()
+    {
+        return TableAttribute.fromMask(attributes);
+    }
+    
+    /**
+     * Returns whether this table has the given feature.
+     * 
+     * @param attribute attribute to check for
+     * @return true if the table has it
+     */
+    public boolean hasAttribute(TableAttribute attribute)
+    {
+        return (attributes & attribute.bit()) != 0;
+    }
+    
+    /**
+     * Returns this table's attributes as a bit mask.
+     * 
+     * @return mask of TableAttribute bits
+     */
+    int getAttributeMask()
+    {
+        return attributes;
+    }
+    
+    /**
+     * Returns the tables that are next to this one, such as tables that could 
+     * be pushed together for a large party.
+     * 
+     * @return array of adjacent tables, which is empty if there are none
+     */
+    public Table[] getAdjacentTables()
+    {
+        return (adjacent.length == 0) ? adjacent : adjacent.clone();
+    }
+    
+    /**
+     * Records that this table and the given table are next to each other. 
+     * Adjacency is symmetric, so both tables are updated.
+     * 
+     * @param other table next to this one
+     */
+    void addAdjacent(Table other)
+    {
+        if (other == this) return;
+        for (Table t : adjacent)
+            if (t == other) return;
+        
+        adjacent = Arrays.copyOf(adjacent, adjacent.length + 1);
+        adjacent[adjacent.length - 1] = other;
+        other.addAdjacent(this);
+    }
+    
     /**
      * Returns an integer representing the table's current status, with the 
      * following meanings.
@@ -123,7 +241,9 @@ public class Table
         // if table is vacant, it cannot be updated to a status other than 0 or 5
         if (occupant == null && (newStatus != 0 && newStatus != 5)) return false;
         
+        int oldStatus = status;
         status = newStatus;
+        notifyOwner(oldStatus, occupant);
         return true;
     }
     
@@ -148,8 +268,11 @@ public class Table
     {
         if (occupant == null) return false;
         
+        int oldStatus = status;
+        Customer oldOccupant = occupant;
         occupant = null;
         status = 5;
+        notifyOwner(oldStatus, oldOccupant);
         return true;
     }
     
@@ -177,9 +300,78 @@ public class Table
         
         occupant = newOccupant;
         status = 1;
+        notifyOwner(0, null);
         return true;
     }
     
+    /**
+     * Puts the table back into an earlier state, such as when a change is 
+     * undone. Unlike seat, vacate and setStatus, this does not check that the 
+     * change is one that could happen during normal service.
+     * 
+     * @param previousOccupant occupant to restore, or null
+     * @param previousStatus status to restore, between 0 and 5 inclusive
+     */
+    void restore(Customer previousOccupant, int previousStatus)
+    {
+        int oldStatus = status;
+        Customer oldOccupant = occupant;
+        occupant = previousOccupant;
+        status = previousStatus;
+        notifyOwner(oldStatus, oldOccupant);
+    }
+    
+    /**
+     * Registers this table with the restaurant that contains it, so that the 
+     * restaurant can keep its indexes up to date as the table changes.
+     * 
+     * @param owner restaurant containing this table
+     * @param index position of this table in the restaurant's table array
+     * @param sectionIndex position of this table's section in the 
+     * restaurant's section array
+     */
+    void attach(Restaurant owner, int index, int sectionIndex)
+    {
+        this.owner = owner;
+        this.index = index;
+        this.sectionIndex = sectionIndex;
+    }
+    
+    /**
+     * Returns the position of this table in its restaurant's table array.
+     * 
+     * @return index of this table, or 0 if it does not belong to a restaurant
+     */
+    int getIndex()
+    {
+        return index;
+    }
+    
+    /**
+     * Returns the position of this table's section in the array returned by 
+     * its restaurant's getSections method.
+     * 
+     * @return index of this table's section, or 0 if it does not belong to a 
+     * restaurant
+     */
+    public int getSectionIndex()
+    {
+        return sectionIndex;
+    }
+    
+    /**
+     * Discards the cached string for this table and tells the owning 
+     * restaurant, if any, that this table's status or occupant has changed.
+     * 
+     * @param oldStatus status before the change
+     * @param oldOccupant occupant before the change
+     */
+    private void notifyOwner(int oldStatus, Customer oldOccupant)
+    {
+        rendered = null;
+        if (owner != null) owner.tableChanged(this, oldStatus, oldOccupant);
+    }
+    
     /**
      * Generates a string representing the table and its current status. The
      * general structure of this string is as follows:
@@ -203,6 +395,23 @@ public class Table
      */
     @Override
     public String toString()
+    {
+        // Rebuilt only after seat, vacate, setStatus or restore has changed the table
+        if (rendered == null) rendered = describe(ID, capacity, status, occupant);
+        return rendered;
+    }
+    
+    /**
+     * Generates the string that toString would return for a table with the 
+     * given fields.
+     * 
+     * @param ID the table's label
+     * @param capacity the table's capacity
+     * @param status the table's status, between 0 and 5 inclusive
+     * @param occupant the table's occupant, or null
+     * @return string representing the table and all data fields
+     */
+    static String describe(String ID, int capacity, int status, Customer occupant)
     {
         String returnString = "Table " + ID + " (" + capacity + " seats):\t";
         switch (status)
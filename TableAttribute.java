@@ -0,0 +1,91 @@
+package restaurant;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Feature of a table that guests may ask for. Tables record the attributes
+ * they have and Customers record the attributes they would prefer; both keep
+ * them as a bit mask, with one bit per attribute given by bit().
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public enum TableAttribute
+{
+    BOOTH, PATIO, WINDOW, ACCESSIBLE;
+    
+    private static final TableAttribute[] ALL = values();
+    
+    /**
+     * Returns this attribute's bit in an attribute mask.
+     * 
+     * @return 1 shifted left by the attribute's ordinal
+     */
+    public int bit()
+    {
+        return 1 << ordinal();
+    }
+    
+    /**
+     * Returns the attribute with the given name, ignoring case.
+     * 
+     * @param name name of an attribute, such as "patio"
+     * @return matching attribute
+     * @throws IllegalArgumentException if no attribute has that name
+     */
+    public static TableAttribute parse(String name)
+    {
+        for (TableAttribute a : ALL)
+            if (a.name().equalsIgnoreCase(name)) return a;
+        throw new IllegalArgumentException("Unknown table attribute \"" + name + "\".");
+    }
+    
+    /**
+     * Returns the bit mask of the given set of attributes.
+     * 
+     * @param attributes set of attributes, or null for none
+     * @return mask with the bit of each attribute set
+     */
+    public static int mask(Set<TableAttribute> attributes)
+    {
+        int mask = 0;
+        if (attributes != null)
+            for (TableAttribute a : attributes) mask |= a.bit();
+        return mask;
+    }
+    
+    /**
+     * Returns the set of attributes whose bits are set in the given mask.
+     * 
+     * @param mask attribute mask
+     * @return new set of attributes
+     */
+    public static EnumSet<TableAttribute> fromMask(int mask)
+    {
+        EnumSet<TableAttribute> set = EnumSet.noneOf(TableAttribute.class);
+        for (TableAttribute a : ALL)
+            if ((mask & a.bit()) != 0) set.add(a);
+        return set;
+    }
+    
+    /**
+     * Returns the attributes in the given mask as a lowercase, comma-separated
+     * list, such as "booth, window".
+     * 
+     * @param mask attribute mask
+     * @return list of attribute names, or an empty string if the mask is 0
+     */
+    public static String describe(int mask)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (TableAttribute a : ALL)
+        {
+            if ((mask & a.bit()) == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(a.name().toLowerCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+}
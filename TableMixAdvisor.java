@@ -0,0 +1,431 @@
+package restaurant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recommends the mix of table sizes that best fits the parties a restaurant 
+ * actually gets. The advisor listens to a restaurant and keeps a histogram of 
+ * party sizes, counting every party that joins the waitlist or is seated 
+ * directly. recommend then tries every mix of the given table sizes that adds 
+ * up to a given number of seats, simulates an evening of service for each 
+ * one, and returns the mix with the best score.
+ * <p>
+ * Each simulation builds a Restaurant with Restaurant(String, int[]) and 
+ * replays the same randomly generated evening against it: parties arrive with 
+ * sizes drawn from the histogram, are seated at the smallest free table that 
+ * fits them (or wait in the Waitlist), and leave after a randomly drawn turn 
+ * time. The score of a mix is its average wait in minutes plus wastePenalty 
+ * times the average number of empty seats at each seated party's table, so 
+ * lower scores are better. No one is seated after closing time: parties 
+ * still waiting then, and parties too large for any table in a mix, count as 
+ * waiting until closing. Candidate mixes are evaluated in parallel on 
+ * a fork/join pool.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class TableMixAdvisor implements RestaurantListener
+{
+    /**
+     * Result of simulating one table mix.
+     */
+    public static final class Recommendation
+    {
+        private final int[] capacities;
+        private final double averageWaitMinutes;
+        private final double averageWastedSeats;
+        private final double score;
+        
+        Recommendation(int[] capacities, double averageWaitMinutes, 
+                double averageWastedSeats, double score)
+        {
+            this.capacities = capacities;
+            this.averageWaitMinutes = averageWaitMinutes;
+            this.averageWastedSeats = averageWastedSeats;
+            this.score = score;
+        }
+        
+        /**
+         * Returns the capacity of each table in the mix, in ascending order.
+         * 
+         * @return table capacities, suitable for Restaurant(String, int[])
+         */
+        public int[] getCapacities()
+        {
+            return capacities.clone();
+        }
+        
+        /**
+         * Returns the average time parties waited for a table.
+         * 
+         * @return average wait in minutes
+         */
+        public double getAverageWaitMinutes()
+        {
+            return averageWaitMinutes;
+        }
+        
+        /**
+         * Returns the average number of empty seats at a seated party's table.
+         * 
+         * @return average wasted seats per seated party
+         */
+        public double getAverageWastedSeats()
+        {
+            return averageWastedSeats;
+        }
+        
+        /**
+         * Returns the mix's score. Lower is better.
+         * 
+         * @return score used to rank mixes
+         */
+        public double getScore()
+        {
+            return score;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return Arrays.toString(capacities) + String.format(": average wait %.1f "
+                    + "minutes, %.2f empty seats per party", averageWaitMinutes, averageWastedSeats);
+        }
+    }
+    
+    // Parties larger than this are counted in largeParties, so that one 
+    // enormous party cannot make the histogram enormous too
+    private static final int MAX_COUNTED_SIZE = 1024;
+    
+    private long[] histogram; // number of parties of each size
+    private final TreeMap<Integer, Long> largeParties; // counts of sizes above MAX_COUNTED_SIZE
+    private Customer lastDequeued; // so parties seated from the waitlist are not counted twice
+    
+    /**
+     * Creates an advisor with an empty histogram and registers it as a 
+     * listener of the given restaurant.
+     * 
+     * @param restaurant Restaurant whose parties should be counted
+     */
+    public TableMixAdvisor(Restaurant restaurant)
+    {
+        histogram = new long[9];
+        largeParties = new TreeMap<>();
+        restaurant.addListener(this);
+    }
+    
+    /**
+     * Returns the number of parties of the given size that have been counted.
+     * 
+     * @param partySize number of people in a party
+     * @return number of parties of that size
+     */
+    public long getCount(int partySize)
+    {
+        if (partySize > MAX_COUNTED_SIZE) return largeParties.getOrDefault(partySize, 0L);
+        if (partySize < 1 || partySize >= histogram.length) return 0;
+        return histogram[partySize];
+    }
+    
+    /**
+     * Adds parties to the histogram directly, for instance from historical data.
+     * 
+     * @param partySize number of people in each party
+     * @param count number of parties to add
+     * @throws IllegalArgumentException if partySize is less than 1
+     */
+    public void record(int partySize, long count)
+    {
+        if (partySize < 1) throw new IllegalArgumentException("There must be at"
+                + " least one person in a party.");
+        if (partySize > MAX_COUNTED_SIZE)
+        {
+            largeParties.merge(partySize, count, Long::sum);
+            return;
+        }
+        if (partySize >= histogram.length) 
+            histogram = Arrays.copyOf(histogram, Math.min(Math.max(partySize + 1, 
+                    histogram.length * 2), MAX_COUNTED_SIZE + 1));
+        histogram[partySize] += count;
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        record(customer.getSize(), 1);
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        lastDequeued = customer;
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        Customer occupant = table.getOccupant();
+        if (occupant == null || oldOccupant != null) return;
+        if (occupant == lastDequeued) lastDequeued = null; // already counted
+        else record(occupant.getSize(), 1);
+    }
+    
+    /**
+     * Finds the best mix of the given table sizes that adds up to exactly the 
+     * given number of seats.
+     * 
+     * @param tableSizes capacities that tables may have, e.g. {2, 4, 6}
+     * @param totalSeats number of seats the restaurant has room for
+     * @param partiesPerHour average number of parties arriving per hour
+     * @param turnMinutes average time a party spends at their table
+     * @param hours length of the simulated evening
+     * @param wastePenalty minutes of average wait considered as bad as one 
+     * empty seat per party
+     * @param seed random seed, so that results can be reproduced
+     * @return best mix found, or null if no mix adds up to totalSeats or no 
+     * parties have been counted
+     */
+    public Recommendation recommend(int[] tableSizes, int totalSeats, double partiesPerHour, 
+            double turnMinutes, double hours, double wastePenalty, long seed)
+    {
+        long total = 0;
+        for (long count : histogram) total += count;
+        for (long count : largeParties.values()) total += count;
+        if (total == 0) return null;
+        
+        List<int[]> candidates = new ArrayList<>();
+        int[] sizes = tableSizes.clone();
+        Arrays.sort(sizes);
+        enumerate(sizes, 0, totalSeats, new int[sizes.length], candidates);
+        if (candidates.isEmpty()) return null;
+        
+        Evening evening = new Evening(histogram, largeParties, total, partiesPerHour, 
+                turnMinutes, hours, seed);
+        return ForkJoinPool.commonPool().invoke(
+                new Evaluate(candidates, 0, candidates.size(), evening, wastePenalty));
+    }
+    
+    /**
+     * Adds to out every combination of counts of sizes[i..] that adds up to 
+     * exactly seats, expanded into an array of capacities.
+     */
+    private static void enumerate(int[] sizes, int i, int seats, int[] counts, List<int[]> out)
+    {
+        if (i == sizes.length - 1)
+        {
+            if (seats % sizes[i] != 0) return;
+            counts[i] = seats / sizes[i];
+            
+            int numTables = 0;
+            for (int c : counts) numTables += c;
+            if (numTables == 0) return;
+            int[] capacities = new int[numTables];
+            int t = 0;
+            for (int s = 0; s < sizes.length; s++)
+                for (int k = 0; k < counts[s]; k++) capacities[t++] = sizes[s];
+            out.add(capacities);
+            return;
+        }
+        for (int c = 0; c * sizes[i] <= seats; c++)
+        {
+            counts[i] = c;
+            enumerate(sizes, i + 1, seats - c * sizes[i], counts, out);
+        }
+    }
+    
+    /**
+     * Arrival times, party sizes and turn times for one simulated evening, 
+     * shared (read-only) by every candidate so that they are compared fairly.
+     */
+    private static final class Evening
+    {
+        final double[] arrivals;   // minutes after opening
+        final int[] sizes;
+        final double[] turns;      // minutes at the table
+        final double closing;      // minutes after opening
+        
+        Evening(long[] histogram, Map<Integer, Long> largeParties, long total, 
+                double partiesPerHour, double turnMinutes, double hours, long seed)
+        {
+            Random random = new Random(seed);
+            closing = hours * 60;
+            int expected = (int) Math.ceil(partiesPerHour * hours * 1.5) + 16;
+            double[] a = new double[expected];
+            int[] s = new int[expected];
+            double[] t = new double[expected];
+            
+            int n = 0;
+            double time = 0;
+            while (true)
+            {
+                time += -Math.log(1 - random.nextDouble()) * 60 / partiesPerHour;
+                if (time >= closing) break;
+                if (n == a.length)
+                {
+                    a = Arrays.copyOf(a, n * 2);
+                    s = Arrays.copyOf(s, n * 2);
+                    t = Arrays.copyOf(t, n * 2);
+                }
+                a[n] = time;
+                
+                long pick = (long) (random.nextDouble() * total);
+                int size = 1;
+                while (size < histogram.length && pick >= histogram[size])
+                    pick -= histogram[size++];
+                if (size == histogram.length)
+                {
+                    size = histogram.length - 1; // kept if there are no large parties
+                    for (Map.Entry<Integer, Long> e : largeParties.entrySet())
+                    {
+                        size = e.getKey();
+                        if (pick < e.getValue()) break;
+                        pick -= e.getValue();
+                    }
+                }
+                s[n] = size;
+                t[n] = turnMinutes * (0.5 + random.nextDouble());
+                n++;
+            }
+            arrivals = Arrays.copyOf(a, n);
+            sizes = Arrays.copyOf(s, n);
+            turns = Arrays.copyOf(t, n);
+        }
+    }
+    
+    /**
+     * Simulates a range of candidates, splitting the range in half until it is 
+     * small enough to run directly, and returns the best.
+     */
+    private static final class Evaluate extends RecursiveTask<Recommendation>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final transient List<int[]> candidates;
+        private final int from, to;
+        private final transient Evening evening;
+        private final double wastePenalty;
+        
+        Evaluate(List<int[]> candidates, int from, int to, Evening evening, double wastePenalty)
+        {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.evening = evening;
+            this.wastePenalty = wastePenalty;
+        }
+        
+        @Override
+        protected Recommendation compute()
+        {
+            if (to - from <= 4)
+            {
+                Recommendation best = null;
+                for (int i = from; i < to; i++)
+                {
+                    Recommendation r = simulate(candidates.get(i), evening, wastePenalty);
+                    if (best == null || r.score < best.score) best = r;
+                }
+                return best;
+            }
+            int mid = (from + to) >>> 1;
+            Evaluate left = new Evaluate(candidates, from, mid, evening, wastePenalty);
+            left.fork();
+            Recommendation right = new Evaluate(candidates, mid, to, evening, wastePenalty).compute();
+            Recommendation l = left.join();
+            return (l.score <= right.score) ? l : right;
+        }
+    }
+    
+    /**
+     * Replays the evening against a restaurant with the given tables.
+     */
+    private static Recommendation simulate(int[] capacities, Evening evening, double wastePenalty)
+    {
+        Restaurant restaurant = new Restaurant("Simulation", capacities);
+        Waitlist waitlist = restaurant.getWaitlist();
+        Table[] tables = restaurant.getAllTables();
+        int maxCapacity = restaurant.getMaxCapacity();
+        
+        // Departures, ordered by time: {time, table index, party index}
+        PriorityQueue<double[]> departures = new PriorityQueue<>((x, y) -> Double.compare(x[0], y[0]));
+        double totalWait = 0, totalWasted = 0;
+        int seated = 0;
+        int n = evening.arrivals.length;
+        
+        // Every arrival is before closing; after it, tables that free up are 
+        // not given to anyone, so the evening ends at the first later departure
+        int next = 0;
+        while (next < n || (!departures.isEmpty() && departures.peek()[0] < evening.closing))
+        {
+            boolean arrival = next < n && (departures.isEmpty() 
+                    || evening.arrivals[next] <= departures.peek()[0]);
+            if (arrival)
+            {
+                double now = evening.arrivals[next];
+                int size = evening.sizes[next];
+                if (size > maxCapacity) totalWait += evening.closing - now; // never seated
+                else
+                {
+                    Customer party = new Customer(Integer.toString(next), size, false);
+                    Table table = smallestFree(restaurant, size);
+                    if (table == null) waitlist.add(party);
+                    else
+                    {
+                        table.seat(party);
+                        totalWasted += table.getCapacity() - size;
+                        seated++;
+                        departures.add(new double[] {now + evening.turns[next], table.getIndex(), next});
+                    }
+                }
+                next++;
+            }
+            else
+            {
+                double[] departure = departures.poll();
+                double now = departure[0];
+                Table table = tables[(int) departure[1]];
+                table.vacate();
+                table.setStatus(0);
+                
+                Customer waiting = waitlist.getPartiesSeatable(table.getCapacity()).peek();
+                if (waiting != null)
+                {
+                    int party = Integer.parseInt(waiting.getName());
+                    waitlist.remove(waiting.getName());
+                    table.seat(waiting);
+                    totalWait += now - evening.arrivals[party];
+                    totalWasted += table.getCapacity() - waiting.getSize();
+                    seated++;
+                    departures.add(new double[] {now + evening.turns[party], table.getIndex(), party});
+                }
+            }
+        }
+        // Anyone still waiting at closing waited until then, and no longer
+        for (Customer c : waitlist.toArray())
+            totalWait += evening.closing - evening.arrivals[Integer.parseInt(c.getName())];
+        
+        double averageWait = (n == 0) ? 0 : totalWait / n;
+        double averageWasted = (seated == 0) ? 0 : totalWasted / seated;
+        return new Recommendation(capacities, averageWait, averageWasted, 
+                averageWait + wastePenalty * averageWasted);
+    }
+    
+    /**
+     * Returns the smallest free table that can seat the given party size.
+     */
+    private static Table smallestFree(Restaurant restaurant, int size)
+    {
+        Table best = null;
+        for (Table t : restaurant.getAvailTables(size))
+            if (t.getStatus() == 0 && (best == null || t.getCapacity() < best.getCapacity())) best = t;
+        return best;
+    }
+}
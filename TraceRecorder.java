@@ -0,0 +1,397 @@
+package restaurant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records everything that happens to a restaurant into a compact binary trace
+ * file, so that a busy service can be replayed offline by TraceReplayer.
+ * <p>
+ * The recorder listens to the restaurant and records every change to a table
+ * or to the waitlist as the operation that made it, so that replay goes
+ * through the same public methods as the original: a table change is
+ * recorded as a seat, vacate or setStatus if one of those would make it, and
+ * a waitlist removal as a remove by name if the customer was the first with
+ * that name. Anything else (an undo, for example) is recorded as the
+ * RestaurantCodec mutation that restores the new state. Queries do not
+ * change the restaurant and so cannot be seen by a listener; code that wants
+ * its queries in the trace (RestaurantSystem's lookups, for example) reports
+ * them with the record methods. Each event is stored as the time since the
+ * previous event in microseconds, the length of the event, and the event
+ * itself, so a busy evening takes a few bytes per event.
+ * <p>
+ * Events are appended to an in-memory buffer on the thread that caused them.
+ * Full buffers (and any partial buffer more than a second old) are handed to
+ * a background thread that writes them to the file, so recording never waits
+ * for the disk unless the writer has fallen several buffers behind.
+ * <p>
+ * A trace starts with a header describing the restaurant's tables, followed
+ * by events that recreate the restaurant's state when recording began.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class TraceRecorder implements RestaurantListener, Closeable
+{
+    /** First four bytes of every trace file ("RTRC"). */
+    public static final int MAGIC = 0x52545243;
+    /** Version of the trace format. */
+    public static final byte VERSION = 2;
+    
+    /** Event type: Table.seat, followed by the table index and the Customer. */
+    public static final byte SEAT = 8;
+    /** Event type: Table.vacate, followed by the table index. */
+    public static final byte VACATE = 9;
+    /** Event type: Table.setStatus, followed by the table index and status byte. */
+    public static final byte SET_STATUS = 10;
+    /** Event type: Waitlist.remove, followed by the name. */
+    public static final byte REMOVE = 11;
+    
+    /** Event type: findSeated query, followed by the name. */
+    public static final byte FIND_SEATED = 16;
+    /** Event type: getAvailTables query, followed by the party size. */
+    public static final byte AVAIL_TABLES = 17;
+    /** Event type: waitlist find query, followed by the name. */
+    public static final byte FIND_WAITING = 18;
+    /** Event type: waitlist positionOf query, followed by the name. */
+    public static final byte POSITION_OF = 19;
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAX_BUFFER_AGE = 1_000_000_000L; // nanoseconds
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    
+    private final Restaurant restaurant;
+    private final WritableByteChannel out;
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(8);
+    private final BlockingQueue<ByteBuffer> spare = new ArrayBlockingQueue<>(8);
+    private final Thread writer;
+    private volatile IOException writeError;
+    
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_SIZE);
+    private long lastEventNanos;  // time of the previous event, as counted in the trace
+    private long activeSince;     // when the first event went into the active buffer
+    private long events;
+    private boolean closed;
+    
+    /**
+     * Starts recording the given restaurant to the given file, replacing the
+     * file if it exists.
+     * 
+     * @param restaurant Restaurant to record
+     * @param file file to write the trace to
+     * @throws IOException if the file cannot be opened
+     */
+    public TraceRecorder(Restaurant restaurant, Path file) throws IOException
+    {
+        this(restaurant, FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+    
+    /**
+     * Starts recording the given restaurant to the given channel, which the
+     * recorder closes when it is closed.
+     * 
+     * @param restaurant Restaurant to record
+     * @param out channel to write the trace to
+     */
+    public TraceRecorder(Restaurant restaurant, WritableByteChannel out)
+    {
+        this.restaurant = restaurant;
+        this.out = out;
+        
+        // Started first, since a large initial state fills more buffers than 
+        // the queue holds
+        writer = new Thread(this::writeLoop, "trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+        writeHeader();
+        lastEventNanos = System.nanoTime();
+        
+        // Recreate the current state, so that replay starts from the same place
+        for (Table t : restaurant.getAllTables())
+        {
+            if (t.getStatus() != 0 || t.getOccupant() != null)
+                append(RestaurantCodec.encodeTableState(t));
+        }
+        Waitlist waitlist = restaurant.getWaitlist();
+        for (Customer c : waitlist.toArray())
+            append(RestaurantCodec.encodeWaitlistAdd(waitlist.keyOf(c), c));
+        restaurant.addListener(this);
+    }
+    
+    @Override
+    public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+    {
+        Customer occupant = table.getOccupant();
+        int status = table.getStatus();
+        int index = table.getIndex();
+        if (oldOccupant == null && oldStatus == 0 && occupant != null && status == 1)
+        {
+            ByteBuffer event = ByteBuffer.allocate(1 + RestaurantCodec.varintSize(index)
+                    + RestaurantCodec.encodedSize(occupant));
+            event.put(SEAT);
+            RestaurantCodec.putVarint(event, index);
+            RestaurantCodec.encode(occupant, event);
+            append(event.array());
+        }
+        else if (oldOccupant != null && occupant == null && status == 5)
+        {
+            ByteBuffer event = ByteBuffer.allocate(1 + RestaurantCodec.varintSize(index));
+            event.put(VACATE);
+            RestaurantCodec.putVarint(event, index);
+            append(event.array());
+        }
+        else if (occupant == oldOccupant && (occupant == null) == (status == 0 || status == 5))
+        {
+            ByteBuffer event = ByteBuffer.allocate(1 + RestaurantCodec.varintSize(index) + 1);
+            event.put(SET_STATUS);
+            RestaurantCodec.putVarint(event, index);
+            event.put((byte) status);
+            append(event.array());
+        }
+        else append(RestaurantCodec.encodeTableState(table));
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        append(RestaurantCodec.encodeWaitlistAdd(restaurant.changingWaitlistKey(), customer));
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        // Removing by name gives the same result if nobody with the name is 
+        // still ahead of the customer
+        long key = restaurant.changingWaitlistKey();
+        long first = restaurant.getWaitlist().keyOf(customer.getName());
+        if (first < 0 || first > key) appendQuery(REMOVE, customer.getName());
+        else append(RestaurantCodec.encodeWaitlistRemove(key, customer));
+    }
+    
+    /**
+     * Records a call to Restaurant.findSeated.
+     * 
+     * @param partyName name that was looked up
+     */
+    public void recordFindSeated(String partyName)
+    {
+        appendQuery(FIND_SEATED, partyName);
+    }
+    
+    /**
+     * Records a call to Restaurant.getAvailTables.
+     * 
+     * @param partySize party size that was asked for
+     */
+    public void recordAvailTables(int partySize)
+    {
+        ByteBuffer query = ByteBuffer.allocate(1 + RestaurantCodec.varintSize(partySize));
+        query.put(AVAIL_TABLES);
+        RestaurantCodec.putVarint(query, partySize);
+        append(query.array());
+    }
+    
+    /**
+     * Records a call to Waitlist.find.
+     * 
+     * @param partyName name that was looked up
+     */
+    public void recordFindWaiting(String partyName)
+    {
+        appendQuery(FIND_WAITING, partyName);
+    }
+    
+    /**
+     * Records a call to Waitlist.positionOf.
+     * 
+     * @param partyName name that was looked up
+     */
+    public void recordPositionOf(String partyName)
+    {
+        appendQuery(POSITION_OF, partyName);
+    }
+    
+    /**
+     * Returns the number of events recorded so far.
+     * 
+     * @return count of events, including those recreating the initial state
+     */
+    public synchronized long eventCount()
+    {
+        return events;
+    }
+    
+    /**
+     * Stops recording, writes any buffered events, and closes the file.
+     * 
+     * @throws IOException if any part of the trace could not be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        restaurant.removeListener(this);
+        synchronized (this)
+        {
+            if (closed) return;
+            closed = true;
+            if (active.position() > 0) handOff();
+            put(END);
+        }
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            out.close();
+        }
+        if (writeError != null) throw writeError;
+    }
+    
+    /**
+     * Writes the magic number, version, restaurant name and tables.
+     */
+    private void writeHeader()
+    {
+        Table[] tables = restaurant.getAllTables();
+        int size = 4 + 1 + RestaurantCodec.stringSize(restaurant.getName())
+                + RestaurantCodec.varintSize(tables.length);
+        for (Table t : tables)
+        {
+            size += RestaurantCodec.stringSize(t.getLabel()) + RestaurantCodec.varintSize(t.getCapacity())
+                    + 2 + ((t.getSection() == null) ? 0 : RestaurantCodec.stringSize(t.getSection()));
+        }
+        ByteBuffer header = (size <= active.capacity()) ? active : ByteBuffer.allocate(size);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        RestaurantCodec.putString(header, restaurant.getName());
+        RestaurantCodec.putVarint(header, tables.length);
+        for (Table t : tables)
+        {
+            RestaurantCodec.putString(header, t.getLabel());
+            RestaurantCodec.putVarint(header, t.getCapacity());
+            header.put((byte) t.getAttributeMask());
+            if (t.getSection() == null) header.put((byte) 0);
+            else
+            {
+                header.put((byte) 1);
+                RestaurantCodec.putString(header, t.getSection());
+            }
+        }
+        if (header != active)
+        {
+            header.flip();
+            put(header);
+        }
+        activeSince = System.nanoTime();
+    }
+    
+    private void appendQuery(byte type, String partyName)
+    {
+        ByteBuffer query = ByteBuffer.allocate(1 + RestaurantCodec.stringSize(partyName));
+        query.put(type);
+        RestaurantCodec.putString(query, partyName);
+        append(query.array());
+    }
+    
+    /**
+     * Adds one event to the active buffer, handing the buffer to the writer
+     * first if it is full or old.
+     */
+    private synchronized void append(byte[] event)
+    {
+        if (closed) return;
+        long now = System.nanoTime();
+        long micros = Math.min((now - lastEventNanos) / 1000, Integer.MAX_VALUE);
+        lastEventNanos += micros * 1000; // so rounding errors don't add up
+        
+        int size = RestaurantCodec.varintSize((int) micros)
+                + RestaurantCodec.varintSize(event.length) + event.length;
+        if (active.remaining() < size
+                || (active.position() > 0 && now - activeSince > MAX_BUFFER_AGE)) handOff();
+        if (active.remaining() < size) active = ByteBuffer.allocate(size); // oversized event
+        if (active.position() == 0) activeSince = now;
+        
+        RestaurantCodec.putVarint(active, (int) micros);
+        RestaurantCodec.putVarint(active, event.length);
+        active.put(event);
+        events++;
+    }
+    
+    /**
+     * Passes the active buffer to the writer thread and starts a new one.
+     */
+    private void handOff()
+    {
+        active.flip();
+        put(active);
+        ByteBuffer next = spare.poll();
+        active = (next != null) ? next : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+    
+    /**
+     * Queues a buffer for writing, waiting if the writer is far behind.
+     */
+    private void put(ByteBuffer buffer)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                filled.put(buffer);
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+    
+    /**
+     * Writer thread: writes each filled buffer to the file.
+     */
+    private void writeLoop()
+    {
+        while (true)
+        {
+            ByteBuffer buffer;
+            try
+            {
+                buffer = filled.take();
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            if (buffer == END) return;
+            try
+            {
+                while (buffer.hasRemaining() && writeError == null) out.write(buffer);
+            }
+            catch (IOException e)
+            {
+                writeError = e; // reported by close; later buffers are discarded
+            }
+            if (buffer.capacity() == BUFFER_SIZE)
+            {
+                buffer.clear();
+                spare.offer(buffer);
+            }
+        }
+    }
+}
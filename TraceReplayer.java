@@ -0,0 +1,345 @@
+package restaurant;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-executes a trace written by TraceRecorder against a ReplayTarget and
+ * measures how long the target takes.
+ * <p>
+ * Events are applied in recorded order on the calling thread, so the same
+ * trace always produces the same sequence of calls. Replay can run at the
+ * recorded speed, waiting until each event's recorded time before applying
+ * it, or as fast as possible to find the target's throughput. The report
+ * gives the time taken by each call (decoding the trace is not counted),
+ * split into mutations and queries, and a checksum of the query results so
+ * that two backends can be checked for giving the same answers.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class TraceReplayer
+{
+    /**
+     * Results of one replay.
+     */
+    public static final class Report
+    {
+        private final long events;
+        private final long elapsedNanos;
+        private final long checksum;
+        private final SeatingLatencyTracker.Histogram mutations;
+        private final SeatingLatencyTracker.Histogram queries;
+        
+        private Report(long events, long elapsedNanos, long checksum,
+                SeatingLatencyTracker.Histogram mutations, SeatingLatencyTracker.Histogram queries)
+        {
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.checksum = checksum;
+            this.mutations = mutations;
+            this.queries = queries;
+        }
+        
+        /**
+         * Returns the number of events replayed.
+         * 
+         * @return count of events
+         */
+        public long getEvents()
+        {
+            return events;
+        }
+        
+        /**
+         * Returns the wall-clock time the replay took, including any waiting
+         * to keep to the recorded speed.
+         * 
+         * @return time in nanoseconds
+         */
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+        
+        /**
+         * Returns the number of events replayed per second of wall-clock time.
+         * 
+         * @return throughput in events per second
+         */
+        public double getThroughput()
+        {
+            return (elapsedNanos == 0) ? 0 : events * 1e9 / elapsedNanos;
+        }
+        
+        /**
+         * Returns a checksum of every query result, in order.
+         * 
+         * @return checksum, which is equal for two backends that gave the
+         * same answers to the same trace
+         */
+        public long getChecksum()
+        {
+            return checksum;
+        }
+        
+        /**
+         * Returns the time taken by each mutation (table or waitlist change).
+         * 
+         * @return histogram of latencies in nanoseconds
+         */
+        public SeatingLatencyTracker.Histogram getMutationLatency()
+        {
+            return mutations;
+        }
+        
+        /**
+         * Returns the time taken by each query.
+         * 
+         * @return histogram of latencies in nanoseconds
+         */
+        public SeatingLatencyTracker.Histogram getQueryLatency()
+        {
+            return queries;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return String.format("%d events in %.1f ms (%.0f events/s), checksum %016x%n"
+                    + "Mutations: %s%nQueries: %s", events, elapsedNanos / 1e6, getThroughput(),
+                    checksum, mutations, queries);
+        }
+    }
+    
+    private final String name;
+    private final String[] labels;
+    private final int[] capacities;
+    private final String[] sections;
+    private final int[] attributes;
+    private final ByteBuffer events;  // positioned at the first event
+    
+    /**
+     * Loads a trace file.
+     * 
+     * @param file file written by a TraceRecorder
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a trace or has an
+     * unsupported version
+     */
+    public TraceReplayer(Path file) throws IOException
+    {
+        this(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+    
+    /**
+     * Loads a trace from a buffer, starting at its position.
+     * 
+     * @param trace buffer holding a trace written by a TraceRecorder
+     * @throws IllegalArgumentException if the buffer does not hold a trace or
+     * has an unsupported version
+     */
+    public TraceReplayer(ByteBuffer trace)
+    {
+        ByteBuffer in = trace.duplicate();
+        if (in.remaining() < 5 || in.getInt() != TraceRecorder.MAGIC)
+            throw new IllegalArgumentException("Not a restaurant trace.");
+        byte version = in.get();
+        if (version != TraceRecorder.VERSION)
+            throw new IllegalArgumentException("Unsupported trace version " + version + ".");
+        
+        name = RestaurantCodec.getString(in);
+        int numTables = RestaurantCodec.getVarint(in);
+        labels = new String[numTables];
+        capacities = new int[numTables];
+        sections = new String[numTables];
+        attributes = new int[numTables];
+        for (int i = 0; i < numTables; i++)
+        {
+            labels[i] = RestaurantCodec.getString(in);
+            capacities[i] = RestaurantCodec.getVarint(in);
+            attributes[i] = in.get();
+            if (in.get() != 0) sections[i] = RestaurantCodec.getString(in);
+        }
+        events = in.slice();
+    }
+    
+    /**
+     * Returns a new, empty restaurant with the same name and tables as the
+     * one the trace was recorded from, ready to be replayed against with
+     * ReplayTarget.of.
+     * 
+     * @return new Restaurant object
+     */
+    public Restaurant createRestaurant()
+    {
+        Table[] tables = new Table[labels.length];
+        for (int i = 0; i < tables.length; i++)
+        {
+            tables[i] = new Table(labels[i], capacities[i], sections[i],
+                    TableAttribute.fromMask(attributes[i]));
+        }
+        return new Restaurant(name, tables);
+    }
+    
+    /**
+     * Returns the number of tables in the recorded restaurant.
+     * 
+     * @return count of tables
+     */
+    public int numTables()
+    {
+        return labels.length;
+    }
+    
+    /**
+     * Applies every event in the trace to the target, in order.
+     * 
+     * @param target backend to replay against
+     * @param recordedSpeed true to wait until each event's recorded time
+     * before applying it, or false to apply events as fast as possible
+     * @return timing and checksum of the replay
+     * @throws IllegalArgumentException if the trace holds an invalid event
+     */
+    public Report replay(ReplayTarget target, boolean recordedSpeed)
+    {
+        SeatingLatencyTracker.Histogram mutations = new SeatingLatencyTracker.Histogram();
+        SeatingLatencyTracker.Histogram queries = new SeatingLatencyTracker.Histogram();
+        ByteBuffer in = events.duplicate();
+        long count = 0;
+        long checksum = 0;
+        long offset = 0;  // recorded time of the current event, in nanoseconds
+        long start = System.nanoTime();
+        
+        // A trace cut short by a crash can end partway through an event
+        while (in.remaining() > 2)
+        {
+            offset += RestaurantCodec.getVarint(in) * 1000L;
+            int length = RestaurantCodec.getVarint(in);
+            if (length > in.remaining()) break;
+            ByteBuffer event = in.slice();
+            event.limit(length);
+            in.position(in.position() + length);
+            
+            if (recordedSpeed)
+            {
+                long wait;
+                while ((wait = start + offset - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+            }
+            
+            byte type = event.get();
+            long before;
+            int result, index, status;
+            switch (type)
+            {
+                case TraceRecorder.SEAT:
+                    index = checkIndex(RestaurantCodec.getVarint(event));
+                    Customer seated = RestaurantCodec.decodeCustomer(event);
+                    before = System.nanoTime();
+                    target.seat(index, seated);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case TraceRecorder.VACATE:
+                    index = checkIndex(RestaurantCodec.getVarint(event));
+                    before = System.nanoTime();
+                    target.vacate(index);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case TraceRecorder.SET_STATUS:
+                    index = checkIndex(RestaurantCodec.getVarint(event));
+                    status = checkStatus(event.get(), index);
+                    before = System.nanoTime();
+                    target.setStatus(index, status);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case RestaurantCodec.TABLE_STATE:
+                    index = checkIndex(RestaurantCodec.getVarint(event));
+                    status = checkStatus(event.get(), index);
+                    Customer occupant = (event.get() != 0) ? RestaurantCodec.decodeCustomer(event) : null;
+                    before = System.nanoTime();
+                    target.tableState(index, status, occupant);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case RestaurantCodec.WAITLIST_ADD:
+                    long key = event.getLong();
+                    Customer customer = RestaurantCodec.decodeCustomer(event);
+                    before = System.nanoTime();
+                    target.waitlistAdd(key, customer);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case TraceRecorder.REMOVE:
+                    String name = RestaurantCodec.getString(event);
+                    before = System.nanoTime();
+                    target.waitlistRemove(name);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case RestaurantCodec.WAITLIST_REMOVE:
+                    long removedKey = event.getLong();
+                    String removed = RestaurantCodec.getString(event);
+                    before = System.nanoTime();
+                    target.waitlistRemove(removedKey, removed);
+                    mutations.record(System.nanoTime() - before);
+                    break;
+                case TraceRecorder.FIND_SEATED:
+                    String lookedUp = RestaurantCodec.getString(event);
+                    before = System.nanoTime();
+                    result = target.findSeated(lookedUp);
+                    queries.record(System.nanoTime() - before);
+                    checksum = checksum * 31 + result;
+                    break;
+                case TraceRecorder.AVAIL_TABLES:
+                    int partySize = RestaurantCodec.getVarint(event);
+                    before = System.nanoTime();
+                    result = target.availTables(partySize);
+                    queries.record(System.nanoTime() - before);
+                    checksum = checksum * 31 + result;
+                    break;
+                case TraceRecorder.FIND_WAITING:
+                    String waiting = RestaurantCodec.getString(event);
+                    before = System.nanoTime();
+                    result = target.findWaiting(waiting);
+                    queries.record(System.nanoTime() - before);
+                    checksum = checksum * 31 + result;
+                    break;
+                case TraceRecorder.POSITION_OF:
+                    String position = RestaurantCodec.getString(event);
+                    before = System.nanoTime();
+                    result = target.positionOf(position);
+                    queries.record(System.nanoTime() - before);
+                    checksum = checksum * 31 + result;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown trace event type " + type + ".");
+            }
+            count++;
+        }
+        return new Report(count, System.nanoTime() - start, checksum, mutations, queries);
+    }
+    
+    /**
+     * Returns the given table index if the recorded restaurant has such a table.
+     * 
+     * @throws IllegalArgumentException if it does not
+     */
+    private int checkIndex(int index)
+    {
+        if (index < 0 || index >= labels.length)
+            throw new IllegalArgumentException("Invalid table index " + index + ".");
+        return index;
+    }
+    
+    /**
+     * Returns the given status if it is between 0 and 5.
+     * 
+     * @throws IllegalArgumentException if it is not
+     */
+    private static int checkStatus(int status, int index)
+    {
+        if (status < 0 || status > 5)
+            throw new IllegalArgumentException("Invalid table state for table " + index + ".");
+        return status;
+    }
+}
@@ -0,0 +1,115 @@
+package restaurant;
+
+import java.time.Clock;
+
+/**
+ * Estimates how long a customer at a given position in a restaurant's 
+ * waitlist will wait before being offered a table.
+ * <p>
+ * The estimate is based on how often customers leave the front of the 
+ * waitlist. Each time a customer is removed from the list, whether to be 
+ * seated or because they left, the time since the previous removal is folded 
+ * into an exponentially weighted moving average. Time when the list was empty 
+ * is not counted, since nobody was waiting to be seated. A customer at 
+ * position p is then expected to wait p times the average interval.
+ * <p>
+ * The estimator is updated on the thread that changes the restaurant, and its 
+ * estimates can be read from any thread.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class WaitEstimator implements RestaurantListener
+{
+    /** Weight given to each new interval in the moving average. */
+    public static final double ALPHA = 0.1;
+    
+    private static final long DEFAULT_INTERVAL = 5 * 60_000L;
+    
+    private final Clock clock;
+    private final Waitlist waitlist;
+    private volatile double averageInterval; // milliseconds between removals; 0 = none seen
+    private long busySince;                  // start of the current interval, or -1 if list is empty
+    
+    /**
+     * Creates an estimator for the given restaurant, using the system clock, 
+     * and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose waitlist should be estimated
+     */
+    public WaitEstimator(Restaurant restaurant)
+    {
+        this(restaurant, Clock.systemUTC());
+    }
+    
+    /**
+     * Creates an estimator for the given restaurant that uses the given clock, 
+     * and registers it as a listener.
+     * 
+     * @param restaurant Restaurant whose waitlist should be estimated
+     * @param clock clock used to time removals
+     */
+    public WaitEstimator(Restaurant restaurant, Clock clock)
+    {
+        this.clock = clock;
+        waitlist = restaurant.getWaitlist();
+        busySince = (waitlist.length() == 0) ? -1 : clock.millis();
+        restaurant.addListener(this);
+    }
+    
+    @Override
+    public void customerAdded(Customer customer)
+    {
+        if (busySince < 0) busySince = clock.millis();
+    }
+    
+    @Override
+    public void customerRemoved(Customer customer)
+    {
+        long now = clock.millis();
+        if (busySince >= 0)
+        {
+            long interval = now - busySince;
+            double average = averageInterval;
+            averageInterval = (average == 0) ? interval : average + ALPHA * (interval - average);
+        }
+        busySince = (waitlist.length() == 0) ? -1 : now;
+    }
+    
+    /**
+     * Returns the average time between customers leaving the waitlist.
+     * 
+     * @return interval in milliseconds; 5 minutes until a removal has been seen
+     */
+    public long getAverageInterval()
+    {
+        double average = averageInterval;
+        return (average == 0) ? DEFAULT_INTERVAL : Math.round(average);
+    }
+    
+    /**
+     * Returns the expected wait for a customer at the given position.
+     * 
+     * @param position position in line, counting from 1
+     * @return expected wait in milliseconds
+     * @throws IllegalArgumentException if position is less than 1
+     */
+    public long estimateWait(int position)
+    {
+        if (position < 1) throw new IllegalArgumentException("Position must be at least 1.");
+        return position * getAverageInterval();
+    }
+    
+    /**
+     * Returns the expected wait for the customer with the given name, from 
+     * their current position in the waitlist.
+     * 
+     * @param partyName name or ID of a Customer
+     * @return expected wait in milliseconds, or -1 if they are not waiting
+     */
+    public long estimateWait(String partyName)
+    {
+        int position = waitlist.positionOf(partyName);
+        return (position == 0) ? -1 : estimateWait(position);
+    }
+}
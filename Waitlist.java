@@ -1,5 +1,11 @@
 package restaurant;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Restaurant waiting list consisting of a Customer queue with two priority levels, 
  * based on whether or not customers have a reservation. All customers with 
@@ -17,38 +23,71 @@ package restaurant;
  * due to circumstances that are not handled by RestaurantSystem; however, it is 
  * recommended that remove() generally be used to remove the first customer in 
  * this smaller Waitlist.
+ * <p>
+ * The queue is stored as a persistent (immutable, structurally shared) balanced
+ * tree, ordered by a key made up of the customer's tier and order of arrival.
+ * Each change builds a new root that shares all but O(log n) nodes with the
+ * old one, so snapshot() can hand out an independent copy of the list in O(1)
+ * time, and old versions (kept by CommandLog for undo, for instance) cost only
+ * the nodes that have changed since.
+ * <p>
+ * Every node also records the size of its subtree, so a customer's position 
+ * in line can be counted on the way down to their node, and a table of 
+ * names to keys finds that node without a search. Together they answer 
+ * positionOf in O(log n) time, however long the list is.
  * 
  * @author Katie Woods
  * @version 1.0
  */
 public class Waitlist
 {
-    private class ListNode 
+    /**
+     * Immutable tree node. Each node also stores the height and size of the
+     * subtree below it, for balancing and for finding positions.
+     */
+    private static final class Node
     {
-        ListNode next;
-        Customer data;
+        final long key;
+        final Customer data;
+        final Node left, right;
+        final int height, size;
         
-        ListNode(ListNode next, Customer data)
+        Node(long key, Customer data, Node left, Node right)
         {
-            this.next = next;
+            this.key = key;
             this.data = data;
+            this.left = left;
+            this.right = right;
+            height = Math.max(height(left), height(right)) + 1;
+            size = size(left) + size(right) + 1;
         }
     }
     
-    private ListNode frontOfQueue;
-    private ListNode endOfReservationQueue; // storing this pointer makes all insertions O(1)
-    private ListNode endOfQueue;
-    private int length;
-    private int numReservations;
+    // Keys of customers without a reservation have this bit set, which sorts
+    // them after every customer with a reservation
+    private static final long WALK_IN = 1L << 62;
+    
+    // Parties larger than this are counted in largePartyCounts, so that one
+    // enormous party cannot make partySizeCounts enormous too
+    private static final int MAX_COUNTED_SIZE = 1024;
+    
+    private volatile Node root;    // replaced, never modified, so readers need no lock
+    private long nextSequence;     // arrival counter, used for the low bits of each key
+    private volatile int[] partySizeCounts; // number of waiting parties of each size, or null until needed
+    private Map<Integer, Integer> largePartyCounts; // counts of sizes above MAX_COUNTED_SIZE
+    private volatile Map<String, long[]> keysByName; // lowercase name -> sorted keys, or null until needed
+    private Restaurant owner;      // restaurant to notify of changes, or null
     
     /**
      * Creates an empty waitlist of length 0.
      */
     public Waitlist()
     {
-        frontOfQueue = endOfQueue = endOfReservationQueue = null;
-        length = 0;
-        numReservations = 0;
+        root = null;
+        nextSequence = 0;
+        partySizeCounts = new int[8];
+        largePartyCounts = new HashMap<>();
+        keysByName = new ConcurrentHashMap<>();
     }
     
     /**
@@ -58,7 +97,7 @@ public class Waitlist
      */
     public int length()
     {
-        return length;
+        return size(root);
     }
     
     /**
@@ -68,7 +107,21 @@ public class Waitlist
      */
     public int numWithReservations()
     {
-        return numReservations;
+        return countBefore(root, WALK_IN);
+    }
+    
+    /**
+     * Returns the number of parties in the list with exactly the given size.
+     * 
+     * @param partySize number of people in a party
+     * @return number of waiting Customers whose party is that size
+     */
+    public int numWithPartySize(int partySize)
+    {
+        int[] counts = partySizeCounts();
+        if (partySize > MAX_COUNTED_SIZE) return largePartyCounts.getOrDefault(partySize, 0);
+        if (partySize < 1 || partySize >= counts.length) return 0;
+        return counts[partySize];
     }
     
     /**
@@ -83,36 +136,7 @@ public class Waitlist
      */
     public boolean add(Customer newCustomer)
     {
-        if (frontOfQueue == null) // waitlist is empty
-        {
-            frontOfQueue = endOfQueue = new ListNode(null, newCustomer);
-            if (newCustomer.hasReservation()) endOfReservationQueue = frontOfQueue;
-        }
-        else if (newCustomer.hasReservation())
-        {
-            // waitlist is not empty, but no one waiting has a reservation - make newCustomer front of queue
-            if (endOfReservationQueue == null)
-            {
-                endOfReservationQueue = frontOfQueue = new ListNode(frontOfQueue, newCustomer);
-            }
-            else // at least one reservation, so add after the last reservation
-            {
-                ListNode newNode = new ListNode(null, newCustomer);
-                newNode.next = endOfReservationQueue.next;
-                endOfReservationQueue.next = newNode;
-                endOfReservationQueue = newNode;
-            }
-            numReservations++;
-        }
-        else // newCustomer doesn't have reservation; add to end
-        {
-            ListNode newNode = new ListNode(null, newCustomer);
-            endOfQueue.next = newNode;
-            endOfQueue = newNode;
-        }
-        
-        length++;
-        
+        addEntry(newCustomer);
         return true;
     }
     
@@ -128,34 +152,121 @@ public class Waitlist
      */
     public boolean remove(String partyName)
     {
-        // List is empty
-        if (frontOfQueue == null) return false;
+        Node found = findNode(partyName);
+        if (found == null) return false;
         
-        ListNode current = frontOfQueue;
-        ListNode prev = null;
-        while (current.next != null && !current.data.getName().equalsIgnoreCase(partyName))
+        removeEntry(found.key);
+        return true;
+    }
+    
+    /**
+     * Adds several customers at once, such as a tour group checking in
+     * together. The result is the same as calling add for each customer in
+     * order, but a batch that is large compared to the list is merged into
+     * it in a single pass and the tree rebuilt, instead of paying for a
+     * separate O(log n) insertion (and rebalancing) per customer.
+     * 
+     * @param newCustomers Customers to be added, in order of arrival
+     * @return true if successful
+     */
+    public boolean addAll(Customer... newCustomers)
+    {
+        int k = newCustomers.length;
+        int n = size(root);
+        if (!worthRebuilding(k, n))
         {
-            prev = current;
-            current = current.next;
+            for (Customer c : newCustomers) addEntry(c);
+            return true;
         }
-        // Reached end of list without finding the customer
-        if (!current.data.getName().equals(partyName)) return false;
         
-        // If removing first item in queue, next item (if any) is now the first item
-        if (current == frontOfQueue) frontOfQueue = current.next;
+        // Existing reservations, then new reservations, then existing
+        // walk-ins, then new walk-ins: the order that k calls to add give
+        long[] keys = new long[n + k];
+        Customer[] data = new Customer[n + k];
+        int reservations = countBefore(root, WALK_IN);
+        int newReservations = 0;
+        for (Customer c : newCustomers)
+            if (c.hasReservation()) newReservations++;
         
-        // If removing last item in queue, previous item (if any) is now end of queue
-        if (current == endOfQueue) endOfQueue = prev;
+        fillEntries(root, keys, data, 0, reservations, newReservations);
+        int res = reservations, walkIn = n + newReservations;
+        long[] newKeys = new long[k];
+        for (int i = 0; i < k; i++)
+        {
+            Customer c = newCustomers[i];
+            int at = c.hasReservation() ? res++ : walkIn++;
+            keys[at] = newKeys[i] = (c.hasReservation() ? 0 : WALK_IN) | nextSequence++;
+            data[at] = c;
+            countPartySize(c.getSize(), 1);
+        }
+        replaceTree(build(keys, data, 0, n + k));
         
-        // If removing last reservation, previous item (if any) is now last reservation
-        if (current == endOfReservationQueue) endOfReservationQueue = prev;
+        if (owner != null)
+            for (int i = 0; i < k; i++) owner.waitlistChanged(newCustomers[i], newKeys[i], true);
+        return true;
+    }
+    
+    /**
+     * Removes several customers at once, such as parties who have all given
+     * up at the end of the night. The result is the same as calling remove
+     * for each name in order: each name removes the first remaining customer
+     * with that name, and names that are not found are skipped. A batch that
+     * is large compared to the list is removed in a single pass and the tree
+     * rebuilt.
+     * 
+     * @param partyNames names or IDs of Customers in this list
+     * @return number of customers removed
+     */
+    public int removeAll(String... partyNames)
+    {
+        // Find the keys first, so that each lookup sees the list unchanged
+        Map<String, long[]> index = keysByName();
+        Map<String, Integer> taken = new HashMap<>();
+        long[] toRemove = new long[partyNames.length];
+        int m = 0;
+        for (String name : partyNames)
+        {
+            if (name == null) continue;
+            String lower = name.toLowerCase(Locale.ROOT);
+            long[] keys = index.get(lower);
+            int used = taken.getOrDefault(lower, 0);
+            if (keys == null || used == keys.length) continue;
+            toRemove[m++] = keys[used];
+            taken.put(lower, used + 1);
+        }
         
-        if (prev != null) prev.next = current.next; // Remove node from list
-        current.next = null; // Free removed node for garbage collection
+        int n = size(root);
+        if (!worthRebuilding(m, n))
+        {
+            for (int i = 0; i < m; i++) removeEntry(toRemove[i]);
+            return m;
+        }
         
-        length--;
-        if (current.data.hasReservation()) numReservations--;
-        return true;
+        long[] sorted = Arrays.copyOf(toRemove, m);
+        Arrays.sort(sorted);
+        long[] keys = new long[n];
+        Customer[] data = new Customer[n];
+        fillEntries(root, keys, data, 0, n, 0);
+        Customer[] removed = new Customer[m];
+        int kept = 0, next = 0;
+        for (int i = 0; i < n; i++)
+        {
+            if (next < m && keys[i] == sorted[next])
+            {
+                removed[next++] = data[i];
+                countPartySize(data[i].getSize(), -1);
+                continue;
+            }
+            keys[kept] = keys[i];
+            data[kept++] = data[i];
+        }
+        replaceTree(build(keys, data, 0, kept));
+        
+        if (owner != null) // in the order given, as remove would have reported them
+            for (int i = 0; i < m; i++) 
+                owner.waitlistChanged(removed[Arrays.binarySearch(sorted, toRemove[i])], 
+                        toRemove[i], false);
+        return m;
     }
     
     /**
@@ -169,14 +280,41 @@ public class Waitlist
      */
     public Customer find(String partyName)
     {
-        ListNode current = frontOfQueue;
+        Node found = findNode(partyName);
+        return (found == null) ? null : found.data;
+    }
+    
+    /**
+     * Returns the position in line of the customer with the given name, 
+     * counting from 1 for the customer who will be offered the next table. 
+     * Customers with reservations are always ahead of those without. If more 
+     * than one customer has the same name, the position of the one closest 
+     * to the front is returned.
+     * 
+     * @param partyName name or ID of a Customer
+     * @return position in the waitlist, or 0 if no customer has that name
+     */
+    public int positionOf(String partyName)
+    {
+        if (partyName == null) return 0;
+        Node top = root;
+        long[] keys = keysByName().get(partyName.toLowerCase(Locale.ROOT));
+        if (keys == null) return 0;
+        
+        // Count the entries to the left of the path down to the key
+        int before = 0;
+        Node current = top;
         while (current != null)
         {
-            if (current.data.getName().equalsIgnoreCase(partyName)) return current.data;
-            current = current.next;
+            if (keys[0] < current.key) current = current.left;
+            else if (keys[0] > current.key)
+            {
+                before += size(current.left) + 1;
+                current = current.right;
+            }
+            else return before + size(current.left) + 1;
         }
-        // customer with this name is not in waitlist
-        return null;
+        return 0; // removed by another thread since the lookup
     }
     
     /**
@@ -186,8 +324,72 @@ public class Waitlist
      */
     public Customer peek()
     {
-        if (frontOfQueue == null) return null;
-        return frontOfQueue.data;
+        Node current = root;
+        if (current == null) return null;
+        while (current.left != null) current = current.left;
+        return current.data;
+    }
+    
+    /**
+     * Returns the first customers in the waitlist, in the order in which they 
+     * will be offered for seating. Only the front of the list is visited, so 
+     * this takes O(count + log n) time however long the list is.
+     * 
+     * @param count maximum number of customers to return
+     * @return array of up to count Customers from the front of the list
+     */
+    public Customer[] peek(int count)
+    {
+        Node top = root;
+        Customer[] customers = new Customer[Math.max(0, Math.min(count, size(top)))];
+        Node[] stack = new Node[height(top)];
+        int depth = 0, i = 0;
+        Node current = top;
+        while (i < customers.length)
+        {
+            while (current != null)
+            {
+                stack[depth++] = current;
+                current = current.left;
+            }
+            current = stack[--depth];
+            customers[i++] = current.data;
+            current = current.right;
+        }
+        return customers;
+    }
+    
+    /**
+     * Returns all Customers in the waitlist, in the order in which they will be 
+     * offered for seating.
+     * 
+     * @return array of waiting Customers, which is empty if the waitlist is empty
+     */
+    public Customer[] toArray()
+    {
+        Node top = root;
+        Customer[] customers = new Customer[size(top)];
+        fill(top, customers, 0);
+        return customers;
+    }
+    
+    /**
+     * Returns a copy of this waitlist as it is now. The copy shares its
+     * structure with this list, so it is made in O(1) time, but changes to
+     * either list do not affect the other. The copy does not belong to a
+     * restaurant, and it is safe to take a snapshot while another thread is
+     * adding to or removing from this list.
+     * 
+     * @return independent copy of this waitlist
+     */
+    public Waitlist snapshot()
+    {
+        Waitlist copy = new Waitlist();
+        copy.root = root;
+        copy.nextSequence = nextSequence;
+        copy.partySizeCounts = null; // recounted from the tree if needed
+        copy.keysByName = null;      // likewise
+        return copy;
     }
     
     /**
@@ -201,12 +403,23 @@ public class Waitlist
     public Waitlist getPartiesSeatable(int capacity)
     {
         Waitlist lessThan = new Waitlist();
+        lessThan.nextSequence = nextSequence;
         
-        ListNode current = frontOfQueue;
-        while (current != null)
+        Node top = root;
+        Node[] stack = new Node[height(top)];
+        int depth = 0;
+        Node current = top;
+        while (current != null || depth > 0)
         {
-            if (current.data.getSize() <= capacity) lessThan.add(current.data);
-            current = current.next;
+            while (current != null)
+            {
+                stack[depth++] = current;
+                current = current.left;
+            }
+            current = stack[--depth];
+            if (current.data.getSize() <= capacity)
+                lessThan.restoreEntry(current.key, current.data);
+            current = current.right;
         }
         return lessThan;
     }
@@ -220,15 +433,437 @@ public class Waitlist
     @Override
     public String toString()
     {
-        if (frontOfQueue == null) return "There are no waiting patrons.";
-        String returnString = "";
-        ListNode current = frontOfQueue;
-        while (current != null)
+        Customer[] customers = toArray();
+        if (customers.length == 0) return "There are no waiting patrons.";
+        StringBuilder returnString = new StringBuilder();
+        for (Customer c : customers)
+        {
+            if (returnString.length() > 0) returnString.append('\n');
+            returnString.append(c);
+        }
+        return returnString.toString();
+    }
+    
+    /**
+     * Registers this waitlist with the restaurant that contains it, so that 
+     * the restaurant's listeners are told when customers are added or removed. 
+     * Sub-lists such as those returned by getPartiesSeatable have no owner.
+     * 
+     * @param owner restaurant containing this waitlist
+     */
+    void attach(Restaurant owner)
+    {
+        this.owner = owner;
+    }
+    
+    /**
+     * Adds a customer in the position given by their reservation status and
+     * returns the key that records that position.
+     * 
+     * @param newCustomer Customer to be added
+     * @return key of the new entry, which can be passed to removeEntry or
+     * restoreEntry
+     */
+    long addEntry(Customer newCustomer)
+    {
+        long key = (newCustomer.hasReservation() ? 0 : WALK_IN) | nextSequence++;
+        restoreEntry(key, newCustomer);
+        return key;
+    }
+    
+    /**
+     * Adds a customer with a key that was previously returned by addEntry,
+     * putting them back in exactly the position they held before.
+     * 
+     * @param key key of the entry
+     * @param customer Customer to be added
+     */
+    void restoreEntry(long key, Customer customer)
+    {
+        root = insert(root, key, customer);
+        nextSequence = Math.max(nextSequence, (key & ~WALK_IN) + 1);
+        countPartySize(customer.getSize(), 1);
+        indexName(customer, key, true);
+        if (owner != null) owner.waitlistChanged(customer, key, true);
+    }
+    
+    /**
+     * Removes the entry with the given key.
+     * 
+     * @param key key of the entry, as returned by addEntry or keyOf
+     * @return the Customer who was removed, or null if there was no such entry
+     */
+    Customer removeEntry(long key)
+    {
+        Node found = root;
+        while (found != null && found.key != key)
+            found = (key < found.key) ? found.left : found.right;
+        if (found == null) return null;
+        
+        root = delete(root, key);
+        countPartySize(found.data.getSize(), -1);
+        indexName(found.data, key, false);
+        if (owner != null) owner.waitlistChanged(found.data, key, false);
+        return found.data;
+    }
+    
+    /**
+     * Returns whether the given key is the one that add would give the next
+     * customer in its tier, so that adding that customer with add puts them
+     * in the same place as restoreEntry with the key would.
+     * 
+     * @param key key of an entry
+     * @return true if add would assign the same key
+     */
+    boolean isNextKey(long key)
+    {
+        return (key & ~WALK_IN) == nextSequence;
+    }
+    
+    /**
+     * Returns the key of the first customer with the given name.
+     * 
+     * @param partyName name or ID of a Customer
+     * @return key of their entry, or -1 if they are not in the list
+     */
+    long keyOf(String partyName)
+    {
+        Node found = findNode(partyName);
+        return (found == null) ? -1 : found.key;
+    }
+    
+    /**
+     * Returns the key of the given customer, who may share their name with
+     * other customers in the list.
+     * 
+     * @param customer Customer object in the list
+     * @return key of their entry, or -1 if they are not in the list
+     */
+    long keyOf(Customer customer)
+    {
+        long[] keys = keysByName().get(customer.getName().toLowerCase(Locale.ROOT));
+        if (keys == null) return -1;
+        for (long key : keys)
+        {
+            Node current = root;
+            while (current != null && current.key != key)
+                current = (key < current.key) ? current.left : current.right;
+            if (current != null && current.data == customer) return key;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the node of the first customer with the given name.
+     */
+    private Node findNode(String partyName)
+    {
+        if (partyName == null) return null;
+        Node current = root;
+        long[] keys = keysByName().get(partyName.toLowerCase(Locale.ROOT));
+        // customer with this name is not in waitlist
+        if (keys == null) return null;
+        
+        while (current != null && current.key != keys[0])
+            current = (keys[0] < current.key) ? current.left : current.right;
+        return current;
+    }
+    
+    /**
+     * Returns the index of names to keys, building it from the tree if this 
+     * list is a snapshot that has not needed it yet.
+     */
+    private Map<String, long[]> keysByName()
+    {
+        Map<String, long[]> index = keysByName;
+        if (index != null) return index;
+        synchronized (this)
+        {
+            if (keysByName == null)
+            {
+                index = new ConcurrentHashMap<>();
+                addNames(root, index);
+                keysByName = index;
+            }
+            return keysByName;
+        }
+    }
+    
+    /**
+     * Adds every entry of the given subtree to the index, in key order.
+     */
+    private static void addNames(Node node, Map<String, long[]> index)
+    {
+        while (node != null)
+        {
+            addNames(node.left, index);
+            String name = node.data.getName().toLowerCase(Locale.ROOT);
+            long[] keys = index.get(name);
+            if (keys == null) keys = new long[] { node.key };
+            else
+            {
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                keys[keys.length - 1] = node.key;
+            }
+            index.put(name, keys);
+            node = node.right;
+        }
+    }
+    
+    /**
+     * Adds or removes one entry in the index of names to keys. The key arrays 
+     * are replaced rather than modified, so readers on other threads never 
+     * see one half-updated.
+     * 
+     * @param customer Customer whose entry changed
+     * @param key key of the entry
+     * @param added true if the entry was added, false if it was removed
+     */
+    private void indexName(Customer customer, long key, boolean added)
+    {
+        Map<String, long[]> index = keysByName;
+        if (index == null) return; // will be rebuilt when needed
+        String name = customer.getName().toLowerCase(Locale.ROOT);
+        long[] keys = index.get(name);
+        if (added)
+        {
+            if (keys == null) 
+            {
+                index.put(name, new long[] { key });
+                return;
+            }
+            // Duplicate name; keep the keys sorted so the first is at the front
+            int at = -Arrays.binarySearch(keys, key) - 1;
+            long[] more = new long[keys.length + 1];
+            System.arraycopy(keys, 0, more, 0, at);
+            more[at] = key;
+            System.arraycopy(keys, at, more, at + 1, keys.length - at);
+            index.put(name, more);
+        }
+        else if (keys != null)
+        {
+            int at = Arrays.binarySearch(keys, key);
+            if (at < 0) return;
+            if (keys.length == 1) index.remove(name);
+            else
+            {
+                long[] fewer = new long[keys.length - 1];
+                System.arraycopy(keys, 0, fewer, 0, at);
+                System.arraycopy(keys, at + 1, fewer, at, fewer.length - at);
+                index.put(name, fewer);
+            }
+        }
+    }
+    
+    /**
+     * Returns the party size distribution, recounting it from the tree if this
+     * list is a snapshot that has not needed it yet.
+     */
+    private int[] partySizeCounts()
+    {
+        int[] counts = partySizeCounts;
+        if (counts != null) return counts;
+        synchronized (this)
+        {
+            if (partySizeCounts == null)
+            {
+                // Counted privately and published last, so that readers of 
+                // a snapshot never see a partly counted array
+                counts = new int[8];
+                Map<Integer, Integer> large = new HashMap<>();
+                for (Customer c : toArray())
+                {
+                    int size = c.getSize();
+                    if (size > MAX_COUNTED_SIZE) large.merge(size, 1, Integer::sum);
+                    else
+                    {
+                        if (size >= counts.length)
+                            counts = Arrays.copyOf(counts, Math.min(Math.max(size + 1, 
+                                    counts.length * 2), MAX_COUNTED_SIZE + 1));
+                        counts[size]++;
+                    }
+                }
+                largePartyCounts = large;
+                partySizeCounts = counts;
+            }
+            return partySizeCounts;
+        }
+    }
+    
+    /**
+     * Adjusts the party size distribution, growing it if necessary.
+     * 
+     * @param partySize size of the party being added or removed
+     * @param delta 1 if a party was added, -1 if one was removed
+     */
+    private void countPartySize(int partySize, int delta)
+    {
+        if (partySizeCounts == null) return; // will be recounted when needed
+        if (partySize > MAX_COUNTED_SIZE)
+        {
+            int count = largePartyCounts.getOrDefault(partySize, 0) + delta;
+            if (count == 0) largePartyCounts.remove(partySize);
+            else largePartyCounts.put(partySize, count);
+            return;
+        }
+        if (partySize >= partySizeCounts.length)
+            partySizeCounts = Arrays.copyOf(partySizeCounts, 
+                    Math.min(Math.max(partySize + 1, partySizeCounts.length * 2), 
+                            MAX_COUNTED_SIZE + 1));
+        partySizeCounts[partySize] += delta;
+    }
+    
+    /**
+     * Copies the customers in the given subtree into the array in order,
+     * starting at the given index, and returns the next free index.
+     */
+    private static int fill(Node node, Customer[] out, int i)
+    {
+        while (node != null)
+        {
+            i = fill(node.left, out, i);
+            out[i++] = node.data;
+            node = node.right;
+        }
+        return i;
+    }
+    
+    /**
+     * Copies the entries of the given subtree into the arrays in order, 
+     * leaving a gap of gapLength slots before the entry that would otherwise 
+     * go at index gap, and returns the number of entries copied so far.
+     */
+    private static int fillEntries(Node node, long[] keys, Customer[] data, int i, 
+            int gap, int gapLength)
+    {
+        while (node != null)
+        {
+            i = fillEntries(node.left, keys, data, i, gap, gapLength);
+            int at = (i >= gap) ? i + gapLength : i;
+            keys[at] = node.key;
+            data[at] = node.data;
+            i++;
+            node = node.right;
+        }
+        return i;
+    }
+    
+    /**
+     * Returns a perfectly balanced tree of the entries from lo (inclusive) to 
+     * hi (exclusive) of the arrays, which must be sorted by key.
+     */
+    private static Node build(long[] keys, Customer[] data, int lo, int hi)
+    {
+        if (lo >= hi) return null;
+        int mid = (lo + hi) >>> 1;
+        return new Node(keys[mid], data[mid], build(keys, data, lo, mid), 
+                build(keys, data, mid + 1, hi));
+    }
+    
+    /**
+     * Returns true if changing k entries of a list of n is cheaper done by 
+     * rebuilding the whole tree, in O(n + k) time, than by k separate 
+     * insertions or deletions, which each copy a path of O(log n) nodes.
+     */
+    private static boolean worthRebuilding(int k, int n)
+    {
+        if (k < 16) return false;
+        long depth = 64 - Long.numberOfLeadingZeros(n + k);
+        return k * depth >= n + k;
+    }
+    
+    /**
+     * Installs a rebuilt tree and rebuilds the index of names to match it.
+     */
+    private void replaceTree(Node newRoot)
+    {
+        Map<String, long[]> index = new ConcurrentHashMap<>();
+        addNames(newRoot, index);
+        root = newRoot;
+        keysByName = index;
+    }
+    
+    /**
+     * Returns the number of entries in the subtree whose key is less than the
+     * given key.
+     */
+    private static int countBefore(Node node, long key)
+    {
+        int count = 0;
+        while (node != null)
+        {
+            if (node.key < key)
+            {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+            else node = node.left;
+        }
+        return count;
+    }
+    
+    private static int height(Node node)
+    {
+        return (node == null) ? 0 : node.height;
+    }
+    
+    private static int size(Node node)
+    {
+        return (node == null) ? 0 : node.size;
+    }
+    
+    /**
+     * Returns a new tree with the given entry added, copying only the path
+     * from the root to the new entry.
+     */
+    private static Node insert(Node node, long key, Customer data)
+    {
+        if (node == null) return new Node(key, data, null, null);
+        if (key < node.key) return balance(node.key, node.data, insert(node.left, key, data), node.right);
+        return balance(node.key, node.data, node.left, insert(node.right, key, data));
+    }
+    
+    /**
+     * Returns a new tree with the entry with the given key removed. The key
+     * must be present.
+     */
+    private static Node delete(Node node, long key)
+    {
+        if (key < node.key) return balance(node.key, node.data, delete(node.left, key), node.right);
+        if (key > node.key) return balance(node.key, node.data, node.left, delete(node.right, key));
+        
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        
+        // Replace with the smallest entry of the right subtree
+        Node successor = node.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.key, successor.data, node.left, delete(node.right, successor.key));
+    }
+    
+    /**
+     * Creates a node from the given parts, rotating if the subtrees' heights
+     * differ by more than one.
+     */
+    private static Node balance(long key, Customer data, Node left, Node right)
+    {
+        int diff = height(left) - height(right);
+        if (diff > 1)
+        {
+            if (height(left.left) >= height(left.right))
+                return new Node(left.key, left.data, left.left, new Node(key, data, left.right, right));
+            Node mid = left.right;
+            return new Node(mid.key, mid.data, new Node(left.key, left.data, left.left, mid.left),
+                    new Node(key, data, mid.right, right));
+        }
+        if (diff < -1)
         {
-            returnString += current.data;
-            if (current.next != null) returnString += "\n";
-            current = current.next;
+            if (height(right.right) >= height(right.left))
+                return new Node(right.key, right.data, new Node(key, data, left, right.left), right.right);
+            Node mid = right.left;
+            return new Node(mid.key, mid.data, new Node(key, data, left, mid.left),
+                    new Node(right.key, right.data, mid.right, right.right));
         }
-        return returnString;
+        return new Node(key, data, left, right);
     }
-}
\ No newline at end of file
+}
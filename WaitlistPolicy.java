@@ -0,0 +1,75 @@
+package restaurant;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides the order in which waiting customers are offered for seating by a 
+ * PriorityWaitlist. A policy assigns each customer a rank when they join the 
+ * list (and again whenever the list is asked to reprioritize them); customers 
+ * with lower ranks are seated first, and customers with equal ranks are seated 
+ * in the order in which they arrived.
+ * <p>
+ * Ranks that are based on arrival time give aging for free: a walk-in who has 
+ * been waiting longer than the head start given to reservations will be 
+ * ranked ahead of any reservation that arrives after that point.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public interface WaitlistPolicy 
+{
+    /**
+     * Returns the rank of the given customer. Lower ranks are seated first.
+     * 
+     * @param customer Customer being ranked
+     * @param arrivalMillis time at which the customer joined the waitlist, in 
+     * milliseconds since the epoch
+     * @return rank of the customer
+     */
+    long rank(Customer customer, long arrivalMillis);
+    
+    /**
+     * Returns the policy used by Waitlist: all customers with reservations are 
+     * seated before any customer without one, and each group is seated in 
+     * order of arrival.
+     * 
+     * @return two-tier reservation policy
+     */
+    static WaitlistPolicy twoTier()
+    {
+        return (customer, arrivalMillis) -> customer.hasReservation() ? 0 : 1;
+    }
+    
+    /**
+     * Returns a policy that orders customers by arrival time, treating customers 
+     * with reservations as though they had arrived the given amount of time 
+     * earlier than they did. Walk-ins are therefore never kept waiting behind 
+     * reservations for longer than the head start.
+     * 
+     * @param headStartMillis head start given to reservations, in milliseconds
+     * @return aging policy
+     */
+    static WaitlistPolicy aging(long headStartMillis)
+    {
+        return (customer, arrivalMillis) -> 
+                customer.hasReservation() ? arrivalMillis - headStartMillis : arrivalMillis;
+    }
+    
+    /**
+     * Returns a policy that orders customers by arrival time, moving each 
+     * customer ahead by the given amount of time per tier. Tiers may come from 
+     * anywhere - VIP status or a loyalty score, for instance - and reservations 
+     * can be handled by making the tier function add to the tier of customers 
+     * who have one.
+     * 
+     * @param tier function giving the tier of a customer; higher tiers are 
+     * seated sooner
+     * @param headStartPerTierMillis head start given per tier, in milliseconds
+     * @return tiered aging policy
+     */
+    static WaitlistPolicy tiered(ToIntFunction<Customer> tier, long headStartPerTierMillis)
+    {
+        return (customer, arrivalMillis) -> 
+                arrivalMillis - tier.applyAsInt(customer) * headStartPerTierMillis;
+    }
+}
@@ -0,0 +1,88 @@
+package restaurant;
+
+import java.util.Arrays;
+
+/**
+ * Checks that promoting a ReplicationFollower after its leader fails loses 
+ * no change that the leader reported as replicated, including waitlist 
+ * removals of customers who share a name with someone else in line. Run 
+ * with the main method; it throws AssertionError on the first failure.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class ReplicationFailoverTest
+{
+    private static final long TIMEOUT = 5000; // milliseconds to wait for followers
+    
+    public static void main(String[] args) throws Exception
+    {
+        Restaurant primary = new Restaurant("Failover", new int[] {2, 2, 4, 4, 6, 8});
+        Restaurant replica1 = new Restaurant("Failover", new int[] {2, 2, 4, 4, 6, 8});
+        Restaurant replica2 = new Restaurant("Failover", new int[] {2, 2, 4, 4, 6, 8});
+        
+        ReplicationLeader leader = new ReplicationLeader(primary, 0);
+        ReplicationFollower follower1 = new ReplicationFollower(replica1);
+        ReplicationFollower follower2 = new ReplicationFollower(replica2);
+        follower1.connect("localhost", leader.getPort());
+        follower2.connect("localhost", leader.getPort());
+        
+        // A reservation and a walk-in with the same name; undoing the walk-in 
+        // must remove the walk-in on the followers too, not the reservation
+        CommandLog history = new CommandLog(primary);
+        Table[] tables = primary.getAllTables();
+        history.addToWaitlist(new Customer("Bob", 2, true));
+        history.addToWaitlist(new Customer("Ann", 4, false));
+        history.addToWaitlist(new Customer("Bob", 3, false));
+        history.undo();
+        history.seat(tables[0], new Customer("Cy", 2, false));
+        history.seat(tables[2], new Customer("Di", 4, true));
+        history.setStatus(tables[2], 3);
+        history.seatFromWaitlist(tables[4], "Ann");
+        
+        long acknowledged = leader.lastSequence();
+        check(leader.awaitReplicated(acknowledged, 2, TIMEOUT), "followers acknowledged");
+        String[] seated = describeSeated(primary);
+        String waiting = Arrays.toString(primary.getWaitlist().toArray());
+        
+        // Changes that were never acknowledged may be lost; the rest must not be
+        leader.close();
+        ReplicationLeader promoted = follower1.promote(0);
+        follower2.close();
+        follower2.connect("localhost", promoted.getPort());
+        
+        check(Arrays.equals(describeSeated(replica1), seated), "seatings survive promotion");
+        check(Arrays.toString(replica1.getWaitlist().toArray()).equals(waiting),
+                "waitlist survives promotion: " + Arrays.toString(replica1.getWaitlist().toArray()));
+        Customer bob = replica1.getWaitlist().find("Bob");
+        check(bob != null && bob.hasReservation(), "the reservation named Bob is still waiting");
+        
+        // The promoted leader keeps replicating to the remaining follower
+        CommandLog promotedHistory = new CommandLog(replica1);
+        promotedHistory.seatFromWaitlist(replica1.getAllTables()[1], "Bob");
+        promotedHistory.vacate(replica1.getAllTables()[0]);
+        check(promoted.awaitReplicated(promoted.lastSequence(), 1, TIMEOUT), 
+                "remaining follower acknowledged");
+        String[] after = describeSeated(replica1);
+        check(follower2.read(r -> Arrays.equals(describeSeated(r), after)), 
+                "remaining follower matches the promoted leader");
+        check(follower2.read(r -> r.getWaitlist().length() == 0), "waitlist emptied");
+        
+        promoted.close();
+        follower2.close();
+        System.out.println("OK");
+    }
+    
+    private static String[] describeSeated(Restaurant r)
+    {
+        Table[] tables = r.getAllTables();
+        String[] result = new String[tables.length];
+        for (int i = 0; i < tables.length; i++) result[i] = tables[i].toString();
+        return result;
+    }
+    
+    private static void check(boolean condition, String what)
+    {
+        if (!condition) throw new AssertionError("Failed: " + what);
+    }
+}
@@ -0,0 +1,206 @@
+package restaurant;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Checks that RestaurantCodec decodes what it encodes, and that cut-short or 
+ * corrupted input is rejected with IllegalArgumentException or 
+ * BufferUnderflowException rather than any other failure. Run with the main 
+ * method; it throws AssertionError on the first failure.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class RestaurantCodecTest
+{
+    private static final String[] NAMES = { "Ann", "bob", "Zo\u00EB", "\u674E", "\uD83C\uDF72 Soup", "", "x y" };
+    
+    public static void main(String[] args)
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 28);
+        for (int round = 0; round < 2000; round++)
+        {
+            Customer c = randomCustomer(random);
+            checkRoundTrip(encoded(c), RestaurantCodec::decodeCustomer, c.toString(), 
+                    RestaurantCodec.encodedSize(c));
+            
+            Table t = randomTable(random);
+            checkRoundTrip(encoded(t), RestaurantCodec::decodeTable, t.toString(), 
+                    RestaurantCodec.encodedSize(t));
+            
+            Waitlist w = new Waitlist();
+            for (int i = random.nextInt(20); i > 0; i--) w.add(randomCustomer(random));
+            checkRoundTrip(encoded(w), RestaurantCodec::decodeWaitlist, w.toString(), 
+                    RestaurantCodec.encodedSize(w));
+        }
+        checkMutations(random);
+        System.out.println("OK");
+    }
+    
+    /**
+     * Decodes the bytes, checks the result, then checks that every shorter 
+     * prefix and a number of corrupted copies are rejected cleanly.
+     */
+    private static void checkRoundTrip(byte[] bytes, Function<ByteBuffer, ?> decoder, 
+            String expected, int expectedSize)
+    {
+        check(bytes.length == expectedSize, "encodedSize " + expectedSize + " for " 
+                + bytes.length + " bytes of " + expected);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        String decoded = decoder.apply(in).toString();
+        check(decoded.equals(expected), "decoded " + decoded + ", expected " + expected);
+        check(!in.hasRemaining(), "all bytes read for " + expected);
+        
+        // Direct buffers take the copying path for strings
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        check(decoder.apply(direct).toString().equals(expected), "direct decode of " + expected);
+        
+        for (int length = 0; length < bytes.length; length++)
+        {
+            try
+            {
+                decoder.apply(ByteBuffer.wrap(bytes, 0, length));
+                // A prefix can only decode if it is itself a complete value, 
+                // which a truncated waitlist of customers can be
+            }
+            catch (IllegalArgumentException | BufferUnderflowException e)
+            {
+                // expected
+            }
+        }
+        
+        Random random = new Random(bytes.length);
+        for (int i = 0; i < 20 && bytes.length > 0; i++)
+        {
+            byte[] corrupted = bytes.clone();
+            corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(256);
+            try
+            {
+                decoder.apply(ByteBuffer.wrap(corrupted));
+                decoder.apply(ByteBuffer.allocateDirect(corrupted.length).put(corrupted).flip());
+            }
+            catch (IllegalArgumentException | BufferUnderflowException e)
+            {
+                // expected
+            }
+        }
+    }
+    
+    /**
+     * Applies encoded mutations to a copy of a restaurant and checks that the 
+     * copy ends up the same, then that truncated mutations are rejected.
+     */
+    private static void checkMutations(Random random)
+    {
+        Restaurant original = new Restaurant("Codec", new int[] {2, 4, 4, 6});
+        Restaurant copy = new Restaurant("Codec", new int[] {2, 4, 4, 6});
+        Table[] tables = original.getAllTables();
+        ByteBuffer[] last = new ByteBuffer[1];
+        original.addListener(new RestaurantListener()
+        {
+            @Override
+            public void tableChanged(Table table, int oldStatus, Customer oldOccupant)
+            {
+                apply(RestaurantCodec.encodeTableState(table));
+            }
+            
+            @Override
+            public void customerAdded(Customer customer)
+            {
+                apply(RestaurantCodec.encodeWaitlistAdd(original.changingWaitlistKey(), customer));
+            }
+            
+            @Override
+            public void customerRemoved(Customer customer)
+            {
+                apply(RestaurantCodec.encodeWaitlistRemove(original.changingWaitlistKey(), customer));
+            }
+            
+            private void apply(byte[] mutation)
+            {
+                for (int length = 0; length < mutation.length; length++)
+                {
+                    Restaurant scratch = new Restaurant("Scratch", new int[] {2, 4, 4, 6});
+                    try
+                    {
+                        RestaurantCodec.applyMutation(ByteBuffer.wrap(mutation, 0, length), scratch);
+                        throw new AssertionError("Failed: truncated mutation was applied");
+                    }
+                    catch (IllegalArgumentException | BufferUnderflowException e)
+                    {
+                        // expected
+                    }
+                }
+                last[0] = ByteBuffer.wrap(mutation);
+                RestaurantCodec.applyMutation(last[0], copy);
+            }
+        });
+        
+        for (int i = 0; i < 3000; i++)
+        {
+            Table t = tables[random.nextInt(tables.length)];
+            String name = NAMES[random.nextInt(NAMES.length)];
+            switch (random.nextInt(5))
+            {
+                case 0: original.getWaitlist().add(randomCustomer(random)); break;
+                case 1: original.getWaitlist().remove(name); break;
+                case 2: t.seat(new Customer(name.isEmpty() ? "?" : name, 1 + random.nextInt(2), false)); break;
+                case 3: t.vacate(); break;
+                default: t.setStatus(random.nextInt(6)); break;
+            }
+            check(original.toString().equals(copy.toString()), "copy matches after step " + i);
+        }
+        check(Arrays.toString(original.getWaitlist().toArray())
+                .equals(Arrays.toString(copy.getWaitlist().toArray())), "waitlists match");
+    }
+    
+    private static Customer randomCustomer(Random random)
+    {
+        String name = NAMES[random.nextInt(NAMES.length)];
+        if (name.isEmpty()) name = "Party " + random.nextInt(1000);
+        EnumSet<TableAttribute> preferences = EnumSet.noneOf(TableAttribute.class);
+        for (TableAttribute a : TableAttribute.values())
+            if (random.nextInt(4) == 0) preferences.add(a);
+        int size = random.nextBoolean() ? 1 + random.nextInt(8) : 1 + random.nextInt(100_000);
+        return new Customer(name, size, random.nextBoolean(), preferences);
+    }
+    
+    private static Table randomTable(Random random)
+    {
+        Table t = new Table("T" + random.nextInt(500), 1 + random.nextInt(12));
+        if (random.nextBoolean()) t.seat(new Customer("Guest", 1, false));
+        if (random.nextBoolean()) t.setStatus(random.nextInt(6));
+        return t;
+    }
+    
+    private static byte[] encoded(Customer c)
+    {
+        ByteBuffer out = ByteBuffer.allocate(RestaurantCodec.encodedSize(c));
+        RestaurantCodec.encode(c, out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+    
+    private static byte[] encoded(Table t)
+    {
+        ByteBuffer out = ByteBuffer.allocate(RestaurantCodec.encodedSize(t));
+        RestaurantCodec.encode(t, out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+    
+    private static byte[] encoded(Waitlist w)
+    {
+        ByteBuffer out = ByteBuffer.allocate(RestaurantCodec.encodedSize(w));
+        RestaurantCodec.encode(w, out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+    
+    private static void check(boolean condition, String what)
+    {
+        if (!condition) throw new AssertionError("Failed: " + what);
+    }
+}
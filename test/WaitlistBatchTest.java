@@ -0,0 +1,122 @@
+package restaurant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that Waitlist.addAll and removeAll leave the list, its aggregates 
+ * and its restaurant's listeners in the same state as calling add or remove 
+ * once per customer, for batches small enough to be applied one at a time 
+ * and large enough to rebuild the tree. Run with the main method; it throws 
+ * AssertionError on the first failure.
+ * 
+ * @author Katie Woods
+ * @version 1.0
+ */
+public class WaitlistBatchTest
+{
+    // Few names, in mixed case, so that the same name is often waiting both 
+    // with and without a reservation
+    private static final String[] NAMES = { "Ann", "ANN", "Bob", "bob", "Cy", "Dee", "Eve" };
+    
+    public static void main(String[] args)
+    {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 47);
+        for (int round = 0; round < 500; round++)
+        {
+            Restaurant batched = new Restaurant("Batched", 1);
+            Restaurant looped = new Restaurant("Looped", 1);
+            List<String> batchedEvents = record(batched);
+            List<String> loopedEvents = record(looped);
+            Waitlist b = batched.getWaitlist(), l = looped.getWaitlist();
+            
+            for (int step = 0; step < 6; step++)
+            {
+                // Sizes either side of the rebuild threshold, and sometimes
+                // much larger than the list
+                int k = random.nextBoolean() ? random.nextInt(16) : 16 + random.nextInt(200);
+                if (random.nextInt(3) > 0)
+                {
+                    Customer[] batch = new Customer[k];
+                    for (int i = 0; i < k; i++) batch[i] = randomCustomer(random);
+                    b.addAll(batch);
+                    for (Customer c : batch) l.add(c);
+                }
+                else
+                {
+                    String[] names = new String[k];
+                    for (int i = 0; i < k; i++)
+                        names[i] = (random.nextInt(20) == 0) ? "Nobody" : NAMES[random.nextInt(NAMES.length)];
+                    int removed = 0;
+                    for (String name : names)
+                        if (l.remove(name)) removed++;
+                    check(b.removeAll(names) == removed, "removeAll count in round " + round);
+                }
+                checkSame(b, l, "round " + round + " step " + step);
+                check(batchedEvents.equals(loopedEvents), "listener events in round " + round 
+                        + ": " + batchedEvents + " vs " + loopedEvents);
+            }
+            
+            // The batched list must keep working one customer at a time
+            Customer last = randomCustomer(random);
+            b.add(last);
+            l.add(last);
+            b.remove(last.getName());
+            l.remove(last.getName());
+            checkSame(b, l, "round " + round + " after single changes");
+            checkSame(b.snapshot(), l.snapshot(), "snapshots in round " + round);
+        }
+        System.out.println("OK");
+    }
+    
+    private static void checkSame(Waitlist b, Waitlist l, String when)
+    {
+        check(Arrays.equals(b.toArray(), l.toArray()), "order at " + when);
+        check(b.length() == l.length(), "length at " + when);
+        check(b.numWithReservations() == l.numWithReservations(), "reservations at " + when);
+        for (int size = 1; size <= 8; size++)
+            check(b.numWithPartySize(size) == l.numWithPartySize(size), "size " + size + " at " + when);
+        for (String name : NAMES)
+        {
+            check(b.positionOf(name) == l.positionOf(name), "position of " + name + " at " + when);
+            check(b.find(name) == l.find(name), "find " + name + " at " + when);
+        }
+    }
+    
+    /**
+     * Records each waitlist change the restaurant reports, with the key that 
+     * replication would send for it.
+     */
+    private static List<String> record(Restaurant r)
+    {
+        List<String> events = new ArrayList<>();
+        r.addListener(new RestaurantListener()
+        {
+            @Override
+            public void customerAdded(Customer customer)
+            {
+                events.add("+" + r.changingWaitlistKey() + " " + customer);
+            }
+            
+            @Override
+            public void customerRemoved(Customer customer)
+            {
+                events.add("-" + r.changingWaitlistKey() + " " + customer);
+            }
+        });
+        return events;
+    }
+    
+    private static Customer randomCustomer(Random random)
+    {
+        return new Customer(NAMES[random.nextInt(NAMES.length)], 1 + random.nextInt(8), 
+                random.nextBoolean());
+    }
+    
+    private static void check(boolean condition, String what)
+    {
+        if (!condition) throw new AssertionError("Failed: " + what);
+    }
+}